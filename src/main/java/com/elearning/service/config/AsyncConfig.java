@@ -0,0 +1,186 @@
+package com.elearning.service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors for background jobs (@Async) and schedulers
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Executor for maintenance jobs such as deck cleanup.
+     * Kept small on purpose so cleanup never competes with request threads for DB connections.
+     */
+    @Bean(name = "maintenanceExecutor")
+    public ThreadPoolTaskExecutor maintenanceExecutor(
+            @Value("${app.maintenance.pool-size:2}") int poolSize,
+            @Value("${app.maintenance.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("maintenance-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for chunks of batch translation calls (Gemini/Google).
+     * The threads mostly wait on HTTP; provider rate limits are enforced separately.
+     * When the queue is full the submitting request thread runs the chunk itself.
+     */
+    @Bean(name = "translationExecutor")
+    public ThreadPoolTaskExecutor translationExecutor(
+            @Value("${app.translation.batch.concurrency:4}") int concurrency,
+            @Value("${app.translation.batch.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("translation-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for hedged provider calls (primary and backup racing each other) and
+     * side-by-side provider comparisons.
+     * When the queue is full the caller runs the call itself, i.e. no hedging under overload.
+     */
+    @Bean(name = "providerHedgeExecutor")
+    public ThreadPoolTaskExecutor providerHedgeExecutor(
+            @Value("${app.provider-router.hedge.pool-size:8}") int poolSize,
+            @Value("${app.provider-router.hedge.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("provider-hedge-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers that synthesize card audio after the card is saved.
+     * Bounded on purpose: when the queue is full the job is rejected and the card stays
+     * PENDING until the audio sweeper picks it up, so bulk creates never block on TTS.
+     */
+    @Bean(name = "audioGenerationExecutor")
+    public ThreadPoolTaskExecutor audioGenerationExecutor(
+            @Value("${app.audio.generation.concurrency:2}") int concurrency,
+            @Value("${app.audio.generation.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("card-audio-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for batch TTS items. Per-provider concurrency is capped separately
+     * (app.tts.batch.{provider}.concurrency), so the pool only needs to cover their sum.
+     * When the queue is full the submitting thread synthesizes the item itself.
+     */
+    @Bean(name = "ttsBatchExecutor")
+    public ThreadPoolTaskExecutor ttsBatchExecutor(
+            @Value("${app.tts.batch.pool-size:8}") int poolSize,
+            @Value("${app.tts.batch.queue-capacity:2000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("tts-batch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs batch TTS retries once their backoff has passed.
+     * Separate from ttsBatchExecutor, whose CallerRunsPolicy would otherwise run a retry on whatever thread scheduled it.
+     */
+    @Bean(name = "ttsRetryScheduler")
+    public ThreadPoolTaskScheduler ttsRetryScheduler(@Value("${app.tts.batch.retry-pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("tts-retry-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Single thread for audio segment compaction, which copies whole segments and must not hold up @Scheduled jobs.
+     * A trigger that arrives while a compaction is still running is dropped.
+     */
+    @Bean(name = "segmentCompactionExecutor")
+    public ThreadPoolTaskExecutor segmentCompactionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("segment-compaction-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single thread for the audio garbage collector, which pauses between batches for minutes per run.
+     * Kept off maintenanceExecutor so deck purges and cache writes never wait behind it; an overlapping run is dropped.
+     */
+    @Bean(name = "audioGcExecutor")
+    public ThreadPoolTaskExecutor audioGcExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("audio-gc-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Scheduler for @Scheduled jobs.
+     * Declared by name because the WebSocket broker registers its own TaskScheduler.
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduling.pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Timer for live quiz rooms (question deadlines, reveals) and STOMP heartbeats.
+     * A few threads serve every room: tasks only update in-memory state and enqueue messages.
+     */
+    @Bean(name = "liveQuizScheduler")
+    public ThreadPoolTaskScheduler liveQuizScheduler(@Value("${app.live-quiz.scheduler-pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("live-quiz-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+}
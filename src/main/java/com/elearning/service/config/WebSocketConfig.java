@@ -0,0 +1,90 @@
+package com.elearning.service.config;
+
+import com.elearning.service.security.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * STOMP over WebSocket for live quiz rooms.
+ *
+ * Clients connect to /ws and authenticate with the same JWT as the REST API,
+ * sent as the "Authorization: Bearer ..." header of the STOMP CONNECT frame.
+ * Room events are broadcast on /topic/live-quiz/{roomCode}; per-user replies go
+ * to /user/queue/live-quiz. The in-memory broker fans out on the shared
+ * outbound channel pool, so connections do not hold threads.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final JwtTokenProvider tokenProvider;
+    private final UserDetailsService userDetailsService;
+    private final TaskScheduler liveQuizScheduler;
+
+    public WebSocketConfig(JwtTokenProvider tokenProvider,
+                           UserDetailsService userDetailsService,
+                           @Qualifier("liveQuizScheduler") TaskScheduler liveQuizScheduler) {
+        this.tokenProvider = tokenProvider;
+        this.userDetailsService = userDetailsService;
+        this.liveQuizScheduler = liveQuizScheduler;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws")
+                .setAllowedOrigins("http://localhost:4200", "http://localhost:4201");
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+        registry.setPreservePublishOrder(true);
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{10000, 10000})
+                .setTaskScheduler(liveQuizScheduler);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+                }
+                return message;
+            }
+        });
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String bearerToken) {
+        if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith("Bearer ")) {
+            throw new MessagingException("Thiếu token xác thực");
+        }
+        String jwt = bearerToken.substring(7);
+        if (!tokenProvider.validateToken(jwt)) {
+            throw new MessagingException("Token không hợp lệ");
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(tokenProvider.getEmailFromJWT(jwt));
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
@@ -1,15 +1,27 @@
 package com.elearning.service.controllers;
 
 import com.elearning.service.services.AITTSService;
+import com.elearning.service.services.AudioAssetService;
+import com.elearning.service.services.AudioGarbageCollector;
 import com.elearning.service.services.AudioService;
+import com.elearning.service.services.AudioStorageStats;
+import com.elearning.service.services.CardAudioService;
+import com.elearning.service.services.ProviderRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/ai-audio")
@@ -19,6 +31,18 @@ public class AIAudioController {
 
     private final AITTSService aiTTSService;
     private final AudioService audioService;
+    private final ProviderRouter providerRouter;
+    private final AudioAssetService audioAssetService;
+    private final CardAudioService cardAudioService;
+    private final AudioStorageStats audioStorageStats;
+    private final AudioGarbageCollector audioGarbageCollector;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.provider-router.compare-timeout-ms:10000}")
+    private long compareTimeoutMillis;
+
+    @Value("${app.tts.batch.stream-timeout-seconds:600}")
+    private long streamTimeoutSeconds;
 
     /**
      * Generate AI audio for single text
@@ -103,6 +127,69 @@ public class AIAudioController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Batch generation streamed as NDJSON: one line per text as soon as its audio is ready, then a summary line
+     */
+    @PostMapping(value = "/generate-batch/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamBatchAIAudio(@RequestBody Map<String, Object> request) {
+        @SuppressWarnings("unchecked")
+        List<String> texts = (List<String>) request.get("texts");
+        if (texts == null || texts.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String language = (String) request.getOrDefault("language", "en");
+        String voiceType = (String) request.getOrDefault("voiceType", "female");
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutSeconds * 1000);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        log.info("Streaming batch AI audio for {} texts", texts.size());
+        aiTTSService.streamBatchAIAudio(texts, language, voiceType, (text, audioUrl) -> {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("text", text);
+            line.put("audioUrl", audioUrl);
+            line.put("success", audioUrl != null);
+            sendLine(emitter, closed, line);
+        }, closed::get).whenComplete((audioUrls, error) -> {
+            if (closed.get()) {
+                return;
+            }
+            if (error != null) {
+                log.error("Streaming batch AI audio failed: {}", error.getMessage());
+                emitter.completeWithError(error);
+                return;
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("done", true);
+            summary.put("totalRequested", texts.size());
+            summary.put("totalGenerated", audioUrls.size());
+            if (sendLine(emitter, closed, summary)) {
+                emitter.complete();
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private boolean sendLine(ResponseBodyEmitter emitter, AtomicBoolean closed, Map<String, Object> line) {
+        if (closed.get()) {
+            return false;
+        }
+        // Items finish on different worker threads; one line at a time
+        synchronized (emitter) {
+            try {
+                emitter.send(objectMapper.writeValueAsString(line) + "\n", MediaType.APPLICATION_NDJSON);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                closed.set(true);
+                log.debug("Batch audio stream client disconnected: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
     /**
      * Get available voices for a language
      */
@@ -142,28 +229,36 @@ public class AIAudioController {
             
             log.info("Comparing audio quality for: {}", text);
             
-            // Generate AI TTS audio
-            String aiAudioUrl = aiTTSService.generateAIAudioForText(text, language, voiceType);
-            
-            // Generate basic TTS audio (fallback method)
-            String basicAudioUrl = generateBasicAudio(text, language);
+            // Both providers run concurrently, each bounded by the comparison timeout
+            long start = System.currentTimeMillis();
+            Map<String, ProviderRouter.Outcome<String>> outcomes = providerRouter.fanOut(List.of(
+                new ProviderRouter.Route<>("ai_tts", () -> aiTTSService.generateAIAudioForText(text, language, voiceType)),
+                new ProviderRouter.Route<>("basic_tts", () -> generateBasicAudio(text, language))
+            ), compareTimeoutMillis);
+            ProviderRouter.Outcome<String> ai = outcomes.get("ai_tts");
+            ProviderRouter.Outcome<String> basic = outcomes.get("basic_tts");
             
             Map<String, Object> comparison = new HashMap<>();
             comparison.put("ai_tts", Map.of(
-                "audioUrl", aiAudioUrl != null ? aiAudioUrl : "Failed to generate",
+                "audioUrl", ai.value() != null ? ai.value() : "Failed to generate",
                 "provider", "OpenAI TTS-HD",
                 "quality", "High (9/10)",
                 "naturalness", "Very Natural",
-                "cost", "$0.015 per 1000 chars"
+                "cost", "$0.015 per 1000 chars",
+                "status", ai.status().name(),
+                "latencyMs", ai.latencyMillis()
             ));
             
             comparison.put("basic_tts", Map.of(
-                "audioUrl", basicAudioUrl != null ? basicAudioUrl : "Failed to generate",
+                "audioUrl", basic.value() != null ? basic.value() : "Failed to generate",
                 "provider", "ResponsiveVoice",
                 "quality", "Basic (3/10)",
                 "naturalness", "Robotic",
-                "cost", "Free"
+                "cost", "Free",
+                "status", basic.status().name(),
+                "latencyMs", basic.latencyMillis()
             ));
+            response.put("totalLatencyMs", System.currentTimeMillis() - start);
             
             response.put("success", true);
             response.put("text", text);
@@ -197,6 +292,38 @@ public class AIAudioController {
         }
     }
 
+    /**
+     * Content-addressed audio reuse: stored files, card references and lookup hit ratio
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getAudioCacheStats() {
+        return ResponseEntity.ok(audioAssetService.getStats());
+    }
+
+    /**
+     * Stored audio: files and bytes by provider, language and voice (incremental counters)
+     */
+    @GetMapping("/storage/stats")
+    public ResponseEntity<Map<String, Object>> getAudioStorageStats() {
+        return ResponseEntity.ok(audioStorageStats.snapshot());
+    }
+
+    /**
+     * Orphaned audio collection: mode, totals and counters of the last run
+     */
+    @GetMapping("/gc/stats")
+    public ResponseEntity<Map<String, Object>> getAudioGcStats() {
+        return ResponseEntity.ok(audioGarbageCollector.getStats());
+    }
+
+    /**
+     * Background card audio queue: in flight, completed, failed, retried, rejected
+     */
+    @GetMapping("/generation/stats")
+    public ResponseEntity<Map<String, Object>> getAudioGenerationStats() {
+        return ResponseEntity.ok(cardAudioService.getStats());
+    }
+
     /**
      * Demo: Generate audio for flashcard vocabulary  
      */
@@ -1,47 +1,214 @@
 package com.elearning.service.controllers;
 
+import com.elearning.service.entities.AudioAsset;
+import com.elearning.service.services.AudioAssetService;
+import com.elearning.service.services.AudioBlobStore;
+import com.elearning.service.utils.ByteBufferResource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controller để serve audio files
+ *
+ * Versioned content-addressed files ({provider}_{sha256}_{version}.mp3) never change,
+ * since a regenerated clip gets a new version: their ETag comes from the name and they
+ * are cached as immutable for a year, so replays are served from the browser or CDN
+ * cache. Files without a version (and legacy files) may have been regenerated under the
+ * same name in the past, so they get an ETag from a hash of their bytes (computed once
+ * per file version; the row ID for clips in segments) and a short max-age with
+ * revalidation.
+ * Conditional requests get 304 and Range requests get 206 (both handled by Spring
+ * from the ETag/Last-Modified headers and the Resource body). Full responses of
+ * larger files are handed to the servlet container's sendfile when it supports it,
+ * so the bytes go from the page cache to the socket without passing through the JVM.
+ * Clips packed in segment files are served the same way from their byte range of the
+ * segment (sendfile with an offset, or a slice of the segment's memory mapping).
  */
 @RestController
 @RequestMapping("/api/audio")
+@RequiredArgsConstructor
 @Slf4j
 public class AudioController {
 
+    private static final MediaType AUDIO_MPEG = MediaType.parseMediaType("audio/mpeg");
+
+    // Tomcat request attributes for sendfile (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final AudioAssetService audioAssetService;
+    private final AudioBlobStore audioBlobStore;
+
     @Value("${app.audio.storage.path:./audio}")
     private String audioStoragePath;
 
+    @Value("${app.audio.serve.legacy-max-age-seconds:86400}")
+    private long legacyMaxAgeSeconds;
+
+    /**
+     * Files smaller than this are copied normally; sendfile setup costs more than it saves (same default as Tomcat's DefaultServlet)
+     */
+    @Value("${app.audio.serve.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    /**
+     * ETag of legacy (non content-addressed) files, keyed by file name; recomputed when size or mtime change
+     */
+    private final Map<String, LegacyEtag> legacyEtags = new ConcurrentHashMap<>();
+
+    private record LegacyEtag(long size, long lastModified, String etag) {
+    }
+
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> serveAudioFile(@PathVariable String fileName) {
+    public ResponseEntity<Resource> serveAudioFile(@PathVariable String fileName,
+                                                   HttpServletRequest request,
+                                                   WebRequest webRequest) {
         try {
-            Path filePath = Paths.get(audioStoragePath).resolve(fileName);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType("audio/mpeg"))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                               "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
+            Path storage = Paths.get(audioStoragePath).toAbsolutePath().normalize();
+            Path filePath = storage.resolve(fileName).normalize();
+            if (!filePath.startsWith(storage)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String contentHash = AudioAssetService.contentHashOf(fileName);
+            String version = contentHash != null ? AudioAssetService.versionOf(fileName) : null;
+            if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+                // Không có file riêng: clip có thể nằm trong segment
+                Optional<AudioAsset> asset = contentHash != null ? audioAssetService.findStored(fileName) : Optional.empty();
+                if (asset.isPresent() && asset.get().getSegment() != null) {
+                    return serveFromSegment(fileName, contentHash, version, asset.get(), request, webRequest);
+                }
                 log.warn("File âm thanh không tồn tại: {}", fileName);
                 return ResponseEntity.notFound().build();
             }
+
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+
+            String etag = "\"" + (version != null ? contentHash + "-" + version : legacyEtag(fileName, filePath, size, lastModified)) + "\"";
+            CacheControl cacheControl = cacheControl(version);
+            if (webRequest.checkNotModified(etag, lastModified)) {
+                // 304: ETag/Last-Modified headers are already set by checkNotModified
+                return ResponseEntity.status(304).cacheControl(cacheControl).build();
+            }
+
+            ResponseEntity.BodyBuilder response = okHeaders(fileName, etag, lastModified, cacheControl);
+            if (canSendfile(request, size)) {
+                // Container writes the file itself after the headers; no body from us
+                setSendfile(request, filePath, 0, size);
+                return response.contentLength(size).build();
+            }
+
+            // Range requests are answered with 206 and the requested region(s) by Spring
+            return response.body(new FileSystemResource(filePath));
         } catch (Exception e) {
             log.error("Lỗi khi serve audio file: {}", fileName, e);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Serve a clip packed in a segment file: sendfile of its byte range, or a slice of the segment mapping
+     */
+    private ResponseEntity<Resource> serveFromSegment(String fileName, String contentHash, String version, AudioAsset asset,
+                                                      HttpServletRequest request, WebRequest webRequest) throws IOException {
+        String etag = "\"" + contentHash + "-" + (version != null ? version : "r" + asset.getId()) + "\"";
+        long lastModified = asset.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        CacheControl cacheControl = cacheControl(version);
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).build();
+        }
+
+        ResponseEntity.BodyBuilder response = okHeaders(fileName, etag, lastModified, cacheControl);
+        long size = asset.getSizeBytes();
+        if (canSendfile(request, size)) {
+            setSendfile(request, audioBlobStore.segmentPath(asset.getSegment()), asset.getSegmentOffset(), size);
+            return response.contentLength(size).build();
+        }
+        return response.body(new ByteBufferResource(audioBlobStore.read(asset), fileName));
+    }
+
+    /**
+     * Immutable only for versioned names, whose bytes can never change
+     */
+    private CacheControl cacheControl(String version) {
+        return version != null
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.maxAge(legacyMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
+
+    private static ResponseEntity.BodyBuilder okHeaders(String fileName, String etag, long lastModified, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .contentType(AUDIO_MPEG)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+    }
+
+    private static void setSendfile(HttpServletRequest request, Path file, long start, long length) {
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + length);
+    }
+
+    private boolean canSendfile(HttpServletRequest request, long size) {
+        return "GET".equals(request.getMethod())
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && size >= sendfileMinBytes
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED));
+    }
+
+    private String legacyEtag(String fileName, Path filePath, long size, long lastModified) throws IOException {
+        LegacyEtag cached = legacyEtags.get(fileName);
+        if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            return cached.etag();
+        }
+        String etag = sha256(filePath);
+        legacyEtags.put(fileName, new LegacyEtag(size, lastModified, etag));
+        return etag;
+    }
+
+    private static String sha256(Path filePath) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(filePath), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.elearning.service.controllers;
 
 import com.elearning.service.dto.CardTranslationData;
+import com.elearning.service.dtos.CardAudioStatusDTO;
 import com.elearning.service.dtos.CardDTO;
 import com.elearning.service.dtos.CreateCardDTO;
 import com.elearning.service.dtos.ReviewCardRequest;
 import com.elearning.service.dtos.BulkCreateCardsRequest;
 import com.elearning.service.dtos.BulkCreateCardsResponse;
+import com.elearning.service.dtos.BulkDeleteCardsRequest;
 import com.elearning.service.services.CardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/decks/{deckId}/cards")
@@ -52,6 +55,23 @@ public class CardController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Poll audio generation status (all cards of the deck, or only cardIds)
+     */
+    @GetMapping("/audio-status")
+    public ResponseEntity<List<CardAudioStatusDTO>> getAudioStatus(
+            @PathVariable Long deckId,
+            @RequestParam(required = false) List<Long> cardIds) {
+        return ResponseEntity.ok(cardService.getAudioStatus(deckId, cardIds));
+    }
+
+    @PostMapping("/{cardId}/audio/retry")
+    public ResponseEntity<CardAudioStatusDTO> retryCardAudio(
+            @PathVariable Long deckId,
+            @PathVariable Long cardId) {
+        return ResponseEntity.ok(cardService.retryCardAudio(deckId, cardId));
+    }
+
     @PostMapping("/{cardId}/review")
     public ResponseEntity<CardDTO> reviewCard(
             @PathVariable Long deckId,
@@ -69,6 +89,14 @@ public class CardController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<Map<String, Integer>> bulkDeleteCards(
+            @PathVariable Long deckId,
+            @RequestBody @Valid BulkDeleteCardsRequest request) {
+        int deletedCount = cardService.deleteCards(deckId, request.getCardIds());
+        return ResponseEntity.ok(Map.of("deletedCount", deletedCount));
+    }
+
     @PostMapping("/create-from-translations")
     public ResponseEntity<BulkCreateCardsResponse> createCardsFromTranslations(
             @PathVariable Long deckId,
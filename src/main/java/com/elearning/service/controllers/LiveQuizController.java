@@ -0,0 +1,110 @@
+package com.elearning.service.controllers;
+
+import com.elearning.service.dtos.CreateLiveQuizRoomRequest;
+import com.elearning.service.dtos.LiveQuizRoomDTO;
+import com.elearning.service.dtos.base.ResponseDTO;
+import com.elearning.service.services.LiveQuizService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller quản lý phòng quiz trực tiếp (tạo, bắt đầu, kết thúc).
+ * Tham gia phòng, nhận câu hỏi và trả lời đi qua WebSocket (xem LiveQuizSocketController)
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/live-quiz/rooms")
+@RequiredArgsConstructor
+public class LiveQuizController {
+
+    private final LiveQuizService liveQuizService;
+
+    /**
+     * Host tạo phòng quiz trực tiếp từ deck của mình
+     * 
+     * @param request Deck, số câu hỏi và thời gian mỗi câu
+     * @return ResponseEntity chứa mã phòng và topic để theo dõi
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<LiveQuizRoomDTO>> createRoom(@Valid @RequestBody CreateLiveQuizRoomRequest request) {
+        log.info("API: Tạo phòng live quiz cho deck ID: {}", request.getDeckId());
+        
+        try {
+            LiveQuizRoomDTO room = liveQuizService.createRoom(request);
+            return ResponseEntity.ok(ResponseDTO.success("Tạo phòng thành công", room));
+            
+        } catch (IllegalStateException e) {
+            log.warn("Không thể tạo phòng live quiz: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ResponseDTO.error("Không thể tạo phòng: " + e.getMessage()));
+            
+        } catch (Exception e) {
+            log.error("Lỗi khi tạo phòng live quiz: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(ResponseDTO.error("Lỗi hệ thống: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Lấy trạng thái phòng (phòng chờ, kết nối lại)
+     * 
+     * @param roomCode Mã phòng
+     * @return ResponseEntity chứa trạng thái phòng
+     */
+    @GetMapping("/{roomCode}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<LiveQuizRoomDTO>> getRoom(@PathVariable String roomCode) {
+        try {
+            return ResponseEntity.ok(ResponseDTO.success("Lấy thông tin phòng thành công", liveQuizService.getRoom(roomCode)));
+            
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ResponseDTO.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Host bắt đầu phòng: server mở câu hỏi đầu tiên và tự chuyển câu theo thời gian
+     * 
+     * @param roomCode Mã phòng
+     * @return ResponseEntity chứa trạng thái phòng
+     */
+    @PostMapping("/{roomCode}/start")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<LiveQuizRoomDTO>> startRoom(@PathVariable String roomCode) {
+        log.info("API: Bắt đầu phòng live quiz {}", roomCode);
+        
+        try {
+            return ResponseEntity.ok(ResponseDTO.success("Bắt đầu phòng thành công", liveQuizService.startRoom(roomCode)));
+            
+        } catch (IllegalStateException e) {
+            log.warn("Không thể bắt đầu phòng {}: {}", roomCode, e.getMessage());
+            return ResponseEntity.badRequest().body(ResponseDTO.error("Không thể bắt đầu phòng: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Host kết thúc phòng sớm
+     * 
+     * @param roomCode Mã phòng
+     * @return ResponseEntity xác nhận
+     */
+    @PostMapping("/{roomCode}/close")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<Void>> closeRoom(@PathVariable String roomCode) {
+        log.info("API: Kết thúc phòng live quiz {}", roomCode);
+        
+        try {
+            liveQuizService.closeRoom(roomCode);
+            return ResponseEntity.ok(ResponseDTO.success("Đã kết thúc phòng", null));
+            
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ResponseDTO.error(e.getMessage()));
+        }
+    }
+}
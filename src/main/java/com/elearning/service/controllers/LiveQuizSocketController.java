@@ -0,0 +1,74 @@
+package com.elearning.service.controllers;
+
+import com.elearning.service.dtos.LiveQuizAnswerRequest;
+import com.elearning.service.dtos.LiveQuizEventDTO;
+import com.elearning.service.services.LiveQuizService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * STOMP Controller cho người chơi trong phòng quiz trực tiếp.
+ * 
+ * Client gửi tới /app/live-quiz/{roomCode}/join và /app/live-quiz/{roomCode}/answer,
+ * nhận phản hồi riêng ở /user/queue/live-quiz và sự kiện chung ở /topic/live-quiz/{roomCode}
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class LiveQuizSocketController {
+
+    private final LiveQuizService liveQuizService;
+
+    /**
+     * Tham gia phòng; trả về trạng thái phòng hiện tại (kể cả câu hỏi đang mở)
+     */
+    @MessageMapping("/live-quiz/{roomCode}/join")
+    @SendToUser(value = "/queue/live-quiz", broadcast = false)
+    public LiveQuizEventDTO join(@DestinationVariable String roomCode, Principal principal) {
+        log.info("WS: {} tham gia phòng live quiz {}", principal.getName(), roomCode);
+        
+        return LiveQuizEventDTO.builder()
+                .type("JOINED")
+                .roomCode(roomCode)
+                .serverTime(System.currentTimeMillis())
+                .payload(liveQuizService.join(roomCode, principal.getName()))
+                .build();
+    }
+
+    /**
+     * Gửi câu trả lời cho câu hỏi đang mở
+     */
+    @MessageMapping("/live-quiz/{roomCode}/answer")
+    @SendToUser(value = "/queue/live-quiz", broadcast = false)
+    public LiveQuizEventDTO answer(@DestinationVariable String roomCode,
+                                   @Payload LiveQuizAnswerRequest answer,
+                                   Principal principal) {
+        return liveQuizService.submitAnswer(roomCode, principal.getName(), answer);
+    }
+
+    /**
+     * Lỗi nghiệp vụ được gửi riêng cho người gửi
+     */
+    @MessageExceptionHandler({IllegalArgumentException.class, IllegalStateException.class})
+    @SendToUser(value = "/queue/live-quiz", broadcast = false)
+    public LiveQuizEventDTO handleError(RuntimeException e) {
+        log.debug("WS: Lỗi live quiz: {}", e.getMessage());
+        
+        return LiveQuizEventDTO.builder()
+                .type("ERROR")
+                .serverTime(System.currentTimeMillis())
+                .payload(e.getMessage())
+                .build();
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * REST Controller xử lý các API liên quan đến Quiz Recognition
  * 
@@ -28,15 +30,18 @@ public class QuizController {
      * Bắt đầu quiz mới cho deck
      * 
      * @param deckId ID của deck cần quiz
+     * @param questionCount Số câu hỏi tối đa (không bắt buộc); thẻ yếu được ưu tiên
      * @return ResponseEntity chứa câu hỏi đầu tiên
      */
     @PostMapping("/start")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<ResponseDTO<QuizQuestionDTO>> startQuiz(@PathVariable Long deckId) {
+    public ResponseEntity<ResponseDTO<QuizQuestionDTO>> startQuiz(
+            @PathVariable Long deckId,
+            @RequestParam(required = false) Integer questionCount) {
         log.info("API: Bắt đầu quiz cho deck ID: {}", deckId);
         
         try {
-            QuizQuestionDTO firstQuestion = quizService.startQuiz(deckId);
+            QuizQuestionDTO firstQuestion = quizService.startQuiz(deckId, questionCount);
             
             ResponseDTO<QuizQuestionDTO> response = ResponseDTO.success(
                 "Bắt đầu quiz thành công", 
@@ -103,6 +108,50 @@ public class QuizController {
         }
     }
 
+    /**
+     * Lấy trước các câu hỏi tiếp theo (kể từ câu hiện tại) để client hiển thị
+     * ngay mà không chờ kết quả submit. Đáp án đúng không được trả về; mỗi câu
+     * kèm answerToken để gửi cùng câu trả lời
+     * 
+     * @param deckId ID của deck
+     * @param count Số câu hỏi cần lấy
+     * @return ResponseEntity chứa danh sách câu hỏi
+     */
+    @GetMapping("/prefetch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<List<QuizQuestionDTO>>> prefetchQuestions(
+            @PathVariable Long deckId,
+            @RequestParam(defaultValue = "5") int count) {
+        log.info("API: Prefetch {} câu hỏi cho deck ID: {}", count, deckId);
+        
+        try {
+            List<QuizQuestionDTO> questions = quizService.prefetchQuestions(deckId, count);
+            
+            ResponseDTO<List<QuizQuestionDTO>> response = ResponseDTO.success(
+                "Lấy trước câu hỏi thành công", 
+                questions
+            );
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Không thể prefetch câu hỏi: {}", e.getMessage());
+            
+            ResponseDTO<List<QuizQuestionDTO>> errorResponse = ResponseDTO.error(
+                "Không thể lấy trước câu hỏi: " + e.getMessage()
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+            
+        } catch (Exception e) {
+            log.error("Lỗi khi prefetch câu hỏi: {}", e.getMessage(), e);
+            
+            ResponseDTO<List<QuizQuestionDTO>> errorResponse = ResponseDTO.error(
+                "Lỗi hệ thống: " + e.getMessage()
+            );
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
     /**
      * Submit câu trả lời cho câu hỏi hiện tại
      * 
@@ -149,6 +198,33 @@ public class QuizController {
         }
     }
 
+    /**
+     * Thống kê tỉ lệ sai quiz của deck và các thẻ khó nhất
+     * 
+     * @param deckId ID của deck
+     * @param limit Số thẻ khó nhất cần lấy
+     * @return ResponseEntity chứa thống kê
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ResponseDTO<QuizDeckStatsDTO>> getQuizStats(
+            @PathVariable Long deckId,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.info("API: Lấy thống kê quiz cho deck ID: {}", deckId);
+        
+        try {
+            QuizDeckStatsDTO stats = quizService.getQuizStats(deckId, limit);
+            return ResponseEntity.ok(ResponseDTO.success("Lấy thống kê quiz thành công", stats));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ResponseDTO.error(e.getMessage()));
+            
+        } catch (Exception e) {
+            log.error("Lỗi khi lấy thống kê quiz: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(ResponseDTO.error("Lỗi hệ thống: " + e.getMessage()));
+        }
+    }
+
     /**
      * Lấy kết quả quiz đã hoàn thành
      * 
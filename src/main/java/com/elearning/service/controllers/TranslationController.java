@@ -1,19 +1,33 @@
 package com.elearning.service.controllers;
 
 import com.elearning.service.dto.BatchTranslateRequest;
+import com.elearning.service.dto.StreamedTranslationDto;
 import com.elearning.service.dto.TranslationResultDto;
 import com.elearning.service.services.AITranslationService;
+import com.elearning.service.services.LanguageDetectionService;
+import com.elearning.service.services.ProviderRouter;
+import com.elearning.service.services.StreamingTranslationService;
+import com.elearning.service.services.TranslationCacheService;
 import com.elearning.service.services.TranslationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/translation")
@@ -23,6 +37,17 @@ public class TranslationController {
 
     private final TranslationService translationService;
     private final AITranslationService aiTranslationService;
+    private final TranslationCacheService translationCacheService;
+    private final StreamingTranslationService streamingTranslationService;
+    private final LanguageDetectionService languageDetectionService;
+    private final ProviderRouter providerRouter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.translation.stream.timeout-seconds:300}")
+    private long streamTimeoutSeconds;
+
+    @Value("${app.provider-router.compare-timeout-ms:10000}")
+    private long compareTimeoutMillis;
 
     /**
      * Test single word translation
@@ -147,6 +172,100 @@ public class TranslationController {
         }
     }
 
+    /**
+     * Batch translate, streaming one JSON object per line (NDJSON) as each chunk finishes
+     */
+    @PostMapping(value = "/batch-translate/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> batchTranslateNdjson(@RequestBody BatchTranslateRequest request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutSeconds * 1000);
+        streamTranslations(request, emitter, results -> {
+            StringBuilder lines = new StringBuilder();
+            for (StreamedTranslationDto result : results) {
+                lines.append(objectMapper.writeValueAsString(result)).append('\n');
+            }
+            emitter.send(lines.toString(), MediaType.APPLICATION_NDJSON);
+        }, emitter::complete);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    /**
+     * Batch translate as Server-Sent Events: a "translation" event per word, then a "done" event
+     */
+    @PostMapping(value = "/batch-translate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter batchTranslateSse(@RequestBody BatchTranslateRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutSeconds * 1000);
+        AtomicInteger sent = new AtomicInteger();
+        streamTranslations(request, emitter, results -> {
+            for (StreamedTranslationDto result : results) {
+                emitter.send(SseEmitter.event().name("translation").data(result, MediaType.APPLICATION_JSON));
+            }
+            sent.addAndGet(results.size());
+        }, () -> {
+            emitter.send(SseEmitter.event().name("done").data(Map.of("count", sent.get()), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    /**
+     * Start a streaming translation writing into {@code emitter}; stops calling providers once the client is gone
+     */
+    private void streamTranslations(BatchTranslateRequest request, ResponseBodyEmitter emitter,
+                                    ResultWriter writer, Finisher finisher) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        List<String> words = request.getWords() != null ? request.getWords() : List.of();
+        String source = request.getSourceLanguage();
+        if (request.isAutoDetectLanguage() || source == null || source.isBlank()) {
+            source = languageDetectionService.detectDominant(words);
+        }
+        String target = request.getTargetLanguage() != null ? request.getTargetLanguage() : "vi";
+
+        streamingTranslationService.translate(words, source, target, request.getContext(), results -> {
+            if (results.isEmpty() || closed.get()) {
+                return;
+            }
+            // Chunks finish on different threads; keep each chunk's lines together
+            synchronized (emitter) {
+                try {
+                    writer.write(results);
+                } catch (IOException | IllegalStateException e) {
+                    closed.set(true);
+                    log.debug("Streaming translation client disconnected: {}", e.getMessage());
+                }
+            }
+        }, closed::get).whenComplete((ignored, error) -> {
+            if (closed.get()) {
+                return;
+            }
+            synchronized (emitter) {
+                if (error != null) {
+                    log.error("Streaming batch translation failed: {}", error.getMessage());
+                    emitter.completeWithError(error);
+                    return;
+                }
+                try {
+                    finisher.finish();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Streaming translation client disconnected before completion: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ResultWriter {
+        void write(List<StreamedTranslationDto> results) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Finisher {
+        void finish() throws IOException;
+    }
+
     /**
      * Compare translation services
      */
@@ -158,30 +277,60 @@ public class TranslationController {
         
         Map<String, Object> response = new HashMap<>();
         Map<String, Object> results = new HashMap<>();
+        Map<String, Object> providers = new LinkedHashMap<>();
         
-        // Test AI Translation
-        try {
-            String aiResult = aiTranslationService.translateWithAI(word, source, target, "");
-            results.put("ai_translation", aiResult);
-        } catch (Exception e) {
-            results.put("ai_translation", "Error: " + e.getMessage());
-        }
+        // Both providers run concurrently; a slow one only loses its own result
+        long start = System.currentTimeMillis();
+        Map<String, ProviderRouter.Outcome<String>> outcomes = providerRouter.fanOut(List.of(
+                new ProviderRouter.Route<>("ai_translation", () -> aiTranslationService.translateWithAI(word, source, target, "")),
+                new ProviderRouter.Route<>("google_translate", () -> translationService.translateText(word, source, target))
+        ), compareTimeoutMillis);
         
-        // Test Google Translate
-        try {
-            String googleResult = translationService.translateText(word, source, target);
-            results.put("google_translate", googleResult);
-        } catch (Exception e) {
-            results.put("google_translate", "Error: " + e.getMessage());
-        }
+        outcomes.forEach((provider, outcome) -> {
+            results.put(provider, outcome.status() == ProviderRouter.Status.OK
+                    ? outcome.value()
+                    : "Error: " + outcome.error());
+            providers.put(provider, providerSummary(outcome));
+        });
         
         response.put("word", word);
         response.put("results", results);
+        response.put("providers", providers);
+        response.put("totalLatencyMs", System.currentTimeMillis() - start);
         response.put("recommendation", "AI Translation is recommended for best quality");
         
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Status and measured latency of one provider in a comparison
+     */
+    private static Map<String, Object> providerSummary(ProviderRouter.Outcome<?> outcome) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("status", outcome.status().name());
+        summary.put("latencyMs", outcome.latencyMillis());
+        if (outcome.error() != null) {
+            summary.put("error", outcome.error());
+        }
+        return summary;
+    }
+
+    /**
+     * Translation cache hit/miss statistics
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(translationCacheService.getStats());
+    }
+
+    /**
+     * Rolling latency/error stats and circuit state of external providers (translation and TTS)
+     */
+    @GetMapping("/providers")
+    public ResponseEntity<Map<String, Object>> providerStats() {
+        return ResponseEntity.ok(providerRouter.getStats());
+    }
+
     /**
      * Health check for translation services
      */
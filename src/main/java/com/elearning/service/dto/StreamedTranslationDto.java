@@ -0,0 +1,19 @@
+package com.elearning.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one translation emitted by the streaming batch-translate endpoint.
+ * Results arrive in completion order; {@code index} is the word's position in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamedTranslationDto {
+    private int index;
+    private String word;
+    private String translation;
+    private Double confidence;
+}
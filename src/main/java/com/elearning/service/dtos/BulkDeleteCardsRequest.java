@@ -0,0 +1,15 @@
+package com.elearning.service.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkDeleteCardsRequest {
+    
+    @NotEmpty(message = "Danh sách thẻ cần xóa không được rỗng")
+    @Size(max = 1000, message = "Tối đa 1000 thẻ trong một lần xóa")
+    private List<Long> cardIds;
+}
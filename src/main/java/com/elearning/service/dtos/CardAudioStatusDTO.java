@@ -0,0 +1,32 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Trạng thái âm thanh của một thẻ (trả về khi poll, và gửi qua WebSocket /user/queue/card-audio)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardAudioStatusDTO {
+    
+    private Long cardId;
+    
+    private Long deckId;
+    
+    /**
+     * PENDING, READY hoặc FAILED
+     */
+    private String audioStatus;
+    
+    private String audioUrl;
+    
+    /**
+     * Số lần tạo âm thanh đã thất bại
+     */
+    private Integer attempts;
+}
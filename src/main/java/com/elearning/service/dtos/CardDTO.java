@@ -12,6 +12,9 @@ public class CardDTO {
     private String backText;
     private String audioUrl;
     
+    // PENDING, READY hoặc FAILED
+    private String audioStatus;
+    
     // Thông tin ôn tập (cho thuật toán SM-2)
     private Integer repetitions;
     private Double easinessFactor;
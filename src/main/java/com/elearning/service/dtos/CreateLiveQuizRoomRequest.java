@@ -0,0 +1,29 @@
+package com.elearning.service.dtos;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Request tạo phòng quiz trực tiếp (live quiz)
+ */
+@Data
+public class CreateLiveQuizRoomRequest {
+    
+    @NotNull(message = "Deck ID không được để trống")
+    private Long deckId;
+    
+    /**
+     * Số câu hỏi (mặc định: toàn bộ deck, giới hạn bởi cấu hình)
+     */
+    @Min(value = 1, message = "Phải có ít nhất 1 câu hỏi")
+    private Integer questionCount;
+    
+    /**
+     * Thời gian trả lời mỗi câu (giây)
+     */
+    @Min(value = 5, message = "Thời gian mỗi câu tối thiểu 5 giây")
+    @Max(value = 120, message = "Thời gian mỗi câu tối đa 120 giây")
+    private Integer questionSeconds;
+}
@@ -0,0 +1,20 @@
+package com.elearning.service.dtos;
+
+import lombok.Data;
+
+/**
+ * Câu trả lời gửi qua WebSocket trong phòng quiz trực tiếp
+ */
+@Data
+public class LiveQuizAnswerRequest {
+    
+    /**
+     * Số thứ tự câu hỏi đang trả lời (1-based)
+     */
+    private Integer questionNumber;
+    
+    /**
+     * Index của đáp án được chọn (0-3)
+     */
+    private Integer selectedAnswerIndex;
+}
@@ -0,0 +1,31 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sự kiện gửi qua WebSocket cho phòng quiz trực tiếp
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveQuizEventDTO {
+    
+    /**
+     * Loại sự kiện: PARTICIPANT_JOINED, QUESTION, PROGRESS, QUESTION_RESULT,
+     * FINISHED, ANSWER_ACCEPTED, YOUR_RESULT, ERROR
+     */
+    private String type;
+    
+    private String roomCode;
+    
+    /**
+     * Đồng hồ server (epoch millis) lúc gửi
+     */
+    private Long serverTime;
+    
+    private Object payload;
+}
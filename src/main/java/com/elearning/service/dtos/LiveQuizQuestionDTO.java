@@ -0,0 +1,37 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Câu hỏi được phát tới mọi người trong phòng quiz trực tiếp.
+ * Không kèm đáp án đúng; thời gian do server quyết định
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveQuizQuestionDTO {
+    
+    private Integer questionNumber;
+    
+    private Integer totalQuestions;
+    
+    private String question;
+    
+    private List<String> options;
+    
+    /**
+     * Thời điểm mở câu hỏi (epoch millis, đồng hồ server)
+     */
+    private Long openedAt;
+    
+    /**
+     * Hạn cuối nhận câu trả lời (epoch millis, đồng hồ server)
+     */
+    private Long deadline;
+}
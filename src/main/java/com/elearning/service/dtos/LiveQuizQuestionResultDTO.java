@@ -0,0 +1,46 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả một câu hỏi trong phòng quiz trực tiếp (phát khi hết giờ)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveQuizQuestionResultDTO {
+    
+    private Integer questionNumber;
+    
+    private Integer correctAnswerIndex;
+    
+    private String correctAnswer;
+    
+    /**
+     * Số người chọn mỗi đáp án
+     */
+    private List<Integer> optionCounts;
+    
+    private Integer answeredCount;
+    
+    /**
+     * Chỉ những người có điểm thay đổi ở câu này (cập nhật bảng điểm tăng dần)
+     */
+    private List<LiveQuizScoreDTO> changes;
+    
+    /**
+     * Top người chơi sau câu này
+     */
+    private List<LiveQuizScoreDTO> leaderboard;
+    
+    /**
+     * Thời điểm mở câu tiếp theo (null nếu đã hết câu)
+     */
+    private Long nextQuestionAt;
+}
@@ -0,0 +1,54 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Thông tin phòng quiz trực tiếp (dùng khi tạo, tham gia hoặc kết nối lại)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveQuizRoomDTO {
+    
+    private String roomCode;
+    
+    private Long deckId;
+    
+    private String deckName;
+    
+    private String hostName;
+    
+    /**
+     * Trạng thái phòng: WAITING, QUESTION, REVEAL, FINISHED
+     */
+    private String status;
+    
+    private Integer totalQuestions;
+    
+    private Integer questionSeconds;
+    
+    private Integer participantCount;
+    
+    /**
+     * Topic STOMP để nhận sự kiện của phòng
+     */
+    private String topic;
+    
+    /**
+     * Câu hỏi đang mở (nếu có)
+     */
+    private LiveQuizQuestionDTO currentQuestion;
+    
+    private List<LiveQuizScoreDTO> leaderboard;
+    
+    /**
+     * Đồng hồ server (epoch millis) để client tính độ lệch thời gian
+     */
+    private Long serverTime;
+}
@@ -0,0 +1,29 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một dòng trên bảng điểm phòng quiz trực tiếp
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveQuizScoreDTO {
+    
+    private String displayName;
+    
+    private Integer score;
+    
+    /**
+     * Điểm nhận được ở câu vừa kết thúc
+     */
+    private Integer gained;
+    
+    private Integer rank;
+    
+    private Integer correctAnswers;
+}
@@ -18,7 +18,7 @@ import lombok.NoArgsConstructor;
 public class QuizAnswerDTO {
     
     /**
-     * ID của thẻ được trả lời
+     * ID của thẻ được trả lời (tùy chọn, nếu có phải khớp với token)
      */
     private Long cardId;
     
@@ -27,6 +27,12 @@ public class QuizAnswerDTO {
      */
     private Integer selectedAnswerIndex;
     
+    /**
+     * Token của câu hỏi (nhận kèm mỗi câu hỏi), bắt buộc. Server dùng token
+     * để xác định câu hỏi được trả lời
+     */
+    private String answerToken;
+    
     /**
      * Thời gian trả lời (milliseconds) - có thể dùng sau này
      */
@@ -0,0 +1,40 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thống kê quiz của một thẻ (dùng cho danh sách thẻ khó nhất)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizCardStatsDTO {
+    
+    private Long cardId;
+    
+    private String front;
+    
+    private String back;
+    
+    private Integer attempts;
+    
+    private Integer errors;
+    
+    /**
+     * Tỉ lệ sai toàn thời gian (0-1)
+     */
+    private Double errorRate;
+    
+    /**
+     * Tỉ lệ sai gần đây, ưu tiên các lần trả lời mới (0-1)
+     */
+    private Double recentErrorRate;
+    
+    private LocalDateTime lastAnsweredAt;
+}
@@ -0,0 +1,42 @@
+package com.elearning.service.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Thống kê quiz của một deck
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizDeckStatsDTO {
+    
+    private Long deckId;
+    
+    private Integer attempts;
+    
+    private Integer errors;
+    
+    /**
+     * Tỉ lệ sai toàn thời gian (0-1)
+     */
+    private Double errorRate;
+    
+    /**
+     * Tỉ lệ sai gần đây (0-1)
+     */
+    private Double recentErrorRate;
+    
+    private LocalDateTime lastAnsweredAt;
+    
+    /**
+     * Các thẻ có tỉ lệ sai gần đây cao nhất
+     */
+    private List<QuizCardStatsDTO> hardestCards;
+}
@@ -46,7 +46,8 @@ public class QuizQuestionDTO {
     private List<String> options;
     
     /**
-     * Index của đáp án đúng trong danh sách options (0-3)
+     * Token gửi kèm câu trả lời cho câu hỏi này (opaque, server kiểm tra).
+     * Đáp án đúng chỉ được trả về sau khi submit (QuizAnswerResultDTO)
      */
-    private Integer correctAnswerIndex;
+    private String answerToken;
 }
\ No newline at end of file
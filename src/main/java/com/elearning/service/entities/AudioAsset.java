@@ -0,0 +1,80 @@
+package com.elearning.service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * File âm thanh đã tạo, tra theo hash của (văn bản chuẩn hóa, ngôn ngữ, giọng, provider).
+ * Cùng một từ với cùng ngôn ngữ/giọng chỉ được tổng hợp và lưu một lần, dùng chung giữa các thẻ.
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "audio_assets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_audio_assets_hash", columnNames = "content_hash"),
+    @UniqueConstraint(name = "uk_audio_assets_file", columnNames = "file_name")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioAsset {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * SHA-256 (hex) của khóa đã chuẩn hóa
+     */
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "file_name", nullable = false, length = 120)
+    private String fileName;
+
+    /**
+     * Dịch vụ TTS đã tạo file (google_neural, openai, responsive_voice)
+     */
+    @Column(name = "provider", nullable = false, length = 30)
+    private String provider;
+
+    @Column(name = "language", nullable = false, length = 10)
+    private String language;
+
+    @Column(name = "voice", nullable = false, length = 30)
+    private String voice;
+
+    @Column(name = "source_text", nullable = false, columnDefinition = "TEXT")
+    private String sourceText;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    /**
+     * Segment chứa dữ liệu (null: file riêng trong thư mục audio)
+     */
+    @Column(name = "segment_id")
+    private Integer segment;
+
+    /**
+     * Vị trí bắt đầu dữ liệu trong segment; độ dài là sizeBytes
+     */
+    @Column(name = "segment_offset")
+    private Long segmentOffset;
+
+    /**
+     * Số thẻ đang dùng file này
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -41,6 +41,16 @@ public class Card {
     @Column(name = "audio_url", length = 500)
     private String audioUrl;
 
+    /**
+     * Trạng thái tạo âm thanh nền; null với thẻ cũ (coi như READY)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "audio_status", length = 16)
+    private AudioStatus audioStatus;
+
+    @Column(name = "audio_attempts")
+    private Integer audioAttempts;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "deck_id", nullable = false)
     private Deck deck;
@@ -65,4 +75,13 @@ public class Card {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+
+    /**
+     * Enum cho trạng thái âm thanh của thẻ
+     */
+    public enum AudioStatus {
+        PENDING,    // Đang chờ/đang tạo âm thanh
+        READY,      // Đã có audioUrl
+        FAILED      // Hết số lần thử, không có âm thanh
+    }
 }
@@ -14,7 +14,9 @@ import java.util.List;
  * @version 1.0.0
  */
 @Entity
-@Table(name = "decks")
+@Table(name = "decks", indexes = {
+    @Index(name = "idx_decks_deleted_at", columnList = "deleted_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -50,6 +52,12 @@ public class Deck {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Tombstone: thời điểm bộ thẻ bị xóa. Dữ liệu liên quan được dọn dẹp bởi job nền
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,71 @@
+package com.elearning.service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Nhật ký câu trả lời quiz (chỉ ghi thêm, không sửa).
+ * 
+ * Mỗi câu trả lời là một dòng; các cột tham chiếu là ID thuần (không khai báo
+ * quan hệ) để việc ghi không phải load entity liên quan.
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "quiz_answer_log", indexes = {
+    @Index(name = "idx_quiz_answer_log_card", columnList = "card_id, answered_at"),
+    @Index(name = "idx_quiz_answer_log_user_deck", columnList = "user_id, deck_id, answered_at"),
+    @Index(name = "idx_quiz_answer_log_session", columnList = "session_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizAnswerLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deck_id", nullable = false)
+    private Long deckId;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    /**
+     * Số thứ tự câu hỏi trong session (1-based)
+     */
+    @Column(name = "question_number", nullable = false)
+    private Integer questionNumber;
+
+    /**
+     * Index đáp án user đã chọn (0-3)
+     */
+    @Column(name = "selected_index", nullable = false)
+    private Byte selectedIndex;
+
+    @Column(name = "is_correct", nullable = false)
+    private Boolean correct;
+
+    /**
+     * Thời gian trả lời do client gửi (milliseconds, có thể null)
+     */
+    @Column(name = "response_time_ms")
+    private Integer responseTimeMs;
+
+    @Column(name = "answered_at", nullable = false)
+    private LocalDateTime answeredAt;
+}
@@ -0,0 +1,61 @@
+package com.elearning.service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thống kê tỉ lệ sai quiz theo từng thẻ, cập nhật tăng dần mỗi câu trả lời
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "quiz_card_stats", indexes = {
+    @Index(name = "idx_quiz_card_stats_deck_rate", columnList = "deck_id, recent_error_rate"),
+    @Index(name = "idx_quiz_card_stats_user", columnList = "user_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizCardStats {
+
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    /**
+     * Chủ sở hữu deck của thẻ
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deck_id", nullable = false)
+    private Long deckId;
+
+    /**
+     * Tổng số lần trả lời
+     */
+    @Column(name = "attempt_count", nullable = false)
+    private Integer attempts;
+
+    /**
+     * Tổng số lần trả lời sai
+     */
+    @Column(name = "error_count", nullable = false)
+    private Integer errors;
+
+    /**
+     * Tỉ lệ sai gần đây (trung bình trượt hàm mũ, 0-1)
+     */
+    @Column(name = "recent_error_rate", nullable = false)
+    private Double recentErrorRate;
+
+    @Column(name = "last_answered_at", nullable = false)
+    private LocalDateTime lastAnsweredAt;
+}
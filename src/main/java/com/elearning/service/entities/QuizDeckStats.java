@@ -0,0 +1,43 @@
+package com.elearning.service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thống kê tỉ lệ sai quiz theo deck, cập nhật tăng dần mỗi câu trả lời
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "quiz_deck_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizDeckStats {
+
+    @Id
+    @Column(name = "deck_id")
+    private Long deckId;
+
+    @Column(name = "attempt_count", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "error_count", nullable = false)
+    private Integer errors;
+
+    /**
+     * Tỉ lệ sai gần đây (trung bình trượt hàm mũ, 0-1)
+     */
+    @Column(name = "recent_error_rate", nullable = false)
+    private Double recentErrorRate;
+
+    @Column(name = "last_answered_at", nullable = false)
+    private LocalDateTime lastAnsweredAt;
+}
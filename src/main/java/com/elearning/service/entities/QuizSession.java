@@ -63,22 +63,25 @@ public class QuizSession {
     private Integer totalQuestions;
 
     /**
-     * Danh sách ID các thẻ theo thứ tự quiz (JSON array)
+     * Danh sách ID các thẻ theo thứ tự quiz (JSON array).
+     * Chỉ còn dùng để đọc session cũ; session mới lưu thứ tự thẻ trong questionPlan
      */
     @Column(name = "card_ids", columnDefinition = "TEXT")
     private String cardIds;
 
     /**
-     * Options của câu hỏi hiện tại (JSON array)
+     * Kế hoạch câu hỏi dựng sẵn khi bắt đầu quiz: options và index đáp án đúng
+     * của tất cả câu hỏi, mã hóa nhị phân (xem QuizPlan)
      */
-    @Column(name = "current_options", columnDefinition = "TEXT")
-    private String currentOptions;
+    @Column(name = "question_plan", columnDefinition = "MEDIUMBLOB")
+    private byte[] questionPlan;
 
     /**
-     * Index đáp án đúng của câu hỏi hiện tại
+     * Bitset các câu trả lời đúng theo thứ tự câu hỏi (bit i = câu i + 1).
+     * Câu đã trả lời mà bit bằng 0 là câu sai
      */
-    @Column(name = "current_correct_answer_index")
-    private Integer currentCorrectAnswerIndex;
+    @Column(name = "correct_mask", columnDefinition = "BLOB")
+    private byte[] correctMask;
 
     /**
      * Số câu trả lời đúng
@@ -95,13 +98,13 @@ public class QuizSession {
     private Integer wrongAnswers = 0;
 
     /**
-     * Danh sách ID thẻ trả lời đúng (JSON array)
+     * Danh sách ID thẻ trả lời đúng (JSON array) - chỉ còn dùng cho session cũ
      */
     @Column(name = "correct_card_ids", columnDefinition = "TEXT")
     private String correctCardIds;
 
     /**
-     * Danh sách ID thẻ trả lời sai (JSON array)
+     * Danh sách ID thẻ trả lời sai (JSON array) - chỉ còn dùng cho session cũ
      */
     @Column(name = "wrong_card_ids", columnDefinition = "TEXT")
     private String wrongCardIds;
@@ -0,0 +1,60 @@
+package com.elearning.service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản dịch đã lưu, tra theo hash của (văn bản chuẩn hóa, ngôn ngữ nguồn, ngôn ngữ đích, ngữ cảnh)
+ * 
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "translation_cache", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_translation_cache_key", columnNames = "cache_key")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranslationCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * SHA-256 (hex) của khóa đã chuẩn hóa
+     */
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey;
+
+    @Column(name = "source_language", nullable = false, length = 10)
+    private String sourceLanguage;
+
+    @Column(name = "target_language", nullable = false, length = 10)
+    private String targetLanguage;
+
+    /**
+     * Văn bản gốc đã chuẩn hóa (để tra cứu/thống kê, không dùng làm khóa)
+     */
+    @Column(name = "source_text", nullable = false, columnDefinition = "TEXT")
+    private String sourceText;
+
+    @Column(name = "translated_text", nullable = false, columnDefinition = "TEXT")
+    private String translatedText;
+
+    /**
+     * Dịch vụ đã tạo ra bản dịch (GEMINI, GOOGLE)
+     */
+    @Column(name = "provider", nullable = false, length = 20)
+    private String provider;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
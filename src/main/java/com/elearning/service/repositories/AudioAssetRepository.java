@@ -0,0 +1,88 @@
+package com.elearning.service.repositories;
+
+import com.elearning.service.entities.AudioAsset;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho file âm thanh định địa chỉ theo nội dung
+ */
+@Repository
+public interface AudioAssetRepository extends JpaRepository<AudioAsset, Long> {
+
+    Optional<AudioAsset> findByFileName(String fileName);
+
+    List<AudioAsset> findByContentHashIn(Collection<String> contentHashes);
+
+    Optional<AudioAsset> findByContentHash(String contentHash);
+
+    /**
+     * Cộng/trừ số thẻ tham chiếu, không xuống dưới 0
+     */
+    @Modifying
+    @Query("UPDATE AudioAsset a SET a.refCount = CASE WHEN a.refCount + :delta < 0 THEN 0 ELSE a.refCount + :delta END " +
+           "WHERE a.fileName = :fileName")
+    int adjustRefCount(@Param("fileName") String fileName, @Param("delta") int delta);
+
+    @Modifying
+    @Query("DELETE FROM AudioAsset a WHERE a.fileName = :fileName")
+    int deleteByFileName(@Param("fileName") String fileName);
+
+    /**
+     * Chỉ xóa khi không còn thẻ nào giữ tham chiếu
+     */
+    @Modifying
+    @Query("DELETE FROM AudioAsset a WHERE a.fileName = :fileName AND a.refCount = 0")
+    int deleteUnreferenced(@Param("fileName") String fileName);
+
+    /**
+     * Đưa số tham chiếu bị lệch về 0 (không còn thẻ nào trỏ tới file)
+     */
+    @Modifying
+    @Query("UPDATE AudioAsset a SET a.refCount = 0 WHERE a.fileName = :fileName AND a.refCount > 0")
+    int resetRefCount(@Param("fileName") String fileName);
+
+    List<AudioAsset> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @Query("SELECT a.fileName FROM AudioAsset a WHERE a.fileName IN :fileNames")
+    List<String> findExistingFileNames(@Param("fileNames") Collection<String> fileNames);
+
+    List<AudioAsset> findBySegment(Integer segment);
+
+    /**
+     * Dung lượng còn dùng của mỗi segment: [segment, tổng sizeBytes]
+     */
+    @Query("SELECT a.segment, COALESCE(SUM(a.sizeBytes), 0) FROM AudioAsset a WHERE a.segment IS NOT NULL GROUP BY a.segment")
+    List<Object[]> sumSizeBySegment();
+
+    /**
+     * Chuyển dữ liệu sang vị trí mới khi nén segment; không làm gì nếu bản ghi đã bị xóa hoặc đã chuyển
+     */
+    @Modifying
+    @Query("UPDATE AudioAsset a SET a.segment = :newSegment, a.segmentOffset = :newOffset " +
+           "WHERE a.id = :id AND a.segment = :oldSegment AND a.segmentOffset = :oldOffset")
+    int relocate(@Param("id") Long id,
+                 @Param("oldSegment") Integer oldSegment, @Param("oldOffset") Long oldOffset,
+                 @Param("newSegment") Integer newSegment, @Param("newOffset") Long newOffset);
+
+    /**
+     * Số file và dung lượng theo nhóm: [provider, language, voice, count, sum sizeBytes]
+     */
+    @Query("SELECT a.provider, a.language, a.voice, COUNT(a), COALESCE(SUM(a.sizeBytes), 0) FROM AudioAsset a " +
+           "GROUP BY a.provider, a.language, a.voice")
+    List<Object[]> summarizeByProviderLanguageVoice();
+
+    /**
+     * [số file, tổng dung lượng, tổng số tham chiếu]
+     */
+    @Query("SELECT COUNT(a), COALESCE(SUM(a.sizeBytes), 0), COALESCE(SUM(a.refCount), 0) FROM AudioAsset a")
+    List<Object[]> summarize();
+}
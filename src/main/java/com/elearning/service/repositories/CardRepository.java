@@ -2,12 +2,15 @@ package com.elearning.service.repositories;
 
 import com.elearning.service.entities.Card;
 import com.elearning.service.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -20,4 +23,94 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     
     // Delete methods for cascade deletion
     void deleteByDeckId(Long deckId);
+    
+    @Query("SELECT c.id FROM Card c WHERE c.deck.id = :deckId ORDER BY c.id")
+    List<Long> findIdsByDeckId(@Param("deckId") Long deckId, Pageable pageable);
+    
+    @Query("SELECT c.id FROM Card c WHERE c.deck.id = :deckId AND c.id IN :cardIds")
+    List<Long> findIdsByDeckIdAndIdIn(@Param("deckId") Long deckId, @Param("cardIds") List<Long> cardIds);
+    
+    /**
+     * Khóa các thẻ sắp xóa và đọc audio URL mới nhất của chúng: [audioUrl]
+     *
+     * Locking read, so an audio completion committed in the meantime is seen (and a later
+     * one waits for the delete, then finds no card to update).
+     */
+    @Query(value = "SELECT audio_url FROM cards WHERE id IN (:cardIds) FOR UPDATE", nativeQuery = true)
+    List<String> lockAudioUrlsByIdIn(@Param("cardIds") List<Long> cardIds);
+    
+    @Query("SELECT DISTINCT c.audioUrl FROM Card c WHERE c.audioUrl IN :audioUrls")
+    List<String> findReferencedAudioUrls(@Param("audioUrls") List<String> audioUrls);
+    
+    @Query("SELECT COUNT(c) FROM Card c WHERE c.audioUrl IS NOT NULL")
+    long countWithAudioUrl();
+    
+    /**
+     * Audio URL của thẻ theo thứ tự id, từng trang sau afterId: [cardId, audioUrl]
+     */
+    @Query("SELECT c.id, c.audioUrl FROM Card c WHERE c.id > :afterId AND c.audioUrl IS NOT NULL ORDER BY c.id")
+    List<Object[]> findAudioUrlsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Thẻ đang chờ âm thanh có ID &gt; afterId: [cardId, front, deckId, deckLanguage, ownerEmail, attempts]
+     */
+    @Query("SELECT c.id, c.front, d.id, d.language, u.email, c.audioAttempts FROM Card c JOIN c.deck d JOIN d.user u " +
+           "WHERE c.audioStatus = :status AND c.id > :afterId ORDER BY c.id")
+    List<Object[]> findAudioJobsByStatus(@Param("status") Card.AudioStatus status, @Param("afterId") Long afterId,
+                                         Pageable pageable);
+    
+    List<Card> findAllByDeckIdAndIdIn(Long deckId, List<Long> cardIds);
+    
+    /**
+     * Gắn âm thanh vừa tạo; chỉ khi thẻ vẫn còn và vẫn đang chờ
+     */
+    /**
+     * Audio job of one card, same columns as findAudioJobsByStatus
+     */
+    @Query("SELECT c.id, c.front, d.id, d.language, u.email, c.audioAttempts FROM Card c JOIN c.deck d JOIN d.user u " +
+           "WHERE c.id = :cardId AND c.audioStatus = :status")
+    List<Object[]> findAudioJobByIdAndStatus(@Param("cardId") Long cardId, @Param("status") Card.AudioStatus status);
+    
+    /**
+     * Fill in generated audio, only if the card is still waiting for it and its front is still the synthesized text
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.audioUrl = :audioUrl, c.audioStatus = :ready " +
+           "WHERE c.id = :cardId AND c.audioStatus = :pending AND c.front = :text")
+    int completeAudio(@Param("cardId") Long cardId, @Param("text") String text, @Param("audioUrl") String audioUrl,
+                      @Param("pending") Card.AudioStatus pending, @Param("ready") Card.AudioStatus ready);
+    
+    @Modifying
+    @Query("UPDATE Card c SET c.audioStatus = :to, c.audioAttempts = :attempts " +
+           "WHERE c.id = :cardId AND c.audioStatus = :from AND c.front = :text")
+    int updateAudioStatusForText(@Param("cardId") Long cardId, @Param("text") String text,
+                                 @Param("from") Card.AudioStatus from, @Param("to") Card.AudioStatus to,
+                                 @Param("attempts") int attempts);
+    
+    /**
+     * Edit the text of a card without touching its audio columns (written concurrently by the audio worker)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Card c SET c.front = :front, c.back = :back, c.updatedAt = :now WHERE c.id = :cardId")
+    int updateText(@Param("cardId") Long cardId, @Param("front") String front, @Param("back") String back,
+                   @Param("now") LocalDateTime now);
+    
+    /**
+     * Edit the text of a card whose front changed: its audio is dropped and generated again
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Card c SET c.front = :front, c.back = :back, c.updatedAt = :now, " +
+           "c.audioUrl = NULL, c.audioStatus = :pending, c.audioAttempts = 0 WHERE c.id = :cardId")
+    int updateTextAndResetAudio(@Param("cardId") Long cardId, @Param("front") String front, @Param("back") String back,
+                                @Param("now") LocalDateTime now, @Param("pending") Card.AudioStatus pending);
+    
+    @Modifying
+    @Query("UPDATE Card c SET c.audioStatus = :to, c.audioAttempts = :attempts " +
+           "WHERE c.id = :cardId AND c.audioStatus = :from")
+    int updateAudioStatus(@Param("cardId") Long cardId, @Param("from") Card.AudioStatus from,
+                          @Param("to") Card.AudioStatus to, @Param("attempts") int attempts);
+    
+    @Modifying
+    @Query("DELETE FROM Card c WHERE c.id IN :cardIds")
+    int deleteAllByIdIn(@Param("cardIds") List<Long> cardIds);
 }
@@ -3,22 +3,43 @@ package com.elearning.service.repositories;
 import com.elearning.service.entities.Deck;
 import com.elearning.service.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DeckRepository extends JpaRepository<Deck, Long> {
-    
+
     List<Deck> findAllByUserId(Long userId);
-    
+
+    List<Deck> findAllByUserIdAndDeletedAtIsNull(Long userId);
+
+    Optional<Deck> findByIdAndDeletedAtIsNull(Long id);
+
     long countByUser(User user);
-    
+
+    long countByUserAndDeletedAtIsNull(User user);
+
     @Query("SELECT COUNT(DISTINCT d) FROM Deck d WHERE d.user = :user AND EXISTS (SELECT 1 FROM Card c JOIN UserCardProgress ucp ON c.id = ucp.card.id WHERE c.deck = d AND ucp.user = :user AND ucp.repetitions > 0)")
     long countStudyingDecksByUser(@Param("user") User user);
-    
+
     @Query("SELECT COUNT(DISTINCT d) FROM Deck d WHERE d.user = :user AND NOT EXISTS (SELECT 1 FROM Card c WHERE c.deck = d AND NOT EXISTS (SELECT 1 FROM UserCardProgress ucp WHERE ucp.card = c AND ucp.user = :user AND ucp.easeFactor >= 2.5 AND ucp.interval >= 30))")
     long countConqueredDecksByUser(@Param("user") User user);
+
+    // Tombstone methods for asynchronous deck deletion
+    @Modifying
+    @Query("UPDATE Deck d SET d.deletedAt = :deletedAt WHERE d.id = :deckId AND d.deletedAt IS NULL")
+    int markDeleted(@Param("deckId") Long deckId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query("SELECT d.id FROM Deck d WHERE d.deletedAt IS NOT NULL AND d.deletedAt < :before ORDER BY d.deletedAt")
+    List<Long> findTombstonedDeckIds(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM Deck d WHERE d.id = :deckId AND d.deletedAt IS NOT NULL")
+    int deleteTombstoned(@Param("deckId") Long deckId);
 }
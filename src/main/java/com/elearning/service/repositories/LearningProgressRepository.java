@@ -2,6 +2,7 @@ package com.elearning.service.repositories;
 
 import com.elearning.service.entities.LearningProgress;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -50,4 +51,11 @@ public interface LearningProgressRepository extends JpaRepository<LearningProgre
      */
     @Query("SELECT AVG(lp.overallProgress) FROM LearningProgress lp WHERE lp.user.id = :userId")
     Double getAverageProgressByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Delete all learning progress for a deck (used by deck cleanup)
+     */
+    @Modifying
+    @Query("DELETE FROM LearningProgress lp WHERE lp.deck.id = :deckId")
+    int deleteByDeckId(@Param("deckId") Long deckId);
 }
@@ -0,0 +1,30 @@
+package com.elearning.service.repositories;
+
+import com.elearning.service.entities.QuizAnswerLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository cho nhật ký câu trả lời quiz
+ */
+@Repository
+public interface QuizAnswerLogRepository extends JpaRepository<QuizAnswerLog, Long> {
+
+    /**
+     * Câu trả lời của một session theo thứ tự câu hỏi
+     */
+    List<QuizAnswerLog> findBySessionIdOrderByQuestionNumberAsc(Long sessionId);
+
+    @Modifying
+    @Query("DELETE FROM QuizAnswerLog l WHERE l.cardId IN :cardIds")
+    int deleteByCardIdIn(@Param("cardIds") List<Long> cardIds);
+
+    @Modifying
+    @Query("DELETE FROM QuizAnswerLog l WHERE l.deckId = :deckId")
+    int deleteByDeckId(@Param("deckId") Long deckId);
+}
@@ -0,0 +1,54 @@
+package com.elearning.service.repositories;
+
+import com.elearning.service.entities.QuizCardStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository cho thống kê quiz theo thẻ
+ */
+@Repository
+public interface QuizCardStatsRepository extends JpaRepository<QuizCardStats, Long> {
+
+    /**
+     * Cộng dồn một câu trả lời vào thống kê của thẻ (không load entity); tạo dòng ở lần
+     * trả lời đầu tiên. Một câu upsert duy nhất nên hai câu trả lời đầu tiên đồng thời
+     * không va chạm khóa chính
+     */
+    @Modifying
+    @Query(value = "INSERT INTO quiz_card_stats (card_id, user_id, deck_id, attempt_count, error_count, recent_error_rate, last_answered_at) " +
+           "VALUES (:cardId, :deckOwnerId, :deckId, 1, :error, :error, :answeredAt) " +
+           "ON DUPLICATE KEY UPDATE attempt_count = attempt_count + 1, error_count = error_count + :error, " +
+           "recent_error_rate = recent_error_rate * :decay + :errorShare, last_answered_at = :answeredAt",
+           nativeQuery = true)
+    int recordAnswer(@Param("cardId") Long cardId, @Param("deckOwnerId") Long deckOwnerId,
+                     @Param("deckId") Long deckId, @Param("error") int error,
+                     @Param("decay") double decay,
+                     @Param("errorShare") double errorShare, @Param("answeredAt") LocalDateTime answeredAt);
+
+    /**
+     * Thẻ khó nhất của deck theo tỉ lệ sai gần đây
+     */
+    @Query("SELECT s FROM QuizCardStats s WHERE s.deckId = :deckId AND s.attempts >= :minAttempts " +
+           "ORDER BY s.recentErrorRate DESC, s.errors DESC")
+    List<QuizCardStats> findHardestByDeckId(@Param("deckId") Long deckId,
+                                            @Param("minAttempts") int minAttempts,
+                                            Pageable pageable);
+
+    /**
+     * Tỉ lệ sai gần đây của mọi thẻ trong các deck của user: [cardId, recentErrorRate]
+     */
+    @Query("SELECT s.cardId, s.recentErrorRate FROM QuizCardStats s WHERE s.userId = :userId AND s.attempts >= :minAttempts")
+    List<Object[]> findErrorRatesByUserId(@Param("userId") Long userId, @Param("minAttempts") int minAttempts);
+
+    @Modifying
+    @Query("DELETE FROM QuizCardStats s WHERE s.cardId IN :cardIds")
+    int deleteByCardIdIn(@Param("cardIds") List<Long> cardIds);
+}
@@ -0,0 +1,35 @@
+package com.elearning.service.repositories;
+
+import com.elearning.service.entities.QuizDeckStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository cho thống kê quiz theo deck
+ */
+@Repository
+public interface QuizDeckStatsRepository extends JpaRepository<QuizDeckStats, Long> {
+
+    /**
+     * Cộng dồn một câu trả lời vào thống kê của deck; tạo dòng ở lần trả lời đầu tiên.
+     * Một câu upsert duy nhất nên hai câu trả lời đầu tiên đồng thời không va chạm khóa chính
+     */
+    @Modifying
+    @Query(value = "INSERT INTO quiz_deck_stats (deck_id, attempt_count, error_count, recent_error_rate, last_answered_at) " +
+           "VALUES (:deckId, 1, :error, :error, :answeredAt) " +
+           "ON DUPLICATE KEY UPDATE attempt_count = attempt_count + 1, error_count = error_count + :error, " +
+           "recent_error_rate = recent_error_rate * :decay + :errorShare, last_answered_at = :answeredAt",
+           nativeQuery = true)
+    int recordAnswer(@Param("deckId") Long deckId, @Param("error") int error,
+                     @Param("decay") double decay,
+                     @Param("errorShare") double errorShare, @Param("answeredAt") LocalDateTime answeredAt);
+
+    @Modifying
+    @Query("DELETE FROM QuizDeckStats s WHERE s.deckId = :deckId")
+    int deleteByDeckId(@Param("deckId") Long deckId);
+}
@@ -4,6 +4,7 @@ import com.elearning.service.entities.QuizSession;
 import com.elearning.service.entities.User;
 import com.elearning.service.entities.Deck;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -38,4 +39,11 @@ public interface QuizSessionRepository extends JpaRepository<QuizSession, Long>
      */
     @Query("SELECT qs FROM QuizSession qs WHERE qs.user = :user AND qs.deck = :deck AND qs.status = 'COMPLETED' ORDER BY qs.completedAt DESC")
     List<QuizSession> findLatestCompletedSessionByUserAndDeck(@Param("user") User user, @Param("deck") Deck deck, Pageable pageable);
+
+    /**
+     * Xóa toàn bộ session quiz của một deck (dùng khi dọn dẹp deck đã xóa)
+     */
+    @Modifying
+    @Query("DELETE FROM QuizSession qs WHERE qs.deck.id = :deckId")
+    int deleteByDeckId(@Param("deckId") Long deckId);
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.elearning.service.repositories;
 
 import com.elearning.service.entities.ReviewHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,11 @@ public interface ReviewHistoryRepository extends JpaRepository<ReviewHistory, Lo
     @Query("SELECT (CAST(COUNT(CASE WHEN rh.isSuccessful = true THEN 1 END) AS double) / CAST(COUNT(rh) AS double)) * 100.0 FROM ReviewHistory rh WHERE rh.user.id = :userId AND rh.reviewDate >= :sinceDate")
     Optional<Double> getRecentAccuracy(@Param("userId") Long userId, @Param("sinceDate") LocalDate sinceDate);
     
-    // Delete methods for cascade deletion
-    void deleteByCardIdIn(List<Long> cardIds);
+    @Query("SELECT rh.card.id, COUNT(rh) FROM ReviewHistory rh WHERE rh.user.id = :userId AND rh.isSuccessful = false AND rh.reviewedAt >= :since GROUP BY rh.card.id")
+    List<Object[]> countRecentFailuresByCard(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+    
+    // Delete methods for cascade deletion (single bulk statement, no entity loading)
+    @Modifying
+    @Query("DELETE FROM ReviewHistory rh WHERE rh.card.id IN :cardIds")
+    int deleteByCardIdIn(@Param("cardIds") List<Long> cardIds);
 }
@@ -4,6 +4,7 @@ import com.elearning.service.entities.SpacedRepetition;
 import com.elearning.service.entities.User;
 import com.elearning.service.entities.SpacedRepetition.LearningPhase;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -171,7 +172,17 @@ public interface SpacedRepetitionRepository extends JpaRepository<SpacedRepetiti
                                   @Param("endOfToday") LocalDateTime endOfToday);
     
     /**
-     * Delete methods for cascade deletion
+     * Weakness signals of every card of a user in one query (quiz ordering):
+     * [cardId, easinessFactor, learningPhase, lastQuality]
      */
-    void deleteByCardIdIn(List<Long> cardIds);
+    @Query("SELECT sr.card.id, sr.easinessFactor, sr.learningPhase, sr.lastQuality FROM SpacedRepetition sr " +
+           "WHERE sr.user.id = :userId")
+    List<Object[]> findWeaknessSignalsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Delete methods for cascade deletion (single bulk statement, no entity loading)
+     */
+    @Modifying
+    @Query("DELETE FROM SpacedRepetition sr WHERE sr.card.id IN :cardIds")
+    int deleteByCardIdIn(@Param("cardIds") List<Long> cardIds);
 }
@@ -0,0 +1,26 @@
+package com.elearning.service.repositories;
+
+import com.elearning.service.entities.TranslationCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho cache bản dịch
+ */
+@Repository
+public interface TranslationCacheRepository extends JpaRepository<TranslationCacheEntry, Long> {
+
+    Optional<TranslationCacheEntry> findByCacheKey(String cacheKey);
+
+    /**
+     * Tra nhiều khóa trong một truy vấn: [cacheKey, translatedText]
+     */
+    @Query("SELECT e.cacheKey, e.translatedText FROM TranslationCacheEntry e WHERE e.cacheKey IN :cacheKeys")
+    List<Object[]> findTranslationsByCacheKeyIn(@Param("cacheKeys") Collection<String> cacheKeys);
+}
@@ -4,6 +4,7 @@ import com.elearning.service.entities.Card;
 import com.elearning.service.entities.User;
 import com.elearning.service.entities.UserCardProgress;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -88,6 +89,27 @@ public interface UserCardProgressRepository extends JpaRepository<UserCardProgre
      */
     void deleteByCard(Card card);
     
+    /**
+     * Xóa tiến độ của nhiều thẻ bằng một câu lệnh DELETE duy nhất
+     * 
+     * @param cardIds Danh sách ID thẻ
+     * @return Số bản ghi đã xóa
+     */
+    @Modifying
+    @Query("DELETE FROM UserCardProgress ucp WHERE ucp.card.id IN :cardIds")
+    int deleteByCardIdIn(@Param("cardIds") List<Long> cardIds);
+    
+    /**
+     * Tín hiệu độ yếu của mọi thẻ của user trong một truy vấn (dùng để sắp thứ tự quiz):
+     * [cardId, easeFactor, totalReviews, correctReviews]
+     * 
+     * @param userId ID người dùng
+     * @return Danh sách mảng giá trị
+     */
+    @Query("SELECT ucp.card.id, ucp.easeFactor, ucp.totalReviews, ucp.correctReviews FROM UserCardProgress ucp " +
+           "WHERE ucp.user.id = :userId")
+    List<Object[]> findWeaknessSignalsByUserId(@Param("userId") Long userId);
+    
     /**
      * Xóa tất cả tiến độ của một người dùng khi user bị xóa
      * 
@@ -44,6 +44,7 @@ public class WebSecurityConfig {
                 .requestMatchers("/api/daily-review/**").permitAll()  // Allow daily review for testing
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers("/public/**").permitAll()  // Allow public test endpoints
+                .requestMatchers("/ws/**").permitAll()  // WebSocket handshake, STOMP CONNECT carries the JWT
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
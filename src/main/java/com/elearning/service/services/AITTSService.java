@@ -9,14 +9,12 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +23,10 @@ public class AITTSService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final AudioAssetService audioAssetService;
+    private final ProviderRateLimiter rateLimiter;
+    private final BatchAudioSynthesizer batchAudioSynthesizer;
+    private final AudioStorageStats audioStorageStats;
 
     @Value("${openai.api.key:}")
     private String openaiApiKey;
@@ -35,14 +37,17 @@ public class AITTSService {
     @Value("${app.audio.storage.path:./audio}")
     private String audioStoragePath;
 
-    @Value("${app.audio.base-url:http://localhost:8080/api/audio}")
-    private String audioBaseUrl;
-
     /**
      * Generate high-quality AI speech using OpenAI TTS
      */
     public String generateAIAudioForText(String text, String language, String voiceType) {
         try {
+            // Same text/language/voice already synthesized: reuse the file, no API call
+            String existingUrl = audioAssetService.findUrl(text, language, voiceType, AudioAssetService.OPENAI);
+            if (existingUrl != null) {
+                return existingUrl;
+            }
+            
             if (openaiApiKey.isEmpty()) {
                 log.warn("OpenAI API key not configured, using fallback TTS");
                 return generateFallbackAudio(text, language);
@@ -52,9 +57,8 @@ public class AITTSService {
             byte[] audioData = callOpenAITTS(text, language, voiceType);
             
             if (audioData != null) {
-                // Save audio file
-                String fileName = saveAudioFile(audioData, text, "openai");
-                return audioBaseUrl + "/" + fileName;
+                // Save under its content address so every card with this word shares it
+                return audioAssetService.store(text, language, voiceType, AudioAssetService.OPENAI, audioData);
             }
 
         } catch (Exception e) {
@@ -85,6 +89,7 @@ public class AITTSService {
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
         
+        rateLimiter.acquire(ProviderRateLimiter.OPENAI_TTS);
         ResponseEntity<byte[]> response = restTemplate.exchange(
                 openaiTTSUrl,
                 HttpMethod.POST,
@@ -142,66 +147,21 @@ public class AITTSService {
      * Generate audio for batch text (multiple cards)
      */
     public Map<String, String> generateBatchAIAudio(List<String> texts, String language, String voiceType) {
-        Map<String, String> audioUrls = new HashMap<>();
-        
-        for (String text : texts) {
-            try {
-                String audioUrl = generateAIAudioForText(text, language, voiceType);
-                if (audioUrl != null) {
-                    audioUrls.put(text, audioUrl);
-                }
-                
-                // Small delay to respect rate limits
-                Thread.sleep(200);
-                
-            } catch (Exception e) {
-                log.error("Error generating batch audio for: {}", text, e);
-                // Continue with other texts
-            }
-        }
-        
-        return audioUrls;
-    }
-
-    /**
-     * Save audio file to storage
-     */
-    private String saveAudioFile(byte[] audioData, String originalText, String provider) throws IOException {
-        // Create directory if not exists
-        Path storagePath = Paths.get(audioStoragePath);
-        if (!Files.exists(storagePath)) {
-            Files.createDirectories(storagePath);
-        }
-        
-        // Generate unique filename
-        String fileName = generateFileName(originalText, provider) + ".mp3";
-        Path filePath = storagePath.resolve(fileName);
-        
-        // Save file
-        Files.write(filePath, audioData);
-        
-        log.info("Saved AI audio file: {} (size: {} bytes)", fileName, audioData.length);
-        return fileName;
+        return streamBatchAIAudio(texts, language, voiceType, (text, audioUrl) -> { }, () -> false).join();
     }
 
     /**
-     * Generate filename for audio file
+     * Generate audio for a batch concurrently, reporting each text as soon as it is done
+     *
+     * @param onResult text and its audio URL (null if it failed); called from worker threads
+     * @param cancelled stops starting new items once true
      */
-    private String generateFileName(String text, String provider) {
-        // Clean text for filename
-        String cleanText = text.replaceAll("[^a-zA-Z0-9\\s]", "")
-                              .replaceAll("\\s+", "_")
-                              .toLowerCase();
-        
-        if (cleanText.length() > 30) {
-            cleanText = cleanText.substring(0, 30);
-        }
-        
-        // Add provider and UUID for uniqueness
-        return String.format("%s_%s_%s", 
-                           provider, 
-                           cleanText, 
-                           UUID.randomUUID().toString().substring(0, 8));
+    public CompletableFuture<Map<String, String>> streamBatchAIAudio(List<String> texts, String language, String voiceType,
+                                                                    BiConsumer<String, String> onResult,
+                                                                    BooleanSupplier cancelled) {
+        // Without an API key only already stored audio can be returned, so no retries
+        return batchAudioSynthesizer.synthesize(ProviderRateLimiter.OPENAI_TTS, texts, !openaiApiKey.isEmpty(),
+                text -> generateAIAudioForText(text, language, voiceType), onResult, cancelled);
     }
 
     /**
@@ -243,28 +203,10 @@ public class AITTSService {
     public Map<String, Object> getAudioStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        try {
-            Path audioPath = Paths.get(audioStoragePath);
-            if (Files.exists(audioPath)) {
-                long totalFiles = Files.list(audioPath).count();
-                long totalSize = Files.walk(audioPath)
-                                     .filter(Files::isRegularFile)
-                                     .mapToLong(path -> {
-                                         try {
-                                             return Files.size(path);
-                                         } catch (IOException e) {
-                                             return 0;
-                                         }
-                                     })
-                                     .sum();
-                
-                stats.put("totalFiles", totalFiles);
-                stats.put("totalSizeMB", totalSize / (1024 * 1024));
-                stats.put("storagePath", audioStoragePath);
-            }
-        } catch (Exception e) {
-            log.error("Error getting audio stats: ", e);
-        }
+        // Counters maintained on write/delete; no directory scan
+        stats.put("totalFiles", audioStorageStats.totalFiles());
+        stats.put("totalSizeMB", audioStorageStats.totalBytes() / (1024 * 1024));
+        stats.put("storagePath", audioStoragePath);
         
         stats.put("aiProvider", openaiApiKey.isEmpty() ? "Fallback TTS" : "OpenAI TTS-HD");
         return stats;
@@ -1,5 +1,7 @@
 package com.elearning.service.services;
 
+import com.elearning.service.utils.BatchTranslationParser;
+import com.elearning.service.utils.SingleFlight;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -23,8 +25,18 @@ import java.util.*;
 @Slf4j
 public class AITranslationService {
 
+    public static final String PROVIDER = "GEMINI";
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final TranslationCacheService translationCacheService;
+    private final BatchTranslationDispatcher batchTranslationDispatcher;
+    private final ProviderRateLimiter providerRateLimiter;
+    private final ProviderRouter providerRouter;
+    
+    // Identical concurrent requests (e.g. a whole class importing the same list) share one Gemini call
+    private final SingleFlight<String> translationFlights = new SingleFlight<>();
+    private final SingleFlight<Map<String, String>> batchFlights = new SingleFlight<>();
 
     @Value("${ai.translation.gemini.api-key:}")
     private String geminiApiKey;
@@ -32,6 +44,12 @@ public class AITranslationService {
     @Value("${ai.translation.gemini.api-url:https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent}")
     private String geminiApiUrl;
 
+    @Value("${app.translation.batch.chunk-size:40}")
+    private int batchChunkSize;
+
+    @Value("${app.translation.batch.missing-retries:1}")
+    private int missingRetries;
+
     /**
      * Translate text using Google Gemini Pro API
      * 
@@ -43,12 +61,22 @@ public class AITranslationService {
      * @throws RuntimeException if Gemini API key is not configured or translation fails
      */
     public String translateWithAI(String text, String sourceLanguage, String targetLanguage, String context) {
-        validateApiKey();
+        String cached = translationCacheService.get(text, sourceLanguage, targetLanguage, context, PROVIDER);
+        if (cached != null) {
+            log.debug("Translation cache hit for '{}' ({} -> {})", text, sourceLanguage, targetLanguage);
+            return cached;
+        }
         
-        log.info("Translating '{}' from {} to {} using Google Gemini Pro API", text, sourceLanguage, targetLanguage);
+        validateApiKey();
         
+        String key = TranslationCacheService.cacheKey(text, sourceLanguage, targetLanguage, context, PROVIDER);
         try {
-            return callGeminiAPI(text, sourceLanguage, targetLanguage, context);
+            return translationFlights.execute(key, () -> {
+                log.info("Translating '{}' from {} to {} using Google Gemini Pro API", text, sourceLanguage, targetLanguage);
+                String translation = callGeminiAPI(text, sourceLanguage, targetLanguage, context);
+                translationCacheService.put(text, sourceLanguage, targetLanguage, context, translation, PROVIDER);
+                return translation;
+            });
         } catch (Exception e) {
             log.error("Error calling Gemini API for translation: {}", e.getMessage());
             throw new RuntimeException("Translation failed: " + e.getMessage(), e);
@@ -66,21 +94,89 @@ public class AITranslationService {
      * @throws RuntimeException if Gemini API key is not configured or translation fails
      */
     public Map<String, String> batchTranslateWithAI(List<String> texts, String sourceLanguage, String targetLanguage, String context) {
-        validateApiKey();
-        
         if (texts == null || texts.isEmpty()) {
+            validateApiKey();
             return new HashMap<>();
         }
         
-        log.info("Batch translating {} words from {} to {} using Google Gemini Pro API", 
-                texts.size(), sourceLanguage, targetLanguage);
+        // Only words missing from the cache go to Gemini
+        Map<String, String> cached = translationCacheService.getAll(texts, sourceLanguage, targetLanguage, context, PROVIDER);
+        List<String> missing = texts.stream()
+                .filter(text -> text != null && !cached.containsKey(text))
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            log.info("Batch translation of {} words served entirely from cache", texts.size());
+            return inInputOrder(texts, cached, Map.of());
+        }
+        
+        validateApiKey();
+        
+        log.info("Batch translating {} words ({} cached) from {} to {} using Google Gemini Pro API", 
+                missing.size(), cached.size(), sourceLanguage, targetLanguage);
         
+        // Large lists are split into chunks that run concurrently under the Gemini rate limit
+        Map<String, String> fresh = batchTranslationDispatcher.translateChunks(missing, batchChunkSize,
+                chunk -> callGeminiChunk(chunk, sourceLanguage, targetLanguage, context));
+        if (fresh.isEmpty()) {
+            log.error("Error calling Gemini API for batch translation: no chunk succeeded");
+            throw new RuntimeException("Batch translation failed: no translations returned by Gemini");
+        }
+        
+        translationCacheService.putAll(fresh, sourceLanguage, targetLanguage, context, PROVIDER);
+        return inInputOrder(texts, cached, fresh);
+    }
+
+    /**
+     * Translate one small chunk on the calling thread (single Gemini call, no dispatching)
+     * 
+     * Used by streaming translation, which already runs each chunk on the translation executor.
+     * 
+     * @return translations of the chunk in input order; words Gemini did not return are absent
+     * @throws RuntimeException if Gemini API key is not configured or the call fails
+     */
+    public Map<String, String> translateChunkWithAI(List<String> chunk, String sourceLanguage, String targetLanguage, String context) {
+        Map<String, String> cached = translationCacheService.getAll(chunk, sourceLanguage, targetLanguage, context, PROVIDER);
+        List<String> missing = chunk.stream()
+                .filter(text -> text != null && !cached.containsKey(text))
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            return inInputOrder(chunk, cached, Map.of());
+        }
+        
+        validateApiKey();
+        
+        Map<String, String> fresh = callGeminiChunk(missing, sourceLanguage, targetLanguage, context);
+        translationCacheService.putAll(fresh, sourceLanguage, targetLanguage, context, PROVIDER);
+        return inInputOrder(chunk, cached, fresh);
+    }
+
+    /**
+     * One Gemini batch call for a chunk, shared with identical concurrent chunks
+     */
+    private Map<String, String> callGeminiChunk(List<String> chunk, String sourceLanguage, String targetLanguage, String context) {
+        String key = TranslationCacheService.cacheKey(String.join("\n", chunk), sourceLanguage, targetLanguage, context, PROVIDER);
         try {
-            return callGeminiBatchTranslation(texts, sourceLanguage, targetLanguage, context);
+            return batchFlights.execute(key, () ->
+                    Collections.unmodifiableMap(callGeminiBatchTranslation(chunk, sourceLanguage, targetLanguage, context)));
         } catch (Exception e) {
-            log.error("Error calling Gemini API for batch translation: {}", e.getMessage());
-            throw new RuntimeException("Batch translation failed: " + e.getMessage(), e);
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Merge cached and fresh translations in the order of the requested texts
+     */
+    private Map<String, String> inInputOrder(List<String> texts, Map<String, String> cached, Map<String, String> fresh) {
+        Map<String, String> translations = new LinkedHashMap<>();
+        for (String text : texts) {
+            String translation = cached.containsKey(text) ? cached.get(text) : fresh.get(text);
+            if (translation != null) {
+                translations.put(text, translation);
+            }
         }
+        return translations;
     }
 
     /**
@@ -107,38 +203,99 @@ public class AITranslationService {
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
         
-        ResponseEntity<String> response = restTemplate.exchange(
-                geminiApiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-        );
-
-        return parseGeminiResponse(response.getBody());
+        return parseGeminiResponse(exchangeWithGemini(entity));
     }
 
     /**
      * Call Google Gemini Pro API for batch translation
+     * 
+     * Gemini answers a JSON array keyed by word index, echoing each word; words it skipped,
+     * garbled or filed under the wrong index are asked again on their own (up to
+     * app.translation.batch.missing-retries rounds).
      */
     private Map<String, String> callGeminiBatchTranslation(List<String> texts, String sourceLanguage, String targetLanguage, String context) throws Exception {
+        String[] translations = requestGeminiBatch(texts, sourceLanguage, targetLanguage, context);
+        
+        for (int round = 0; round < missingRetries; round++) {
+            List<Integer> missingIndexes = new ArrayList<>();
+            for (int i = 0; i < translations.length; i++) {
+                if (translations[i] == null) {
+                    missingIndexes.add(i);
+                }
+            }
+            if (missingIndexes.isEmpty()) {
+                break;
+            }
+            
+            log.info("Gemini batch answer missed {} of {} words, retrying only those", missingIndexes.size(), texts.size());
+            List<String> retryTexts = missingIndexes.stream().map(texts::get).toList();
+            String[] retried;
+            try {
+                retried = requestGeminiBatch(retryTexts, sourceLanguage, targetLanguage, context);
+            } catch (Exception e) {
+                log.warn("Retry of missing batch translations failed: {}", e.getMessage());
+                break;
+            }
+            for (int i = 0; i < retried.length; i++) {
+                translations[missingIndexes.get(i)] = retried[i];
+            }
+        }
+        
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < translations.length; i++) {
+            if (translations[i] != null) {
+                result.putIfAbsent(texts.get(i), translations[i]);
+            }
+        }
+        int missing = BatchTranslationParser.countMissing(translations);
+        if (missing > 0) {
+            log.warn("Batch translation incomplete: got {} translations for {} requested words", 
+                    texts.size() - missing, texts.size());
+        }
+        return result;
+    }
+
+    /**
+     * One Gemini batch request, parsed into an index-addressed array (null = not translated)
+     */
+    private String[] requestGeminiBatch(List<String> texts, String sourceLanguage, String targetLanguage, String context) throws Exception {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("X-goog-api-key", geminiApiKey);
 
         String batchPrompt = buildBatchTranslationPrompt(texts, sourceLanguage, targetLanguage, context);
         Map<String, Object> requestBody = buildGeminiRequestBody(batchPrompt);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> generationConfig = (Map<String, Object>) requestBody.get("generationConfig");
+        generationConfig.put("responseMimeType", "application/json");
+        generationConfig.put("maxOutputTokens", Math.max(500, texts.size() * 40));
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
         
-        ResponseEntity<String> response = restTemplate.exchange(
+        String result = parseGeminiResponse(exchangeWithGemini(entity));
+        return BatchTranslationParser.parse(result, texts);
+    }
+
+    /**
+     * POST to Gemini through the rate limiter and its circuit breaker
+     * 
+     * @throws IllegalStateException if the circuit is open or the call failed
+     */
+    private String exchangeWithGemini(HttpEntity<Map<String, Object>> entity) {
+        if (!providerRouter.isAvailable(ProviderRateLimiter.GEMINI)) {
+            throw new IllegalStateException("Gemini is temporarily unavailable (circuit open)");
+        }
+        providerRateLimiter.acquire(ProviderRateLimiter.GEMINI);
+        String body = providerRouter.call(ProviderRateLimiter.GEMINI, () -> restTemplate.exchange(
                 geminiApiUrl,
                 HttpMethod.POST,
                 entity,
                 String.class
-        );
-
-        String result = parseGeminiResponse(response.getBody());
-        return parseBatchResponse(result, texts);
+        ).getBody());
+        if (body == null) {
+            throw new IllegalStateException("Gemini call failed or circuit open");
+        }
+        return body;
     }
 
     /**
@@ -174,17 +331,19 @@ public class AITranslationService {
         prompt.append(getLanguageName(targetLanguage));
         prompt.append(" for a flashcard learning app.\n\n");
         
-        prompt.append("Words to translate:\n");
-        for (String text : texts) {
-            prompt.append("- ").append(text).append("\n");
+        prompt.append("Words to translate (index. word):\n");
+        for (int i = 0; i < texts.size(); i++) {
+            prompt.append(i).append(". ").append(texts.get(i)).append("\n");
         }
         
         if (context != null && !context.trim().isEmpty()) {
             prompt.append("\nContext: ").append(context).append("\n");
         }
         
-        prompt.append("\nProvide accurate translations in the format: original_word|translation\n");
-        prompt.append("One translation per line. Return only the translations without additional explanations.");
+        prompt.append("\nReturn only a JSON array with one object per word, in the form ");
+        prompt.append("[{\"i\": 0, \"w\": \"word\", \"t\": \"translation\"}, ...], where i is the word's index above, ");
+        prompt.append("w repeats the word exactly as given, ");
+        prompt.append("and t is its most accurate and commonly used translation. No explanations.");
         
         return prompt.toString();
     }
@@ -244,56 +403,6 @@ public class AITranslationService {
         throw new Exception("Invalid Gemini API response format: no candidates found");
     }
 
-    /**
-     * Parse batch translation response into a map
-     */
-    private Map<String, String> parseBatchResponse(String response, List<String> originalTexts) {
-        Map<String, String> translations = new HashMap<>();
-        
-        if (response == null || response.trim().isEmpty()) {
-            log.warn("Empty batch translation response");
-            return translations;
-        }
-        
-        // Split response by newlines
-        String[] lines = response.split("\n");
-        
-        for (String line : lines) {
-            line = line.trim();
-            
-            // Skip empty lines and lines without pipe separator
-            if (line.isEmpty() || !line.contains("|")) {
-                continue;
-            }
-            
-            // Parse "original|translation" format
-            String[] parts = line.split("\\|", 2);
-            if (parts.length == 2) {
-                String originalWord = parts[0].trim();
-                String translation = parts[1].trim();
-                
-                // Clean up common prefixes like "- " or numbered lists
-                originalWord = originalWord.replaceAll("^[-*•\\d]+\\.?\\s*", "");
-                
-                // Match with exact input text (case-insensitive for better matching)
-                for (String inputText : originalTexts) {
-                    if (inputText.equalsIgnoreCase(originalWord)) {
-                        translations.put(inputText, translation);
-                        break;
-                    }
-                }
-            }
-        }
-        
-        // Log if some translations are missing
-        if (translations.size() < originalTexts.size()) {
-            log.warn("Batch translation incomplete: got {} translations for {} requested words", 
-                    translations.size(), originalTexts.size());
-        }
-        
-        return translations;
-    }
-
     /**
      * Get human-readable language name from language code
      */
@@ -0,0 +1,376 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.AudioAsset;
+import com.elearning.service.repositories.AudioAssetRepository;
+import com.elearning.service.utils.SegmentLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for generated audio.
+ *
+ * A clip is looked up by SHA-256 of (normalized text, language, voice, provider), so
+ * the same word in the same language and voice is synthesized once and shared by every
+ * card and user. TTS services look the hash up before calling their provider. The file
+ * is named {provider}_{hash}_{version}.mp3, where the version is the start of a SHA-256
+ * of the audio bytes: a clip that is generated again (after its file was lost or
+ * collected) gets a new name, so a URL always stands for the same bytes and can be
+ * cached as immutable. Names without a version come from before this scheme. The
+ * audio_assets row counts the cards using the file; a file is only deleted once no
+ * card refers to it.
+ */
+@Service
+@Slf4j
+public class AudioAssetService {
+
+    public static final String GOOGLE_NEURAL = "google_neural";
+    public static final String OPENAI = "openai";
+    public static final String RESPONSIVE_VOICE = "responsive_voice";
+
+    private static final Pattern CONTENT_ADDRESSED_FILE = Pattern.compile("[a-z_]+_([0-9a-f]{64})(?:_([0-9a-f]{16}))?\\.mp3");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final AudioAssetRepository audioAssetRepository;
+    private final AudioBlobStore audioBlobStore;
+    private final AudioStorageStats audioStorageStats;
+    private final TransactionTemplate writeTransaction;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    @Value("${app.audio.storage.path:./audio}")
+    private String audioStoragePath;
+
+    @Value("${app.audio.base-url:http://localhost:8080/api/audio}")
+    private String audioBaseUrl;
+
+    public AudioAssetService(AudioAssetRepository audioAssetRepository, AudioBlobStore audioBlobStore,
+                             AudioStorageStats audioStorageStats, PlatformTransactionManager transactionManager) {
+        this.audioAssetRepository = audioAssetRepository;
+        this.audioBlobStore = audioBlobStore;
+        this.audioStorageStats = audioStorageStats;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * URL of existing audio for this text from one provider
+     *
+     * @return the URL, or null if it was never generated (or its file is gone)
+     */
+    public String findUrl(String text, String language, String voice, String provider) {
+        return findAnyUrl(text, language, voice, List.of(provider));
+    }
+
+    /**
+     * URL of existing audio for this text from the first provider (in the given order) that has one
+     */
+    public String findAnyUrl(String text, String language, String voice, List<String> providers) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Map<String, String> providerByHash = new LinkedHashMap<>();
+        for (String provider : providers) {
+            providerByHash.put(contentHash(text, language, voice, provider), provider);
+        }
+
+        Map<String, AudioAsset> found = new HashMap<>();
+        for (AudioAsset asset : audioAssetRepository.findByContentHashIn(providerByHash.keySet())) {
+            found.put(asset.getContentHash(), asset);
+        }
+        for (String hash : providerByHash.keySet()) {
+            AudioAsset asset = found.get(hash);
+            if (asset == null) {
+                continue;
+            }
+            if (isStored(asset)) {
+                hits.incrementAndGet();
+                return audioBaseUrl + "/" + asset.getFileName();
+            }
+            // File/segment bị xóa ngoài ứng dụng: bỏ bản ghi để tạo lại
+            log.warn("Audio asset {} has no data on disk, regenerating", asset.getFileName());
+            forget(asset.getFileName());
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Save freshly synthesized audio under its content address
+     *
+     * New clips are appended to the segment store when it is enabled, otherwise written as
+     * a standalone file. If another request stored the same clip first, its file is used.
+     *
+     * @return public URL of the file
+     */
+    public String store(String text, String language, String voice, String provider, byte[] audioData) throws IOException {
+        String hash = contentHash(text, language, voice, provider);
+        String fileName = provider + "_" + hash + "_" + bytesVersion(audioData) + ".mp3";
+
+        SegmentLog.Location location = audioBlobStore.isEnabled() ? audioBlobStore.put(hash, audioData) : null;
+        if (location == null) {
+            writeFile(fileName, audioData);
+        }
+
+        String storedName = fileName;
+        try {
+            String existing = writeTransaction.execute(status -> {
+                Optional<AudioAsset> asset = audioAssetRepository.findByContentHash(hash);
+                if (asset.isPresent()) {
+                    return asset.get().getFileName();
+                }
+                audioAssetRepository.save(AudioAsset.builder()
+                        .contentHash(hash)
+                        .fileName(fileName)
+                        .provider(provider)
+                        .language(normalizeKeyPart(language))
+                        .voice(normalizeKeyPart(voice))
+                        .sourceText(normalizeText(text))
+                        .sizeBytes((long) audioData.length)
+                        .segment(location != null ? location.segment() : null)
+                        .segmentOffset(location != null ? location.offset() : null)
+                        .refCount(0)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                return null;
+            });
+            if (existing == null) {
+                audioStorageStats.recordStored(provider, normalizeKeyPart(language), normalizeKeyPart(voice), audioData.length);
+            } else {
+                storedName = existing;
+            }
+            stored.incrementAndGet();
+        } catch (DataAccessException | TransactionException e) {
+            // Hai request cùng lưu một nội dung: dùng bản đã ghi trước
+            log.debug("Audio asset row for {} already written: {}", fileName, e.getMessage());
+            storedName = audioAssetRepository.findByContentHash(hash).map(AudioAsset::getFileName).orElse(fileName);
+        }
+
+        if (!storedName.equals(fileName)) {
+            // Bản thừa: file riêng thì xóa, trong segment thì lần nén sau bỏ đi
+            if (location == null) {
+                Files.deleteIfExists(Paths.get(audioStoragePath, fileName));
+            }
+            return audioBaseUrl + "/" + storedName;
+        }
+        log.info("Saved audio asset: {} (size: {} bytes{})", fileName, audioData.length,
+                location != null ? ", segment " + location.segment() : "");
+        return audioBaseUrl + "/" + fileName;
+    }
+
+    /**
+     * Stored clip of a content-addressed file name, if its data is still there
+     */
+    public Optional<AudioAsset> findStored(String fileName) {
+        return audioAssetRepository.findByFileName(fileName).filter(this::isStored);
+    }
+
+    private boolean isStored(AudioAsset asset) {
+        return asset.getSegment() != null
+                ? audioBlobStore.contains(asset)
+                : Files.exists(Paths.get(audioStoragePath, asset.getFileName()));
+    }
+
+    private void writeFile(String fileName, byte[] audioData) throws IOException {
+        Path storagePath = Paths.get(audioStoragePath);
+        Files.createDirectories(storagePath);
+        Path target = storagePath.resolve(fileName);
+        if (Files.exists(target)) {
+            return;
+        }
+        // Ghi vào file tạm rồi đổi tên: người đọc không bao giờ thấy file dở dang
+        Path temp = Files.createTempFile(storagePath, fileName, ".tmp");
+        try {
+            Files.write(temp, audioData);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * A card now uses this audio (no-op for URLs that are not content-addressed)
+     */
+    @Transactional
+    public void acquire(String audioUrl) {
+        String fileName = fileNameOf(audioUrl);
+        if (fileName != null) {
+            audioAssetRepository.adjustRefCount(fileName, 1);
+        }
+    }
+
+    /**
+     * Cards using these URLs were deleted: audio URL → number of cards
+     */
+    @Transactional
+    public void release(Map<String, Long> cardCountsByUrl) {
+        cardCountsByUrl.forEach((audioUrl, cards) -> {
+            String fileName = fileNameOf(audioUrl);
+            if (fileName != null) {
+                audioAssetRepository.adjustRefCount(fileName, -cards.intValue());
+            }
+        });
+    }
+
+    /**
+     * Whether cards still use this content-addressed file
+     */
+    public boolean isReferenced(String fileName) {
+        return audioAssetRepository.findByFileName(fileName)
+                .map(asset -> asset.getRefCount() > 0)
+                .orElse(false);
+    }
+
+    /**
+     * Drop the row of a file that was deleted
+     */
+    public void forget(String fileName) {
+        try {
+            AudioAsset removed = writeTransaction.execute(status -> audioAssetRepository.findByFileName(fileName)
+                    .filter(asset -> audioAssetRepository.deleteByFileName(fileName) > 0)
+                    .orElse(null));
+            if (removed != null) {
+                audioStorageStats.recordDeleted(removed);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not remove audio asset row {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the row of a clip no card uses any more; nothing happens if a card acquired it meanwhile
+     *
+     * @return the removed row, or null if it is gone or still referenced
+     */
+    public AudioAsset forgetIfUnreferenced(String fileName) {
+        try {
+            AudioAsset removed = writeTransaction.execute(status -> audioAssetRepository.findByFileName(fileName)
+                    .filter(asset -> audioAssetRepository.deleteUnreferenced(fileName) > 0)
+                    .orElse(null));
+            if (removed != null) {
+                audioStorageStats.recordDeleted(removed);
+            }
+            return removed;
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not remove audio asset row {}: {}", fileName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reset a reference count that says cards use the file when none does
+     *
+     * @return whether the count was changed
+     */
+    public boolean resetRefCount(String fileName) {
+        Integer updated = writeTransaction.execute(status -> audioAssetRepository.resetRefCount(fileName));
+        return updated != null && updated > 0;
+    }
+
+    public Map<String, Object> getStats() {
+        Object[] summary = audioAssetRepository.summarize().get(0);
+        long assets = ((Number) summary[0]).longValue();
+        long references = ((Number) summary[2]).longValue();
+        long lookups = hits.get() + misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("assets", assets);
+        stats.put("totalSizeBytes", ((Number) summary[1]).longValue());
+        stats.put("cardReferences", references);
+        stats.put("lookups", lookups);
+        stats.put("hits", hits.get());
+        stats.put("hitRatio", lookups > 0 ? (double) hits.get() / lookups : 0.0);
+        stats.put("stored", stored.get());
+        stats.put("segmentStore", audioBlobStore.getStats());
+        return stats;
+    }
+
+    /**
+     * File name of a content-addressed URL served by this instance, or null
+     */
+    public String fileNameOf(String audioUrl) {
+        if (audioUrl == null || !audioUrl.startsWith(audioBaseUrl + "/")) {
+            return null;
+        }
+        String fileName = audioUrl.substring(audioBaseUrl.length() + 1);
+        return contentHashOf(fileName) != null ? fileName : null;
+    }
+
+    /**
+     * Content hash encoded in a content-addressed file name, or null for other (legacy) files
+     */
+    public static String contentHashOf(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED_FILE.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Version encoded in a content-addressed file name (a hash of its bytes), or null for names from before versioning
+     *
+     * A versioned name always stands for the same bytes.
+     */
+    public static String versionOf(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED_FILE.matcher(fileName);
+        return matcher.matches() ? matcher.group(2) : null;
+    }
+
+    /**
+     * Content address of an audio clip
+     */
+    public static String contentHash(String text, String language, String voice, String provider) {
+        String raw = normalizeText(text) + '\u0000'
+                + normalizeKeyPart(language) + '\u0000'
+                + normalizeKeyPart(voice) + '\u0000'
+                + normalizeKeyPart(provider);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private static String bytesVersion(byte[] audioData) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(audioData);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private static String normalizeText(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = Normalizer.normalize(text, Normalizer.Form.NFC).trim();
+        return WHITESPACE.matcher(trimmed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeKeyPart(String value) {
+        return value == null || value.isBlank() ? "default" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
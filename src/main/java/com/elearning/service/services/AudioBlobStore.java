@@ -0,0 +1,246 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.AudioAsset;
+import com.elearning.service.repositories.AudioAssetRepository;
+import com.elearning.service.utils.SegmentLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Packs content-addressed audio clips into append-only segment files.
+ *
+ * Instead of one file per clip in the audio directory, clips are appended to
+ * {storage}/segments/segment-NNNNNN.dat ({@link SegmentLog}); the audio_assets row
+ * (segment_id, segment_offset, size_bytes) is the index. Reads are slices of a memory
+ * mapping, and AudioController can hand the byte range straight to sendfile.
+ *
+ * Deleting a clip only removes its row. A periodic compaction finds sealed segments
+ * whose live bytes fell below app.audio.segments.compact-threshold, copies their live
+ * clips to the active segment, syncs it once, repoints the rows and removes the old
+ * file after a grace period (requests already streaming from it finish first). It runs
+ * on its own thread so a long copy never delays other scheduled jobs.
+ *
+ * The segment directory belongs to one process ({@link SegmentLog} locks it): instances
+ * sharing a storage path must disable segments or use separate paths.
+ */
+@Service
+@Slf4j
+public class AudioBlobStore {
+
+    private final AudioAssetRepository audioAssetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final TaskExecutor compactionExecutor;
+
+    /**
+     * Segments compacted and waiting for their file to be removed
+     */
+    private final Set<Integer> retiring = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong compactedSegments = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    private volatile SegmentLog segmentLog;
+
+    @Value("${app.audio.segments.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audio.storage.path:./audio}")
+    private String audioStoragePath;
+
+    @Value("${app.audio.segments.max-segment-mb:256}")
+    private long maxSegmentMegabytes;
+
+    @Value("${app.audio.segments.fsync:true}")
+    private boolean fsync;
+
+    @Value("${app.audio.segments.compact-threshold:0.5}")
+    private double compactThreshold;
+
+    @Value("${app.audio.segments.delete-grace-ms:300000}")
+    private long deleteGraceMillis;
+
+    public AudioBlobStore(AudioAssetRepository audioAssetRepository,
+                          TransactionTemplate transactionTemplate,
+                          @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                          @Qualifier("segmentCompactionExecutor") TaskExecutor compactionExecutor) {
+        this.audioAssetRepository = audioAssetRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.taskScheduler = taskScheduler;
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    /**
+     * Whether new clips go into segments (otherwise they are written as standalone files)
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append a clip
+     *
+     * @return its location, to be stored on the audio_assets row
+     */
+    public SegmentLog.Location put(String contentHash, byte[] audioData) throws IOException {
+        return segments().append(contentHash, audioData);
+    }
+
+    /**
+     * Read-only, memory-mapped view of a segment-stored clip
+     */
+    public ByteBuffer read(AudioAsset asset) throws IOException {
+        return segments().read(locationOf(asset));
+    }
+
+    public boolean contains(AudioAsset asset) {
+        try {
+            return segments().contains(locationOf(asset));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path segmentPath(int segment) throws IOException {
+        return segments().segmentPath(segment);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.segments.compaction-interval-ms:3600000}")
+    public void scheduleCompaction() {
+        if (enabled) {
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Rewrite sparse sealed segments so deleted clips stop taking disk space
+     */
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            SegmentLog store = segments();
+            Map<Integer, Long> liveBytes = liveBytesBySegment();
+            int active = store.activeSegment();
+            for (Map.Entry<Integer, Long> segment : store.segmentSizes().entrySet()) {
+                int id = segment.getKey();
+                long size = segment.getValue();
+                if (id == active || retiring.contains(id) || size == 0) {
+                    continue;
+                }
+                long live = liveBytes.getOrDefault(id, 0L);
+                if ((double) live / size < compactThreshold) {
+                    compactSegment(id, size, live);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Audio segment compaction failed, will retry on next run", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        try {
+            Map<Integer, Long> sizes = segments().segmentSizes();
+            Map<Integer, Long> liveBytes = liveBytesBySegment();
+            long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+            long live = liveBytes.values().stream().mapToLong(Long::longValue).sum();
+            stats.put("segments", sizes.size());
+            stats.put("activeSegment", segments().activeSegment());
+            stats.put("totalBytes", total);
+            stats.put("liveBytes", live);
+            stats.put("liveRatio", total > 0 ? (double) live / total : 1.0);
+        } catch (IOException e) {
+            stats.put("error", e.getMessage());
+        }
+        stats.put("compactedSegments", compactedSegments.get());
+        stats.put("reclaimedBytes", reclaimedBytes.get());
+        return stats;
+    }
+
+    private void compactSegment(int segment, long size, long live) throws IOException {
+        SegmentLog store = segments();
+        List<AudioAsset> assets = audioAssetRepository.findBySegment(segment);
+        List<SegmentLog.Location> targets = new ArrayList<>(assets.size());
+        for (AudioAsset asset : assets) {
+            // Chép thẳng từ vùng map sang segment đang ghi, không qua heap
+            targets.add(store.write(asset.getContentHash(), store.read(locationOf(asset))));
+        }
+        // Một lần fsync cho cả segment; chỉ trỏ lại các dòng khi bản sao đã nằm trên đĩa
+        store.sync();
+
+        int moved = 0;
+        for (int i = 0; i < assets.size(); i++) {
+            AudioAsset asset = assets.get(i);
+            SegmentLog.Location target = targets.get(i);
+            // Row deleted meanwhile: the copy is garbage and goes with a later compaction
+            Integer updated = transactionTemplate.execute(status -> audioAssetRepository.relocate(asset.getId(),
+                    segment, asset.getSegmentOffset(), target.segment(), target.offset()));
+            if (updated != null && updated > 0) {
+                moved++;
+            }
+        }
+
+        retiring.add(segment);
+        taskScheduler.schedule(() -> {
+            try {
+                store.delete(segment);
+            } catch (IOException e) {
+                log.warn("Could not remove compacted audio segment {}: {}", segment, e.getMessage());
+            } finally {
+                retiring.remove(segment);
+            }
+        }, Instant.now().plusMillis(deleteGraceMillis));
+
+        compactedSegments.incrementAndGet();
+        reclaimedBytes.addAndGet(size - live);
+        log.info("Compacted audio segment {}: moved {} clip(s), {} of {} bytes reclaimed",
+                segment, moved, size - live, size);
+    }
+
+    private Map<Integer, Long> liveBytesBySegment() {
+        Map<Integer, Long> liveBytes = new HashMap<>();
+        for (Object[] row : audioAssetRepository.sumSizeBySegment()) {
+            liveBytes.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return liveBytes;
+    }
+
+    private static SegmentLog.Location locationOf(AudioAsset asset) {
+        return new SegmentLog.Location(asset.getSegment(), asset.getSegmentOffset(), asset.getSizeBytes().intValue());
+    }
+
+    private SegmentLog segments() throws IOException {
+        SegmentLog store = segmentLog;
+        if (store == null) {
+            synchronized (this) {
+                store = segmentLog;
+                if (store == null) {
+                    store = SegmentLog.open(Paths.get(audioStoragePath, "segments"), maxSegmentMegabytes * 1024 * 1024, fsync);
+                    segmentLog = store;
+                }
+            }
+        }
+        return store;
+    }
+}
@@ -0,0 +1,457 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.AudioAsset;
+import com.elearning.service.repositories.AudioAssetRepository;
+import com.elearning.service.repositories.CardRepository;
+import com.elearning.service.utils.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that removes audio no card refers to any more.
+ *
+ * Deleting cards releases their audio right away (CardDeletionService), but clips can
+ * still be orphaned: a crash between the card delete and the file delete, cards whose
+ * audio was replaced, files from before content addressing, or reference counts that
+ * drifted. Each run:
+ * <ol>
+ *   <li>streams cards.audio_url page by page into a {@link BloomFilter} of file names
+ *       (about 10 bits per card, whatever the URL length);</li>
+ *   <li>walks audio_assets by id and the top level of the audio directory one entry at a
+ *       time; anything the filter rules out and that is older than
+ *       app.audio.gc.min-age-hours becomes a candidate (a filter false positive only
+ *       keeps an orphan until a later run);</li>
+ *   <li>re-checks candidates against cards in batches of app.audio.gc.batch-size right
+ *       before acting (cards created since step 1), then sleeps
+ *       app.audio.gc.batch-pause-ms so the disk and database are never hammered.</li>
+ * </ol>
+ * Depending on app.audio.gc.mode orphans are only counted (report), moved to
+ * {storage}/quarantine and deleted after app.audio.gc.quarantine-retention-days
+ * (quarantine, the default; move a file back to restore it), or deleted (delete).
+ * Rows of shared clips are removed with a guarded delete (ref_count = 0), so a card
+ * that picks up the clip at the same moment keeps it; a row whose count says cards
+ * use it when none does is reset first and collected on the next run. Clips in
+ * segment files only lose their row; AudioBlobStore compaction reclaims the bytes.
+ */
+@Service
+@Slf4j
+public class AudioGarbageCollector {
+
+    public enum Mode {
+        REPORT,     // Chỉ đếm, không xóa gì
+        QUARANTINE, // Chuyển vào thư mục quarantine, xóa hẳn sau thời gian lưu giữ
+        DELETE      // Xóa ngay
+    }
+
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+
+    private final CardRepository cardRepository;
+    private final AudioAssetRepository audioAssetRepository;
+    private final AudioAssetService audioAssetService;
+    private final AudioBlobStore audioBlobStore;
+    private final AudioStorageStats audioStorageStats;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong totalCollected = new AtomicLong();
+    private final AtomicLong totalCollectedBytes = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    @Value("${app.audio.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audio.gc.mode:QUARANTINE}")
+    private Mode mode;
+
+    @Value("${app.audio.storage.path:./audio}")
+    private String audioStoragePath;
+
+    @Value("${app.audio.base-url:http://localhost:8080/api/audio}")
+    private String audioBaseUrl;
+
+    @Value("${app.audio.gc.min-age-hours:24}")
+    private long minAgeHours;
+
+    @Value("${app.audio.gc.page-size:5000}")
+    private int pageSize;
+
+    @Value("${app.audio.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.audio.gc.batch-pause-ms:1000}")
+    private long batchPauseMillis;
+
+    @Value("${app.audio.gc.max-per-run:10000}")
+    private long maxPerRun;
+
+    @Value("${app.audio.gc.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.audio.gc.quarantine-retention-days:7}")
+    private long quarantineRetentionDays;
+
+    public AudioGarbageCollector(CardRepository cardRepository,
+                                 AudioAssetRepository audioAssetRepository,
+                                 AudioAssetService audioAssetService,
+                                 AudioBlobStore audioBlobStore,
+                                 AudioStorageStats audioStorageStats) {
+        this.cardRepository = cardRepository;
+        this.audioAssetRepository = audioAssetRepository;
+        this.audioAssetService = audioAssetService;
+        this.audioBlobStore = audioBlobStore;
+        this.audioStorageStats = audioStorageStats;
+    }
+
+    /**
+     * One orphan candidate: a row (asset != null) or a file without a row (file != null)
+     */
+    private record Candidate(String fileName, AudioAsset asset, Path file, long size) {
+    }
+
+    /**
+     * Counters of one run
+     */
+    private static final class RunStats {
+        long referencedUrls;
+        long filterBytes;
+        long scannedAssets;
+        long scannedFiles;
+        long orphans;
+        long orphanBytes;
+        long collected;
+        long collectedBytes;
+        long keptByRecheck;
+        long refCountsReset;
+        long quarantinePurged;
+        long errors;
+
+        Map<String, Object> toMap() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("referencedUrls", referencedUrls);
+            stats.put("filterBytes", filterBytes);
+            stats.put("scannedAssets", scannedAssets);
+            stats.put("scannedFiles", scannedFiles);
+            stats.put("orphans", orphans);
+            stats.put("orphanBytes", orphanBytes);
+            stats.put("collected", collected);
+            stats.put("collectedBytes", collectedBytes);
+            stats.put("keptByRecheck", keptByRecheck);
+            stats.put("refCountsReset", refCountsReset);
+            stats.put("quarantinePurged", quarantinePurged);
+            stats.put("errors", errors);
+            return stats;
+        }
+    }
+
+    /**
+     * Scheduled run, on its own thread so the pauses between batches never hold a scheduler or maintenance thread
+     */
+    @Async("audioGcExecutor")
+    @Scheduled(initialDelayString = "${app.audio.gc.initial-delay-ms:600000}",
+               fixedDelayString = "${app.audio.gc.interval-ms:21600000}")
+    public void collect() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        RunStats run = new RunStats();
+        try {
+            runOnce(run);
+            log.info("Audio GC ({}) finished in {} ms: {} orphan(s), {} collected ({} bytes), {} kept by re-check, {} ref count(s) reset",
+                    mode, System.currentTimeMillis() - start, run.orphans, run.collected, run.collectedBytes,
+                    run.keptByRecheck, run.refCountsReset);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Audio GC interrupted");
+        } catch (Exception e) {
+            run.errors++;
+            log.error("Audio GC failed, will retry on next run", e);
+        } finally {
+            totalCollected.addAndGet(run.collected);
+            totalCollectedBytes.addAndGet(run.collectedBytes);
+            Map<String, Object> summary = run.toMap();
+            summary.put("finishedAt", LocalDateTime.now());
+            summary.put("durationMs", System.currentTimeMillis() - start);
+            lastRun = summary;
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mode", mode);
+        stats.put("running", running.get());
+        stats.put("totalCollected", totalCollected.get());
+        stats.put("totalCollectedBytes", totalCollectedBytes.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private void runOnce(RunStats run) throws IOException, InterruptedException {
+        BloomFilter referenced = loadReferencedFileNames(run);
+        Instant cutoff = Instant.now().minus(Duration.ofHours(minAgeHours));
+
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        scanAssets(referenced, cutoff, batch, run);
+        scanFiles(referenced, cutoff, batch, run);
+        flush(batch, run);
+        purgeQuarantine(run);
+    }
+
+    /**
+     * File names of every card's audio, streamed by card id so the heap only holds one page and the filter
+     */
+    private BloomFilter loadReferencedFileNames(RunStats run) {
+        long expected = cardRepository.countWithAudioUrl();
+        // Thẻ được thêm trong lúc quét làm bộ lọc đầy hơn dự tính một chút
+        BloomFilter filter = BloomFilter.create(expected + expected / 10 + 1000, falsePositiveRate);
+        long afterId = 0;
+        List<Object[]> page;
+        while (!(page = cardRepository.findAudioUrlsAfter(afterId, PageRequest.of(0, pageSize))).isEmpty()) {
+            for (Object[] row : page) {
+                filter.add(fileNameOf((String) row[1]));
+            }
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+        run.referencedUrls = filter.entries();
+        run.filterBytes = filter.sizeInBytes();
+        return filter;
+    }
+
+    private void scanAssets(BloomFilter referenced, Instant cutoff, List<Candidate> batch, RunStats run)
+            throws InterruptedException {
+        LocalDateTime createdCutoff = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        long afterId = 0;
+        List<AudioAsset> page;
+        while (!limitReached(run)
+                && !(page = audioAssetRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize))).isEmpty()) {
+            for (AudioAsset asset : page) {
+                run.scannedAssets++;
+                if (referenced.mightContain(asset.getFileName()) || asset.getCreatedAt().isAfter(createdCutoff)) {
+                    continue;
+                }
+                batch.add(new Candidate(asset.getFileName(), asset, null, asset.getSizeBytes()));
+                if (batch.size() >= batchSize) {
+                    flush(batch, run);
+                }
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Standalone files in the audio directory, read one entry at a time (never listed into memory)
+     */
+    private void scanFiles(BloomFilter referenced, Instant cutoff, List<Candidate> batch, RunStats run)
+            throws IOException, InterruptedException {
+        Path storage = Paths.get(audioStoragePath);
+        if (!Files.isDirectory(storage)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storage, "*.mp3")) {
+            for (Path file : files) {
+                if (limitReached(run)) {
+                    break;
+                }
+                run.scannedFiles++;
+                String fileName = file.getFileName().toString();
+                if (referenced.mightContain(fileName)) {
+                    continue;
+                }
+                // Chỉ đọc thuộc tính của file không được tham chiếu
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile() || attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                batch.add(new Candidate(fileName, null, file, attributes.size()));
+                if (batch.size() >= batchSize) {
+                    flush(batch, run);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-check a batch against cards, collect what is still orphaned, then pause
+     */
+    private void flush(List<Candidate> batch, RunStats run) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Candidate> byUrl = new LinkedHashMap<>();
+        List<String> contentAddressedFiles = new ArrayList<>();
+        for (Candidate candidate : batch) {
+            byUrl.put(audioBaseUrl + "/" + candidate.fileName(), candidate);
+            if (candidate.asset() == null && AudioAssetService.contentHashOf(candidate.fileName()) != null) {
+                contentAddressedFiles.add(candidate.fileName());
+            }
+        }
+        Set<String> stillReferenced = new HashSet<>(cardRepository.findReferencedAudioUrls(new ArrayList<>(byUrl.keySet())));
+        // File có bản ghi được xử lý qua bản ghi (bản ghi có thể vừa được tạo sau lượt quét)
+        Set<String> withRows = contentAddressedFiles.isEmpty()
+                ? Set.of()
+                : new HashSet<>(audioAssetRepository.findExistingFileNames(contentAddressedFiles));
+
+        for (Map.Entry<String, Candidate> entry : byUrl.entrySet()) {
+            Candidate candidate = entry.getValue();
+            if (stillReferenced.contains(entry.getKey())) {
+                run.keptByRecheck++;
+            } else if (candidate.asset() != null) {
+                collectAsset(candidate.asset(), run);
+            } else if (!withRows.contains(candidate.fileName())) {
+                collectFile(candidate, run);
+            }
+        }
+        batch.clear();
+        Thread.sleep(batchPauseMillis);
+    }
+
+    private void collectAsset(AudioAsset asset, RunStats run) {
+        run.orphans++;
+        run.orphanBytes += asset.getSizeBytes();
+        if (mode == Mode.REPORT) {
+            return;
+        }
+        String fileName = asset.getFileName();
+        if (asset.getRefCount() > 0) {
+            // Số tham chiếu bị lệch: đưa về 0 trước, lần chạy sau mới thu hồi
+            if (audioAssetService.resetRefCount(fileName)) {
+                run.refCountsReset++;
+                log.info("Audio asset {} had ref_count {} but no card uses it, reset to 0", fileName, asset.getRefCount());
+            }
+            return;
+        }
+
+        try {
+            // Đọc dữ liệu trong segment trước khi bỏ bản ghi: sau đó nó chỉ còn đến lần nén segment tiếp theo
+            byte[] segmentData = asset.getSegment() != null && mode == Mode.QUARANTINE ? readSegmentClip(asset) : null;
+            if (audioAssetService.forgetIfUnreferenced(fileName) == null) {
+                run.keptByRecheck++;
+                return;
+            }
+            if (asset.getSegment() == null) {
+                dispose(Paths.get(audioStoragePath, fileName));
+            } else if (segmentData != null) {
+                Path target = quarantineDirectory().resolve(fileName);
+                Files.write(target, segmentData);
+            }
+            run.collected++;
+            run.collectedBytes += asset.getSizeBytes();
+        } catch (IOException e) {
+            run.errors++;
+            log.warn("Could not collect orphaned audio {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    private void collectFile(Candidate candidate, RunStats run) {
+        run.orphans++;
+        run.orphanBytes += candidate.size();
+        if (mode == Mode.REPORT) {
+            return;
+        }
+        try {
+            if (dispose(candidate.file())) {
+                // File định địa chỉ theo nội dung không có bản ghi thì chưa từng được đếm
+                if (AudioAssetService.contentHashOf(candidate.fileName()) == null) {
+                    audioStorageStats.recordLegacyDeleted(candidate.fileName(), candidate.size());
+                }
+                run.collected++;
+                run.collectedBytes += candidate.size();
+            }
+        } catch (IOException e) {
+            run.errors++;
+            log.warn("Could not collect orphaned audio file {}: {}", candidate.fileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Move a file to quarantine or delete it, depending on the mode
+     *
+     * @return false if the file was already gone
+     */
+    private boolean dispose(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        if (mode == Mode.QUARANTINE) {
+            Path target = quarantineDirectory().resolve(file.getFileName());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            // Thời gian lưu giữ tính từ lúc vào quarantine, không phải lúc tạo file
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        }
+        return Files.deleteIfExists(file);
+    }
+
+    private byte[] readSegmentClip(AudioAsset asset) {
+        try {
+            ByteBuffer data = audioBlobStore.read(asset);
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            return copy;
+        } catch (IOException e) {
+            // Segment đã mất: không còn gì để giữ lại, chỉ bỏ bản ghi
+            log.warn("Segment data of {} is unreadable, dropping its row only: {}", asset.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Delete quarantined files older than the retention period, with the same batching and pauses
+     */
+    private void purgeQuarantine(RunStats run) throws IOException, InterruptedException {
+        Path quarantine = Paths.get(audioStoragePath, QUARANTINE_DIRECTORY);
+        if (!Files.isDirectory(quarantine)) {
+            return;
+        }
+        Instant expiry = Instant.now().minus(Duration.ofDays(quarantineRetentionDays));
+        int inBatch = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(quarantine, "*.mp3")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isAfter(expiry)) {
+                    continue;
+                }
+                if (Files.deleteIfExists(file)) {
+                    run.quarantinePurged++;
+                }
+                if (++inBatch >= batchSize) {
+                    inBatch = 0;
+                    Thread.sleep(batchPauseMillis);
+                }
+            }
+        }
+    }
+
+    private Path quarantineDirectory() throws IOException {
+        return Files.createDirectories(Paths.get(audioStoragePath, QUARANTINE_DIRECTORY));
+    }
+
+    private boolean limitReached(RunStats run) {
+        return run.orphans >= maxPerRun;
+    }
+
+    private static String fileNameOf(String audioUrl) {
+        return audioUrl.substring(audioUrl.lastIndexOf('/') + 1);
+    }
+}
@@ -8,11 +8,11 @@ import org.springframework.http.*;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service để tạo âm thanh tự động cho từ vựng
@@ -36,11 +36,19 @@ public class AudioService {
     private final RestTemplate restTemplate;
     private final AITTSService aiTTSService;
     private final GoogleTTSService googleTTSService;
+    private final ProviderRouter providerRouter;
+    private final AudioAssetService audioAssetService;
+    private final AudioStorageStats audioStorageStats;
 
-    public AudioService(RestTemplate restTemplate, AITTSService aiTTSService, GoogleTTSService googleTTSService) {
+    public AudioService(RestTemplate restTemplate, AITTSService aiTTSService, GoogleTTSService googleTTSService,
+                        ProviderRouter providerRouter, AudioAssetService audioAssetService,
+                        AudioStorageStats audioStorageStats) {
         this.restTemplate = restTemplate;
         this.aiTTSService = aiTTSService;
         this.googleTTSService = googleTTSService;
+        this.providerRouter = providerRouter;
+        this.audioAssetService = audioAssetService;
+        this.audioStorageStats = audioStorageStats;
     }
 
     /**
@@ -62,36 +70,22 @@ public class AudioService {
      */
     public String generateAudioForText(String text, String language, String voiceType) {
         try {
-            // 1. Try Google Neural TTS first (best quality with existing API key)
+            // Âm thanh của cùng từ/ngôn ngữ/giọng đã có (từ bất kỳ provider nào): dùng lại, không gọi TTS
+            String existingUrl = audioAssetService.findAnyUrl(text, language, voiceType, aiEnabled
+                    ? List.of(AudioAssetService.GOOGLE_NEURAL, AudioAssetService.OPENAI, AudioAssetService.RESPONSIVE_VOICE)
+                    : List.of(AudioAssetService.RESPONSIVE_VOICE));
+            if (existingUrl != null) {
+                return existingUrl;
+            }
+            
+            // Google Neural TTS → OpenAI TTS → ResponsiveVoice; providers with an open circuit are skipped
             if (aiEnabled) {
                 log.info("Generating Google Neural audio for: {} (language: {}, voice: {})", 
                         text.substring(0, Math.min(30, text.length())), language, voiceType);
-                
-                String googleAudioUrl = googleTTSService.generateGoogleTTSAudio(text, language, voiceType);
-                if (googleAudioUrl != null) {
-                    log.info("✅ Google TTS success: High-quality neural voice");
-                    return googleAudioUrl;
-                }
-                
-                log.warn("Google TTS failed, trying OpenAI TTS...");
-                
-                // 2. Fallback to OpenAI TTS
-                String openaiAudioUrl = aiTTSService.generateAIAudioForText(text, language, voiceType);
-                if (openaiAudioUrl != null) {
-                    log.info("✅ OpenAI TTS success: Premium voice");
-                    return openaiAudioUrl;
-                }
-                
-                log.warn("Both AI TTS failed, falling back to basic TTS");
             }
-            
-            // 3. Final fallback to ResponsiveVoice API
-            String audioData = callTextToSpeechAPI(text, language);
-            
-            if (audioData != null) {
-                String fileName = saveAudioFile(audioData, text);
-                log.info("✅ Basic TTS fallback used");
-                return audioBaseUrl + "/" + fileName;
+            String audioUrl = providerRouter.route("tts", ttsRoutes(text, language, voiceType, aiEnabled, true));
+            if (audioUrl != null) {
+                return audioUrl;
             }
             
         } catch (Exception e) {
@@ -115,34 +109,65 @@ public class AudioService {
         }
         
         try {
-            // Priority: Google Neural TTS (using existing Google API key)
+            // Priority: Google Neural TTS (using existing Google API key), then OpenAI TTS
             log.info("🎤 Generating premium neural audio with Google TTS");
-            String googleAudioUrl = googleTTSService.generateGoogleTTSAudio(text, language, voiceType);
-            if (googleAudioUrl != null) {
-                log.info("🚀 Google Neural TTS success: WaveNet quality");
-                return googleAudioUrl;
-            }
-            
-            // Fallback: OpenAI TTS
-            log.info("🔄 Fallback to OpenAI TTS");
-            String openaiAudioUrl = aiTTSService.generateAIAudioForText(text, language, voiceType);
-            if (openaiAudioUrl != null) {
-                log.info("✅ OpenAI TTS success");
-                return openaiAudioUrl;
+            String audioUrl = providerRouter.route("tts", ttsRoutes(text, language, voiceType, true, false));
+            if (audioUrl != null) {
+                return audioUrl;
             }
             
         } catch (Exception e) {
             log.error("Premium AI audio generation failed: {}", e.getMessage());
         }
         
-        // Final fallback to standard generation
-        return generateAudioForText(text, language, voiceType);
+        // Final fallback to basic TTS only (the AI providers were just tried)
+        return providerRouter.route("tts", ttsRoutes(text, language, voiceType, false, true));
+    }
+
+    /**
+     * Chuỗi provider TTS theo thứ tự ưu tiên cho ProviderRouter
+     */
+    private List<ProviderRouter.Route<String>> ttsRoutes(String text, String language, String voiceType,
+                                                         boolean includeAi, boolean includeBasic) {
+        List<ProviderRouter.Route<String>> routes = new ArrayList<>();
+        if (includeAi) {
+            routes.add(new ProviderRouter.Route<>(ProviderRouter.GOOGLE_TTS, () -> {
+                String url = googleTTSService.generateGoogleTTSAudio(text, language, voiceType);
+                if (url != null) {
+                    log.info("✅ Google TTS success: High-quality neural voice");
+                }
+                return url;
+            }));
+            routes.add(new ProviderRouter.Route<>(ProviderRouter.OPENAI_TTS, () -> {
+                String url = aiTTSService.generateAIAudioForText(text, language, voiceType);
+                if (url != null) {
+                    log.info("✅ OpenAI TTS success: Premium voice");
+                }
+                return url;
+            }));
+        }
+        if (includeBasic) {
+            routes.add(new ProviderRouter.Route<>(ProviderRouter.RESPONSIVE_VOICE, () -> {
+                String existingUrl = audioAssetService.findUrl(text, language, voiceType, AudioAssetService.RESPONSIVE_VOICE);
+                if (existingUrl != null) {
+                    return existingUrl;
+                }
+                byte[] audioData = callTextToSpeechAPI(text, language);
+                if (audioData == null) {
+                    return null;
+                }
+                String audioUrl = audioAssetService.store(text, language, voiceType, AudioAssetService.RESPONSIVE_VOICE, audioData);
+                log.info("✅ Basic TTS fallback used");
+                return audioUrl;
+            }));
+        }
+        return routes;
     }
 
     /**
      * Gọi ResponsiveVoice API để tạo âm thanh
      */
-    private String callTextToSpeechAPI(String text, String language) {
+    private byte[] callTextToSpeechAPI(String text, String language) {
         try {
             // ResponsiveVoice API endpoint
             String url = "https://responsivevoice.org/responsivevoice/getvoice.php";
@@ -169,7 +194,7 @@ public class AudioService {
                 url, HttpMethod.POST, request, byte[].class);
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return java.util.Base64.getEncoder().encodeToString(response.getBody());
+                return response.getBody();
             }
             
         } catch (Exception e) {
@@ -179,45 +204,6 @@ public class AudioService {
         return null;
     }
 
-    /**
-     * Lưu file âm thanh vào thư mục storage
-     */
-    private String saveAudioFile(String audioData, String originalText) throws IOException {
-        // Tạo thư mục nếu chưa tồn tại
-        Path storagePath = Paths.get(audioStoragePath);
-        if (!Files.exists(storagePath)) {
-            Files.createDirectories(storagePath);
-        }
-        
-        // Tạo tên file duy nhất
-        String fileName = generateFileName(originalText) + ".mp3";
-        Path filePath = storagePath.resolve(fileName);
-        
-        // Decode base64 và lưu file
-        byte[] audioBytes = java.util.Base64.getDecoder().decode(audioData);
-        Files.write(filePath, audioBytes);
-        
-        log.info("Đã lưu file âm thanh: {}", fileName);
-        return fileName;
-    }
-
-    /**
-     * Tạo tên file từ text gốc
-     */
-    private String generateFileName(String text) {
-        // Làm sạch text và tạo tên file
-        String cleanText = text.replaceAll("[^a-zA-Z0-9\\s]", "")
-                              .replaceAll("\\s+", "_")
-                              .toLowerCase();
-        
-        if (cleanText.length() > 50) {
-            cleanText = cleanText.substring(0, 50);
-        }
-        
-        // Thêm UUID để đảm bảo duy nhất
-        return cleanText + "_" + UUID.randomUUID().toString().substring(0, 8);
-    }
-
     /**
      * Xóa file âm thanh cũ khi cập nhật card
      */
@@ -230,9 +216,23 @@ public class AudioService {
             String fileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
             Path filePath = Paths.get(audioStoragePath, fileName);
             
+            // File dùng chung (định địa chỉ theo nội dung) chỉ bị xóa khi không còn thẻ nào dùng
+            boolean contentAddressed = audioAssetService.fileNameOf(audioUrl) != null;
+            if (contentAddressed && audioAssetService.isReferenced(fileName)) {
+                log.debug("Audio {} is still used by other cards, keeping it", fileName);
+                return;
+            }
+            
             if (Files.exists(filePath)) {
+                long size = Files.size(filePath);
                 Files.delete(filePath);
                 log.info("Đã xóa file âm thanh: {}", fileName);
+                if (!contentAddressed) {
+                    audioStorageStats.recordLegacyDeleted(fileName, size);
+                }
+            }
+            if (contentAddressed) {
+                audioAssetService.forget(fileName);
             }
         } catch (Exception e) {
             log.error("Lỗi khi xóa file âm thanh: {}", audioUrl, e);
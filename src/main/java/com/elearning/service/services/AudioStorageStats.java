@@ -0,0 +1,236 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.AudioAsset;
+import com.elearning.service.repositories.AudioAssetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audio storage counters (clips and bytes per provider, language and voice), kept up to date on write and delete.
+ *
+ * Stats endpoints read these counters instead of listing and stat-ing the audio
+ * directory, so they cost the same with ten or ten million clips. Content-addressed
+ * clips are counted from their audio_assets rows; standalone files from before that
+ * (random names) are counted under provider google_neural when their name says so, as
+ * the Google TTS stats always did, and under "legacy" otherwise. A background reconcile
+ * recounts from one GROUP BY over audio_assets plus a single pass over the top level of
+ * the audio directory and adds the difference to the live counters, which corrects
+ * drift from files removed by hand. Each counter carries a generation bumped on every
+ * update; a counter updated while the recount ran is left alone (the recount may or
+ * may not include that update) and corrected by a later run, so updates recorded while
+ * it runs are neither lost nor counted twice. Only a write committed before the recount
+ * but recorded after it has finished can be off, until the next run.
+ */
+@Service
+@Slf4j
+public class AudioStorageStats {
+
+    public static final String LEGACY = "legacy";
+    private static final String UNKNOWN = "unknown";
+
+    private final AudioAssetRepository audioAssetRepository;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile long lastDriftFiles;
+
+    @Value("${app.audio.storage.path:./audio}")
+    private String audioStoragePath;
+
+    public AudioStorageStats(AudioAssetRepository audioAssetRepository) {
+        this.audioAssetRepository = audioAssetRepository;
+    }
+
+    private static final class Counter {
+        final String provider;
+        final String language;
+        final String voice;
+        final LongAdder files = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final AtomicLong generation = new AtomicLong();
+
+        Counter(String provider, String language, String voice) {
+            this.provider = provider;
+            this.language = language;
+            this.voice = voice;
+        }
+    }
+
+    /**
+     * A clip was stored (a new audio_assets row)
+     */
+    public void recordStored(String provider, String language, String voice, long bytes) {
+        add(counters, provider, language, voice, 1, bytes);
+    }
+
+    /**
+     * A clip's row was removed
+     */
+    public void recordDeleted(AudioAsset asset) {
+        add(counters, asset.getProvider(), asset.getLanguage(), asset.getVoice(), -1, -asset.getSizeBytes());
+    }
+
+    /**
+     * A standalone file with a legacy (non content-addressed) name was deleted
+     */
+    public void recordLegacyDeleted(String fileName, long bytes) {
+        add(counters, legacyProvider(fileName), UNKNOWN, UNKNOWN, -1, -bytes);
+    }
+
+    public long totalFiles() {
+        return counters.values().stream().mapToLong(counter -> counter.files.sum()).sum();
+    }
+
+    public long totalBytes() {
+        return counters.values().stream().mapToLong(counter -> counter.bytes.sum()).sum();
+    }
+
+    public long filesOf(String provider) {
+        return counters.values().stream()
+                .filter(counter -> counter.provider.equals(provider))
+                .mapToLong(counter -> counter.files.sum())
+                .sum();
+    }
+
+    /**
+     * Totals plus files/bytes by provider, language and voice
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, long[]> byProvider = new TreeMap<>();
+        Map<String, long[]> byLanguage = new TreeMap<>();
+        Map<String, long[]> byVoice = new TreeMap<>();
+        long files = 0;
+        long bytes = 0;
+        for (Counter counter : counters.values()) {
+            long counterFiles = counter.files.sum();
+            long counterBytes = counter.bytes.sum();
+            if (counterFiles == 0 && counterBytes == 0) {
+                continue;
+            }
+            accumulate(byProvider, counter.provider, counterFiles, counterBytes);
+            accumulate(byLanguage, counter.language, counterFiles, counterBytes);
+            accumulate(byVoice, counter.voice, counterFiles, counterBytes);
+            files += counterFiles;
+            bytes += counterBytes;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalFiles", files);
+        stats.put("totalBytes", bytes);
+        stats.put("byProvider", toJson(byProvider));
+        stats.put("byLanguage", toJson(byLanguage));
+        stats.put("byVoice", toJson(byVoice));
+        stats.put("lastReconciledAt", lastReconciledAt);
+        stats.put("lastDriftFiles", lastDriftFiles);
+        return stats;
+    }
+
+    /**
+     * Correct the counters from the database and the audio directory
+     */
+    @Scheduled(fixedDelayString = "${app.audio.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            // Generation trước giá trị: cập nhật xen giữa hai lần đọc sẽ làm generation lệch và khóa đó bị bỏ qua
+            Map<String, long[]> before = new HashMap<>();
+            counters.forEach((key, counter) -> {
+                long generation = counter.generation.get();
+                before.put(key, new long[]{counter.files.sum(), counter.bytes.sum(), generation});
+            });
+
+            Map<String, Counter> recounted = new HashMap<>();
+            for (Object[] row : audioAssetRepository.summarizeByProviderLanguageVoice()) {
+                add(recounted, (String) row[0], (String) row[1], (String) row[2],
+                        ((Number) row[3]).longValue(), ((Number) row[4]).longValue());
+            }
+            countLegacyFiles(recounted);
+
+            Set<String> keys = new HashSet<>(before.keySet());
+            keys.addAll(recounted.keySet());
+            long drift = 0;
+            int deferred = 0;
+            for (String key : keys) {
+                Counter live = counters.get(key);
+                long[] counted = before.getOrDefault(key, new long[3]);
+                if ((live != null ? live.generation.get() : 0) != counted[2]) {
+                    // Cập nhật trong lúc đếm lại: không biết kết quả đếm đã gồm nó chưa, để lần sau sửa
+                    deferred++;
+                    continue;
+                }
+                Counter actual = recounted.get(key);
+                long files = (actual != null ? actual.files.sum() : 0) - counted[0];
+                long bytes = (actual != null ? actual.bytes.sum() : 0) - counted[1];
+                if (files != 0 || bytes != 0) {
+                    Counter labels = actual != null ? actual : live;
+                    add(counters, labels.provider, labels.language, labels.voice, files, bytes);
+                    drift += files;
+                }
+            }
+            lastDriftFiles = drift;
+            lastReconciledAt = LocalDateTime.now();
+            if (lastDriftFiles != 0 || deferred > 0) {
+                log.info("Audio storage stats reconciled, file count corrected by {} ({} counter(s) updated meanwhile left for the next run)",
+                        lastDriftFiles, deferred);
+            }
+        } catch (Exception e) {
+            log.error("Audio storage stats reconcile failed", e);
+        }
+    }
+
+    private void countLegacyFiles(Map<String, Counter> target) throws IOException {
+        Path storage = Paths.get(audioStoragePath);
+        if (!Files.isDirectory(storage)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storage, "*.mp3")) {
+            for (Path file : files) {
+                // Content-addressed files are already counted from their rows
+                String fileName = file.getFileName().toString();
+                if (AudioAssetService.contentHashOf(fileName) == null && Files.isRegularFile(file)) {
+                    add(target, legacyProvider(fileName), UNKNOWN, UNKNOWN, 1, Files.size(file));
+                }
+            }
+        }
+    }
+
+    /**
+     * Provider a legacy file is counted under: old Google TTS files carry it in their name
+     */
+    private static String legacyProvider(String fileName) {
+        return fileName.contains(AudioAssetService.GOOGLE_NEURAL) ? AudioAssetService.GOOGLE_NEURAL : LEGACY;
+    }
+
+    private static void add(Map<String, Counter> target, String provider, String language, String voice,
+                            long files, long bytes) {
+        String key = provider + '\u0000' + language + '\u0000' + voice;
+        Counter counter = target.computeIfAbsent(key, ignored -> new Counter(provider, language, voice));
+        counter.files.add(files);
+        counter.bytes.add(bytes);
+        counter.generation.incrementAndGet();
+    }
+
+    private static void accumulate(Map<String, long[]> target, String key, long files, long bytes) {
+        long[] totals = target.computeIfAbsent(key, ignored -> new long[2]);
+        totals[0] += files;
+        totals[1] += bytes;
+    }
+
+    private static Map<String, Object> toJson(Map<String, long[]> totals) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        totals.forEach((key, value) -> json.put(key, Map.of("files", value[0], "bytes", value[1])));
+        return json;
+    }
+}
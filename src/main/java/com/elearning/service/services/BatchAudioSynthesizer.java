@@ -0,0 +1,188 @@
+package com.elearning.service.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Synthesizes a batch of texts concurrently for one TTS provider.
+ *
+ * Items run on the ttsBatchExecutor; at most app.tts.batch.{provider}.concurrency
+ * calls per provider are in flight across all batches (app.tts.batch.concurrency by
+ * default). Request rate is limited by the provider services themselves through
+ * {@link ProviderRateLimiter}, so batch and single calls share one budget; with the
+ * default 5 req/s that budget, not the concurrency, is what bounds a large batch
+ * (see app.rate-limit.* in application.yml). Every call goes through the provider's
+ * circuit breaker in {@link ProviderRouter}, like the single-card fallback chain.
+ *
+ * A failed item is retried on its own with exponential backoff; the retry runs on the
+ * ttsRetryScheduler once the delay has passed, so no worker thread sleeps, the rest of
+ * the batch is not held up and a full batch queue never pushes a retry onto another
+ * pool's thread (a retry that cannot be scheduled fails the item). Retries stop early
+ * while the provider's circuit is open. Results are handed
+ * to a callback as each item completes.
+ */
+@Service
+@Slf4j
+public class BatchAudioSynthesizer {
+
+    private final TaskExecutor batchExecutor;
+    private final TaskScheduler retryScheduler;
+    private final ProviderRouter providerRouter;
+    private final Environment environment;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    @Value("${app.tts.batch.concurrency:4}")
+    private int defaultConcurrency;
+
+    @Value("${app.tts.batch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.tts.batch.retry-delay-ms:500}")
+    private long retryDelayMillis;
+
+    public BatchAudioSynthesizer(@Qualifier("ttsBatchExecutor") TaskExecutor batchExecutor,
+                                 @Qualifier("ttsRetryScheduler") TaskScheduler retryScheduler,
+                                 ProviderRouter providerRouter, Environment environment) {
+        this.batchExecutor = batchExecutor;
+        this.retryScheduler = retryScheduler;
+        this.providerRouter = providerRouter;
+        this.environment = environment;
+    }
+
+    /**
+     * Synthesize every distinct text; blocks until the batch is done
+     *
+     * @return text → audio URL for the texts that succeeded, in input order
+     */
+    public Map<String, String> synthesizeAll(String provider, List<String> texts, boolean retryable,
+                                             Function<String, String> synthesize) {
+        return synthesize(provider, texts, retryable, synthesize, (text, url) -> { }, () -> false).join();
+    }
+
+    /**
+     * Synthesize every distinct text concurrently
+     *
+     * @param retryable  false when retrying cannot help (e.g. provider not configured)
+     * @param synthesize text → audio URL, or null on failure
+     * @param onResult   called once per text as soon as it is done (URL is null if it failed); may run on any thread
+     * @param cancelled  checked before each item starts, e.g. when a streaming client disconnected
+     * @return text → audio URL for the texts that succeeded, in input order
+     */
+    public CompletableFuture<Map<String, String>> synthesize(String provider, List<String> texts, boolean retryable,
+                                                             Function<String, String> synthesize,
+                                                             BiConsumer<String, String> onResult,
+                                                             BooleanSupplier cancelled) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text != null && !text.isBlank()) {
+                distinct.add(text);
+            }
+        }
+
+        Map<String, String> audioUrls = new ConcurrentHashMap<>();
+        Semaphore providerPermits = permits(provider);
+        int attempts = retryable ? Math.max(1, maxAttempts) : 1;
+
+        List<CompletableFuture<Void>> items = new ArrayList<>(distinct.size());
+        for (String text : distinct) {
+            items.add(CompletableFuture.supplyAsync(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                return synthesizeWithRetry(provider, text, 1, attempts, providerPermits, synthesize).thenAccept(audioUrl -> {
+                    if (audioUrl != null) {
+                        audioUrls.put(text, audioUrl);
+                    }
+                    onResult.accept(text, audioUrl);
+                });
+            }, batchExecutor).thenCompose(Function.identity()));
+        }
+
+        return CompletableFuture.allOf(items.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<String, String> ordered = new LinkedHashMap<>();
+            for (String text : distinct) {
+                String audioUrl = audioUrls.get(text);
+                if (audioUrl != null) {
+                    ordered.put(text, audioUrl);
+                }
+            }
+            return ordered;
+        });
+    }
+
+    /**
+     * Run attempt {@code attempt} on the current thread; a retry is scheduled on the retry scheduler after the backoff
+     */
+    private CompletableFuture<String> synthesizeWithRetry(String provider, String text, int attempt, int attempts,
+                                                          Semaphore providerPermits, Function<String, String> synthesize) {
+        String audioUrl = synthesizeOnce(provider, text, providerPermits, synthesize);
+        if (audioUrl != null) {
+            return CompletableFuture.completedFuture(audioUrl);
+        }
+        if (attempt >= attempts || !providerRouter.isAvailable(provider)) {
+            log.warn("Giving up on batch {} synthesis for '{}' after {} attempt(s)", provider, text, attempt);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Backoff without holding a permit or a thread: 1x, 2x, 4x ...
+        CompletableFuture<String> retry = new CompletableFuture<>();
+        try {
+            retryScheduler.schedule(() -> {
+                try {
+                    synthesizeWithRetry(provider, text, attempt + 1, attempts, providerPermits, synthesize)
+                            .whenComplete((retried, error) -> retry.complete(error == null ? retried : null));
+                } catch (RuntimeException e) {
+                    retry.complete(null);
+                }
+            }, Instant.now().plusMillis(retryDelayMillis << (attempt - 1)));
+        } catch (TaskRejectedException e) {
+            log.warn("Could not schedule batch {} retry for '{}': {}", provider, text, e.getMessage());
+            retry.complete(null);
+        }
+        return retry;
+    }
+
+    /**
+     * One call through the provider's circuit breaker, holding one of its concurrency permits
+     *
+     * @return the audio URL, or null if the call failed or the circuit is open
+     */
+    private String synthesizeOnce(String provider, String text, Semaphore providerPermits,
+                                  Function<String, String> synthesize) {
+        try {
+            providerPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return providerRouter.call(provider, () -> synthesize.apply(text));
+        } finally {
+            providerPermits.release();
+        }
+    }
+
+    private Semaphore permits(String provider) {
+        return permits.computeIfAbsent(provider, name -> {
+            int concurrency = environment.getProperty("app.tts.batch." + name + ".concurrency",
+                    Integer.class, defaultConcurrency);
+            log.info("Batch TTS concurrency for {}: {}", name, concurrency);
+            return new Semaphore(Math.max(1, concurrency));
+        });
+    }
+}
@@ -0,0 +1,153 @@
+package com.elearning.service.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the provider calls of a batch translation concurrently on the translation executor.
+ *
+ * Work is split into chunks (or single words), dispatched in parallel and merged
+ * back in input order. A failed or timed-out chunk only loses its own words: the
+ * caller gets every translation that did arrive and decides how to fill the rest.
+ * Provider rate limits are applied inside the provider calls themselves. Calls run as
+ * plain {@link FutureTask}s so that cancelling a timed-out one interrupts its thread
+ * (a CompletableFuture would only be marked cancelled and keep its worker busy).
+ */
+@Service
+@Slf4j
+public class BatchTranslationDispatcher {
+
+    private final TaskExecutor translationExecutor;
+
+    @Value("${app.translation.batch.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    public BatchTranslationDispatcher(@Qualifier("translationExecutor") TaskExecutor translationExecutor) {
+        this.translationExecutor = translationExecutor;
+    }
+
+    /**
+     * Translate {@code texts} in chunks of {@code chunkSize}, one provider call per chunk
+     *
+     * @param chunkTranslator translates one chunk, returning original text → translation
+     * @return translations in input order; words of failed chunks are absent
+     */
+    public Map<String, String> translateChunks(List<String> texts, int chunkSize,
+                                               Function<List<String>, Map<String, String>> chunkTranslator) {
+        List<String> distinct = distinct(texts);
+        if (distinct.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        int size = Math.max(1, chunkSize);
+        List<Future<Map<String, String>>> futures = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += size) {
+            List<String> chunk = distinct.subList(from, Math.min(from + size, distinct.size()));
+            futures.add(submit(() -> chunkTranslator.apply(chunk)));
+        }
+        log.debug("Dispatched {} words in {} chunks", distinct.size(), futures.size());
+
+        Map<String, String> merged = new HashMap<>();
+        for (Map<String, String> chunkResult : awaitAll(futures)) {
+            merged.putAll(chunkResult);
+        }
+        return inInputOrder(distinct, merged);
+    }
+
+    /**
+     * Translate each text with its own provider call, concurrently
+     *
+     * @param translator translates one text; null or an exception means no translation
+     * @return translations in input order; failed words are absent
+     */
+    public Map<String, String> translateEach(List<String> texts, Function<String, String> translator) {
+        List<String> distinct = distinct(texts);
+        if (distinct.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        List<Future<Map<String, String>>> futures = new ArrayList<>(distinct.size());
+        for (String text : distinct) {
+            futures.add(submit(() -> {
+                String translation = translator.apply(text);
+                return translation != null ? Map.of(text, translation) : Map.of();
+            }));
+        }
+
+        Map<String, String> merged = new HashMap<>();
+        for (Map<String, String> result : awaitAll(futures)) {
+            merged.putAll(result);
+        }
+        return inInputOrder(distinct, merged);
+    }
+
+    /**
+     * Run the call on the translation executor, keeping the task itself so cancel(true) reaches the worker thread
+     */
+    private Future<Map<String, String>> submit(Supplier<Map<String, String>> call) {
+        FutureTask<Map<String, String>> task = new FutureTask<>(call::get);
+        translationExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Wait for every future under one overall deadline, keeping the results that succeeded
+     */
+    private List<Map<String, String>> awaitAll(List<Future<Map<String, String>>> futures) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        List<Map<String, String>> results = new ArrayList<>(futures.size());
+        int failed = 0;
+
+        for (Future<Map<String, String>> future : futures) {
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                failed++;
+                log.warn("Batch translation chunk failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (TimeoutException e) {
+                failed++;
+                future.cancel(true);
+                log.warn("Batch translation chunk timed out after {} s", timeoutSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new IllegalStateException("Bị ngắt khi chờ dịch hàng loạt", e);
+            }
+        }
+
+        if (failed > 0) {
+            log.warn("{} of {} batch translation calls failed", failed, futures.size());
+        }
+        return results;
+    }
+
+    private static List<String> distinct(List<String> texts) {
+        if (texts == null) {
+            return List.of();
+        }
+        return texts.stream().filter(Objects::nonNull).distinct().toList();
+    }
+
+    private static Map<String, String> inInputOrder(List<String> texts, Map<String, String> translations) {
+        Map<String, String> ordered = new LinkedHashMap<>();
+        for (String text : texts) {
+            String translation = translations.get(text);
+            if (translation != null) {
+                ordered.put(text, translation);
+            }
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,315 @@
+package com.elearning.service.services;
+
+import com.elearning.service.dtos.CardAudioStatusDTO;
+import com.elearning.service.entities.Card;
+import com.elearning.service.repositories.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates card audio in the background, after the card is saved.
+ *
+ * Cards are persisted with audio status PENDING and handed to a small bounded worker
+ * pool; a worker runs the TTS fallback chain and fills audio_url (status READY). A
+ * failed attempt is retried with exponential backoff; after the last attempt the card
+ * is marked FAILED and can be retried by hand. Jobs that never ran (queue full,
+ * restart) are picked up again by a periodic sweep of PENDING cards. A result is only
+ * recorded while the card's front is still the text that was synthesized; when the
+ * front was edited meanwhile the card is queued again with its new text.
+ *
+ * Each status change is pushed to the deck owner on /user/queue/card-audio; clients
+ * without a WebSocket poll the audio status endpoint instead.
+ */
+@Service
+@Slf4j
+public class CardAudioService {
+
+    private static final String USER_QUEUE = "/queue/card-audio";
+
+    private final CardRepository cardRepository;
+    private final AudioService audioService;
+    private final AudioAssetService audioAssetService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor audioExecutor;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Cards queued, running or waiting for a retry, so the sweep never submits a card twice
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Value("${app.audio.generation.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.audio.generation.retry-delay-ms:5000}")
+    private long retryDelayMillis;
+
+    @Value("${app.audio.generation.sweep-batch-size:200}")
+    private int sweepBatchSize;
+
+    public CardAudioService(CardRepository cardRepository,
+                            AudioService audioService,
+                            AudioAssetService audioAssetService,
+                            SimpMessagingTemplate messagingTemplate,
+                            TransactionTemplate transactionTemplate,
+                            @Qualifier("audioGenerationExecutor") TaskExecutor audioExecutor,
+                            @Qualifier("taskScheduler") TaskScheduler taskScheduler) {
+        this.cardRepository = cardRepository;
+        this.audioService = audioService;
+        this.audioAssetService = audioAssetService;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.audioExecutor = audioExecutor;
+        this.taskScheduler = taskScheduler;
+    }
+
+    private static AudioJob jobOf(Object[] row) {
+        int attempts = row[5] != null ? ((Number) row[5]).intValue() : 0;
+        return new AudioJob((Long) row[0], (Long) row[2], (String) row[4], (String) row[1], languageOf((String) row[3]), attempts);
+    }
+
+    private record AudioJob(Long cardId, Long deckId, String ownerEmail, String text, String language, int attempt) {
+
+        AudioJob nextAttempt() {
+            return new AudioJob(cardId, deckId, ownerEmail, text, language, attempt + 1);
+        }
+    }
+
+    /**
+     * Queue audio generation for a card saved with status PENDING (after the surrounding transaction commits)
+     */
+    public void enqueue(Card card, String ownerEmail) {
+        Long deckId = card.getDeck().getId();
+        AudioJob job = new AudioJob(card.getId(), deckId, ownerEmail, card.getFront(), languageOf(card.getDeck().getLanguage()),
+                card.getAudioAttempts() != null ? card.getAudioAttempts() : 0);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(job);
+                }
+            });
+        } else {
+            submit(job);
+        }
+    }
+
+    /**
+     * Put a FAILED card back in the queue
+     *
+     * @return false if the card was not FAILED
+     */
+    public boolean retry(Card card, String ownerEmail) {
+        Integer updated = transactionTemplate.execute(status -> cardRepository.updateAudioStatus(
+                card.getId(), Card.AudioStatus.FAILED, Card.AudioStatus.PENDING, 0));
+        if (updated == null || updated == 0) {
+            return false;
+        }
+        card.setAudioStatus(Card.AudioStatus.PENDING);
+        card.setAudioAttempts(0);
+        enqueue(card, ownerEmail);
+        return true;
+    }
+
+    /**
+     * Re-queue PENDING cards whose job was lost (queue overflow, restart)
+     *
+     * Walks every PENDING card in pages of sweep-batch-size (keyset on the card ID, oldest
+     * first) and stops early only when the worker queue is full; the rest wait for the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.audio.generation.sweep-interval-ms:60000}")
+    public void sweepPendingAudio() {
+        int resubmitted = 0;
+        long afterId = 0;
+        boolean queueFull = false;
+        List<Object[]> rows;
+        do {
+            rows = cardRepository.findAudioJobsByStatus(Card.AudioStatus.PENDING, afterId, PageRequest.of(0, sweepBatchSize));
+            for (Object[] row : rows) {
+                Long cardId = (Long) row[0];
+                afterId = cardId;
+                if (inFlight.contains(cardId)) {
+                    continue;
+                }
+                if (!submit(jobOf(row))) {
+                    queueFull = true;
+                    break;
+                }
+                resubmitted++;
+            }
+        } while (!queueFull && rows.size() == sweepBatchSize);
+        if (resubmitted > 0) {
+            log.info("Re-queued audio generation for {} pending card(s)", resubmitted);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("retried", retried.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    public static CardAudioStatusDTO toStatus(Card card) {
+        return CardAudioStatusDTO.builder()
+                .cardId(card.getId())
+                .deckId(card.getDeck() != null ? card.getDeck().getId() : null)
+                .audioStatus(card.getAudioStatus() != null ? card.getAudioStatus().name() : null)
+                .audioUrl(card.getAudioUrl())
+                .attempts(card.getAudioAttempts())
+                .build();
+    }
+
+    private boolean submit(AudioJob job) {
+        if (!inFlight.add(job.cardId())) {
+            return false;
+        }
+        return dispatch(job);
+    }
+
+    private boolean dispatch(AudioJob job) {
+        try {
+            audioExecutor.execute(() -> run(job));
+            return true;
+        } catch (TaskRejectedException e) {
+            // Hàng đợi đầy: thẻ vẫn PENDING, lần quét sau sẽ xử lý
+            inFlight.remove(job.cardId());
+            rejected.incrementAndGet();
+            log.warn("Audio queue full, card {} left for the next sweep", job.cardId());
+            return false;
+        }
+    }
+
+    private void run(AudioJob job) {
+        String audioUrl = null;
+        try {
+            audioUrl = audioService.generateAudioForText(job.text(), job.language());
+        } catch (Exception e) {
+            log.warn("Audio generation failed for card {}: {}", job.cardId(), e.getMessage());
+        }
+
+        try {
+            if (audioUrl != null) {
+                complete(job, audioUrl);
+            } else {
+                fail(job);
+            }
+        } catch (Exception e) {
+            // Lỗi DB: thẻ vẫn PENDING, lần quét sau sẽ thử lại
+            inFlight.remove(job.cardId());
+            log.error("Could not record audio result for card {}", job.cardId(), e);
+        }
+    }
+
+    private void complete(AudioJob job, String audioUrl) {
+        // The UPDATE row-locks the card until acquire commits; deleteCards locks the same row before counting
+        Boolean updated = transactionTemplate.execute(status -> {
+            if (cardRepository.completeAudio(job.cardId(), job.text(), audioUrl, Card.AudioStatus.PENDING, Card.AudioStatus.READY) == 0) {
+                return false;
+            }
+            audioAssetService.acquire(audioUrl);
+            return true;
+        });
+        inFlight.remove(job.cardId());
+
+        if (Boolean.TRUE.equals(updated)) {
+            completed.incrementAndGet();
+            publish(job, Card.AudioStatus.READY, audioUrl, job.attempt());
+        } else {
+            log.debug("Card {} was deleted or changed while its audio was generated", job.cardId());
+            resubmitIfPending(job.cardId());
+        }
+    }
+
+    private void fail(AudioJob job) {
+        AudioJob next = job.nextAttempt();
+        boolean exhausted = next.attempt() >= maxAttempts;
+        Card.AudioStatus newStatus = exhausted ? Card.AudioStatus.FAILED : Card.AudioStatus.PENDING;
+        Integer updated = transactionTemplate.execute(status -> cardRepository.updateAudioStatusForText(
+                job.cardId(), job.text(), Card.AudioStatus.PENDING, newStatus, next.attempt()));
+
+        if (updated == null || updated == 0) {
+            inFlight.remove(job.cardId());
+            resubmitIfPending(job.cardId());
+            return;
+        }
+        if (exhausted) {
+            inFlight.remove(job.cardId());
+            failed.incrementAndGet();
+            log.warn("Giving up on audio for card {} after {} attempts", job.cardId(), next.attempt());
+            publish(job, Card.AudioStatus.FAILED, null, next.attempt());
+            return;
+        }
+
+        // Exponential backoff: retry-delay, 2x, 4x, ...
+        long delay = retryDelayMillis << Math.min(next.attempt() - 1, 10);
+        retried.incrementAndGet();
+        log.info("Audio for card {} failed (attempt {}/{}), retrying in {} ms", job.cardId(), next.attempt(), maxAttempts, delay);
+        taskScheduler.schedule(() -> dispatch(next), Instant.now().plusMillis(delay));
+    }
+
+    /**
+     * A job found its card changed: if the card was edited (PENDING with a new front), run it again now
+     * instead of waiting for the sweep, since the edit could not queue it while this job was in flight
+     */
+    private void resubmitIfPending(Long cardId) {
+        try {
+            cardRepository.findAudioJobByIdAndStatus(cardId, Card.AudioStatus.PENDING).stream()
+                    .findFirst()
+                    .ifPresent(row -> submit(jobOf(row)));
+        } catch (Exception e) {
+            log.debug("Card {} left for the next sweep: {}", cardId, e.getMessage());
+        }
+    }
+
+    private void publish(AudioJob job, Card.AudioStatus status, String audioUrl, int attempts) {
+        if (job.ownerEmail() == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(job.ownerEmail(), USER_QUEUE, CardAudioStatusDTO.builder()
+                    .cardId(job.cardId())
+                    .deckId(job.deckId())
+                    .audioStatus(status.name())
+                    .audioUrl(audioUrl)
+                    .attempts(attempts)
+                    .build());
+        } catch (Exception e) {
+            log.debug("Could not push audio status of card {}: {}", job.cardId(), e.getMessage());
+        }
+    }
+
+    private static String languageOf(String deckLanguage) {
+        // Sử dụng ngôn ngữ từ deck thay vì auto-detect
+        return deckLanguage != null && !deckLanguage.isEmpty() ? deckLanguage : "en";
+    }
+}
@@ -0,0 +1,102 @@
+package com.elearning.service.services;
+
+import com.elearning.service.repositories.CardRepository;
+import com.elearning.service.repositories.ReviewHistoryRepository;
+import com.elearning.service.repositories.SpacedRepetitionRepository;
+import com.elearning.service.repositories.UserCardProgressRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based deletion of cards and every row that references them.
+ *
+ * Bypasses the JPA cascade on Card.userProgress (which loads and deletes each
+ * progress row one by one): each dependent table is cleared with a single bulk
+ * DELETE, so the cost does not grow with the number of users sharing a card.
+ *
+ * The cards are row-locked before their audio URLs are read. Background audio
+ * completion updates the card and acquires the asset in one transaction, so the
+ * two serialize on the card row and the audio reference count cannot drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardDeletionService {
+
+    private final CardRepository cardRepository;
+    private final ReviewHistoryRepository reviewHistoryRepository;
+    private final SpacedRepetitionRepository spacedRepetitionRepository;
+    private final UserCardProgressRepository userCardProgressRepository;
+    private final AudioService audioService;
+    private final AudioAssetService audioAssetService;
+    private final DistractorIndexService distractorIndexService;
+    private final QuizStatsService quizStatsService;
+
+    /**
+     * Delete cards with one bulk statement per table, in the caller's transaction
+     *
+     * @param deckId  deck the cards belong to
+     * @param cardIds IDs of the cards to delete (caller checks ownership)
+     * @return audio URLs that were attached to the deleted cards
+     */
+    @Transactional
+    public List<String> deleteCards(Long deckId, List<Long> cardIds) {
+        if (cardIds == null || cardIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Khóa thẻ trước khi đếm: nếu không, audio hoàn tất song song bị acquire mà không bao giờ release
+        Map<String, Long> cardsByAudioUrl = new HashMap<>();
+        for (String audioUrl : cardRepository.lockAudioUrlsByIdIn(cardIds)) {
+            if (audioUrl != null) {
+                cardsByAudioUrl.merge(audioUrl, 1L, Long::sum);
+            }
+        }
+        List<String> audioUrls = new ArrayList<>(cardsByAudioUrl.keySet());
+
+        int reviews = reviewHistoryRepository.deleteByCardIdIn(cardIds);
+        int repetitions = spacedRepetitionRepository.deleteByCardIdIn(cardIds);
+        int progress = userCardProgressRepository.deleteByCardIdIn(cardIds);
+        quizStatsService.deleteByCardIds(cardIds);
+        int cards = cardRepository.deleteAllByIdIn(cardIds);
+        audioAssetService.release(cardsByAudioUrl);
+        distractorIndexService.onCardsDeleted(deckId, cardIds);
+
+        log.debug("Deleted {} cards ({} progress, {} spaced repetition, {} review history rows)",
+                cards, progress, repetitions, reviews);
+        return audioUrls;
+    }
+
+    /**
+     * Remove audio files that no remaining card points to.
+     * Call after the deleting transaction has committed.
+     *
+     * @return number of files deleted
+     */
+    public int deleteOrphanedAudio(Collection<String> audioUrls) {
+        if (audioUrls == null || audioUrls.isEmpty()) {
+            return 0;
+        }
+
+        List<String> candidates = new ArrayList<>(new HashSet<>(audioUrls));
+        Set<String> stillReferenced = new HashSet<>(cardRepository.findReferencedAudioUrls(candidates));
+        int deleted = 0;
+        for (String audioUrl : candidates) {
+            if (!stillReferenced.contains(audioUrl)) {
+                audioService.deleteAudioFile(audioUrl);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
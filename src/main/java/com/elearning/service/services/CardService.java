@@ -1,6 +1,7 @@
 package com.elearning.service.services;
 
 import com.elearning.service.dto.CardTranslationData;
+import com.elearning.service.dtos.CardAudioStatusDTO;
 import com.elearning.service.dtos.CardDTO;
 import com.elearning.service.dtos.CreateCardDTO;
 import com.elearning.service.dtos.StudyStatsDTO;
@@ -10,6 +11,7 @@ import com.elearning.service.entities.Card;
 import com.elearning.service.entities.Deck;
 import com.elearning.service.entities.User;
 import com.elearning.service.entities.UserCardProgress;
+import com.elearning.service.exceptions.CustomException;
 import com.elearning.service.repositories.CardRepository;
 import com.elearning.service.repositories.DeckRepository;
 import com.elearning.service.repositories.UserRepository;
@@ -19,8 +21,12 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,14 +38,19 @@ public class CardService {
     private final DeckRepository deckRepository;
     private final UserRepository userRepository;
     private final UserCardProgressRepository userCardProgressRepository;
-    private final AudioService audioService;
     private final TranslationService translationService;
     private final com.elearning.service.repositories.ReviewHistoryRepository reviewHistoryRepository;
+    private final CardDeletionService cardDeletionService;
+    private final DistractorIndexService distractorIndexService;
+    private final QuizWeaknessService quizWeaknessService;
+    private final LanguageDetectionService languageDetectionService;
+    private final CardAudioService cardAudioService;
+    private final AudioAssetService audioAssetService;
 
     public CardDTO createCard(Long deckId, CreateCardDTO createCardDTO) {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         
-        Deck deck = deckRepository.findById(deckId)
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         // Kiểm tra quyền sở hữu
@@ -52,11 +63,13 @@ public class CardService {
         card.setBack(createCardDTO.getBackText());
         card.setDeck(deck);
         
-        // Tạo âm thanh sử dụng ngôn ngữ từ deck
-        String audioUrl = generateAudioForCard(createCardDTO.getFrontText(), deck.getLanguage());
-        card.setAudioUrl(audioUrl);
+        // Âm thanh được tạo nền sau khi lưu thẻ (ngôn ngữ từ deck)
+        card.setAudioStatus(Card.AudioStatus.PENDING);
+        card.setAudioAttempts(0);
         
         Card savedCard = cardRepository.save(card);
+        cardAudioService.enqueue(savedCard, currentUserEmail);
+        distractorIndexService.onCardSaved(deck.getId(), savedCard);
         
         return mapToCardDTO(savedCard);
     }
@@ -64,7 +77,7 @@ public class CardService {
     public List<CardDTO> getCardsByDeck(Long deckId) {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         
-        Deck deck = deckRepository.findById(deckId)
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         // Kiểm tra quyền sở hữu
@@ -88,6 +101,7 @@ public class CardService {
         cardDTO.setFrontText(card.getFront());
         cardDTO.setBackText(card.getBack());
         cardDTO.setAudioUrl(card.getAudioUrl());
+        cardDTO.setAudioStatus(card.getAudioStatus() != null ? card.getAudioStatus().name() : null);
         
         // Các trường spaced repetition sẽ được lấy từ UserCardProgress
         // Tạm thời set giá trị mặc định
@@ -108,11 +122,13 @@ public class CardService {
         card.setBack(createCardDTO.getBackText());
         card.setDeck(deck);
         
-        // Tạo âm thanh sử dụng ngôn ngữ từ deck
-        String audioUrl = generateAudioForCard(createCardDTO.getFrontText(), deck.getLanguage());
-        card.setAudioUrl(audioUrl);
+        // Âm thanh được tạo nền sau khi lưu thẻ (ngôn ngữ từ deck)
+        card.setAudioStatus(Card.AudioStatus.PENDING);
+        card.setAudioAttempts(0);
         
         Card savedCard = cardRepository.save(card);
+        cardAudioService.enqueue(savedCard, deck.getUser().getEmail());
+        distractorIndexService.onCardSaved(deck.getId(), savedCard);
         
         return mapToCardDTO(savedCard);
     }
@@ -126,6 +142,7 @@ public class CardService {
         cardDTO.setFrontText(card.getFront());
         cardDTO.setBackText(card.getBack());
         cardDTO.setAudioUrl(card.getAudioUrl());
+        cardDTO.setAudioStatus(card.getAudioStatus() != null ? card.getAudioStatus().name() : null);
         
         // Lấy tiến độ học tập từ UserCardProgress
         Optional<UserCardProgress> progressOpt = userCardProgressRepository.findByUserAndCard(user, card);
@@ -165,7 +182,9 @@ public class CardService {
     private Card getAndVerifyCardOwnership(Long cardId) {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         
+        // Thẻ thuộc bộ thẻ đã xóa (đang chờ dọn) coi như không tồn tại
         Card card = cardRepository.findById(cardId)
+                .filter(found -> found.getDeck().getDeletedAt() == null)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy thẻ với ID: " + cardId));
         
         // Kiểm tra quyền sở hữu thông qua Deck
@@ -176,20 +195,107 @@ public class CardService {
         return card;
     }
 
+    /**
+     * Sửa nội dung thẻ
+     * 
+     * Chỉ ghi front/back: audio_url/audio_status do worker nền cập nhật song song, lưu
+     * cả entity sẽ ghi đè kết quả của nó. Đổi front thì âm thanh cũ không còn đúng: thẻ
+     * trở lại PENDING và được đưa vào hàng đợi tạo âm thanh lần nữa.
+     */
+    @Transactional
     public CardDTO updateCard(Long cardId, CreateCardDTO cardDetails) {
         Card card = getAndVerifyCardOwnership(cardId);
+        String front = cardDetails.getFrontText();
+        String back = cardDetails.getBackText();
+        LocalDateTime now = LocalDateTime.now();
+        boolean frontChanged = !Objects.equals(card.getFront(), front);
         
-        card.setFront(cardDetails.getFrontText());
-        card.setBack(cardDetails.getBackText());
+        if (!frontChanged) {
+            cardRepository.updateText(cardId, front, back, now);
+        } else {
+            // Khóa thẻ rồi mới đọc audio_url: worker hoàn tất song song phải chờ, số tham chiếu không lệch
+            Map<String, Long> oldAudio = new HashMap<>();
+            for (String audioUrl : cardRepository.lockAudioUrlsByIdIn(List.of(cardId))) {
+                if (audioUrl != null) {
+                    oldAudio.put(audioUrl, 1L);
+                }
+            }
+            cardRepository.updateTextAndResetAudio(cardId, front, back, now, Card.AudioStatus.PENDING);
+            if (!oldAudio.isEmpty()) {
+                audioAssetService.release(oldAudio);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        cardDeletionService.deleteOrphanedAudio(oldAudio.keySet());
+                    }
+                });
+            }
+            card.setAudioUrl(null);
+            card.setAudioStatus(Card.AudioStatus.PENDING);
+            card.setAudioAttempts(0);
+        }
         
-        Card updatedCard = cardRepository.save(card);
+        // Entity đã tách khỏi persistence context sau câu UPDATE: chỉ cập nhật để trả về
+        card.setFront(front);
+        card.setBack(back);
+        card.setUpdatedAt(now);
+        if (frontChanged) {
+            cardAudioService.enqueue(card, card.getDeck().getUser().getEmail());
+        }
+        distractorIndexService.onCardSaved(card.getDeck().getId(), card);
         
-        return mapToCardDTO(updatedCard);
+        return mapToCardDTO(card);
     }
 
+    @Transactional
     public void deleteCard(Long cardId) {
-        getAndVerifyCardOwnership(cardId);
-        cardRepository.deleteById(cardId);
+        Card card = getAndVerifyCardOwnership(cardId);
+        deleteCardsAndScheduleAudioCleanup(card.getDeck().getId(), List.of(cardId));
+    }
+
+    /**
+     * Xóa nhiều thẻ trong một transaction, mỗi bảng chỉ một câu lệnh DELETE
+     * 
+     * @return Số thẻ đã xóa
+     */
+    @Transactional
+    public int deleteCards(Long deckId, List<Long> cardIds) {
+        String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
+        
+        // Kiểm tra quyền sở hữu
+        if (!deck.getUser().getEmail().equals(currentUserEmail)) {
+            throw new AccessDeniedException("Bạn không có quyền xóa thẻ trong bộ thẻ này");
+        }
+        
+        // Chỉ xóa những thẻ thực sự thuộc deck này
+        List<Long> requestedIds = new ArrayList<>(new LinkedHashSet<>(cardIds));
+        List<Long> ownedCardIds = cardRepository.findIdsByDeckIdAndIdIn(deckId, requestedIds);
+        if (ownedCardIds.size() != requestedIds.size()) {
+            throw new AccessDeniedException("Một số thẻ không thuộc bộ thẻ này");
+        }
+        
+        deleteCardsAndScheduleAudioCleanup(deckId, ownedCardIds);
+        return ownedCardIds.size();
+    }
+
+    /**
+     * Xóa thẻ bằng bulk statements và dọn file âm thanh mồ côi sau khi commit
+     */
+    private void deleteCardsAndScheduleAudioCleanup(Long deckId, List<Long> cardIds) {
+        List<String> audioUrls = cardDeletionService.deleteCards(deckId, cardIds);
+        if (audioUrls.isEmpty()) {
+            return;
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cardDeletionService.deleteOrphanedAudio(audioUrls);
+            }
+        });
     }
 
     /**
@@ -202,7 +308,7 @@ public class CardService {
         System.out.println("Getting study stats for user: " + currentUser.getEmail()); // Debug log
         
         // Đếm tổng số deck của user
-        long totalDecks = deckRepository.countByUser(currentUser);
+        long totalDecks = deckRepository.countByUserAndDeletedAtIsNull(currentUser);
         System.out.println("Total decks: " + totalDecks); // Debug log
         
         // Đếm tổng số thẻ của user
@@ -409,7 +515,9 @@ public class CardService {
     public CardDTO reviewCard(Long cardId, Integer quality) {
         User currentUser = getCurrentUser();
         
+        // Thẻ thuộc bộ thẻ đã xóa (đang chờ dọn) coi như không tồn tại
         Card card = cardRepository.findById(cardId)
+                .filter(found -> found.getDeck().getDeletedAt() == null)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy thẻ với ID: " + cardId));
         
         // Kiểm tra quyền truy cập thẻ
@@ -466,50 +574,47 @@ public class CardService {
         progress.setTotalReviews(progress.getTotalReviews() + 1);
         
         userCardProgressRepository.save(progress);
+        quizWeaknessService.invalidate(currentUser.getId());
         
         return mapToCardDTO(card);
     }
 
     /**
-     * Tự động tạo âm thanh cho từ vựng
+     * Trạng thái âm thanh của các thẻ trong deck (tất cả thẻ nếu không truyền cardIds)
      */
-    private String generateAudioForCard(String frontText, String deckLanguage) {
-        try {
-            // Sử dụng ngôn ngữ từ deck thay vì auto-detect
-            String language = (deckLanguage != null && !deckLanguage.isEmpty()) ? deckLanguage : "en";
-            
-            // Tạo âm thanh
-            return audioService.generateAudioForText(frontText, language);
-        } catch (Exception e) {
-            // Nếu có lỗi, không làm gián đoạn việc tạo card
-            return null;
+    public List<CardAudioStatusDTO> getAudioStatus(Long deckId, List<Long> cardIds) {
+        String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
+        
+        // Kiểm tra quyền sở hữu
+        if (!deck.getUser().getEmail().equals(currentUserEmail)) {
+            throw new AccessDeniedException("Bạn không có quyền xem các thẻ trong bộ thẻ này");
         }
+        
+        List<Card> cards = cardIds == null || cardIds.isEmpty()
+                ? cardRepository.findAllByDeckId(deckId)
+                : cardRepository.findAllByDeckIdAndIdIn(deckId, cardIds);
+        return cards.stream()
+                .map(CardAudioService::toStatus)
+                .collect(Collectors.toList());
     }
 
     /**
-     * Phát hiện ngôn ngữ của text
+     * Tạo lại âm thanh cho thẻ đã thất bại
      */
-    private String detectLanguage(String text) {
-        // Kiểm tra ký tự tiếng Việt
-        if (text.matches(".*[àáạảãâầấậẩẫăằắặẳẵèéẹẻẽêềếệểễìíịỉĩòóọỏõôồốộổỗơờớợởỡùúụủũưừứựửữỳýỵỷỹđ].*")) {
-            return "vi";
-        }
-        // Kiểm tra ký tự tiếng Nhật (Hiragana, Katakana, Kanji)
-        else if (text.matches(".*[\u3040-\u309F\u30A0-\u30FF\u4E00-\u9FAF].*")) {
-            return "ja";
-        }
-        // Kiểm tra ký tự tiếng Hàn
-        else if (text.matches(".*[\uAC00-\uD7AF\u1100-\u11FF\u3130-\u318F].*")) {
-            return "ko";
-        }
-        // Kiểm tra ký tự tiếng Trung
-        else if (text.matches(".*[\u4E00-\u9FAF].*")) {
-            return "zh";
+    public CardAudioStatusDTO retryCardAudio(Long deckId, Long cardId) {
+        Card card = getAndVerifyCardOwnership(cardId);
+        if (!card.getDeck().getId().equals(deckId)) {
+            throw CustomException.notFound("Không tìm thấy thẻ " + cardId + " trong bộ thẻ " + deckId);
         }
-        // Mặc định tiếng Anh
-        else {
-            return "en";
+        
+        if (card.getAudioStatus() != Card.AudioStatus.FAILED
+                || !cardAudioService.retry(card, card.getDeck().getUser().getEmail())) {
+            throw CustomException.conflict("Thẻ không ở trạng thái FAILED, không thể tạo lại âm thanh");
         }
+        return CardAudioService.toStatus(card);
     }
 
     /**
@@ -518,7 +623,7 @@ public class CardService {
     public BulkCreateCardsResponse createCardsWithTranslation(Long deckId, BulkCreateCardsRequest request) {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         
-        Deck deck = deckRepository.findById(deckId)
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         // Kiểm tra quyền sở hữu
@@ -534,7 +639,7 @@ public class CardService {
         // Auto-detect source language if requested
         String sourceLanguage = request.getSourceLanguage();
         if (request.isAutoDetectLanguage() && !request.getWords().isEmpty()) {
-            sourceLanguage = translationService.detectLanguage(request.getWords().get(0));
+            sourceLanguage = languageDetectionService.detectDominant(request.getWords());
         }
 
         // Batch translate all words with AI enhancement
@@ -583,7 +688,7 @@ public class CardService {
     public BulkCreateCardsResponse createCardsFromTranslations(Long deckId, List<CardTranslationData> cardsData) {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         
-        Deck deck = deckRepository.findById(deckId)
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         // Kiểm tra quyền sở hữu (temporarily disabled for testing)
@@ -37,6 +37,7 @@ public class DailyReviewService {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final ReviewHistoryRepository reviewHistoryRepository;
+    private final QuizWeaknessService quizWeaknessService;
 
     /**
      * Get daily review overview for user
@@ -198,6 +199,7 @@ public class DailyReviewService {
             history.setIsSuccessful(quality >= 3);
             
             reviewHistoryRepository.save(history);
+            quizWeaknessService.invalidate(userId);
             log.info("Saved review history for user {} card {}: quality={}, phase={}", 
                     userId, cardId, quality, oldPhase);
             
@@ -0,0 +1,149 @@
+package com.elearning.service.services;
+
+import com.elearning.service.repositories.CardRepository;
+import com.elearning.service.repositories.DeckRepository;
+import com.elearning.service.repositories.LearningProgressRepository;
+import com.elearning.service.repositories.QuizSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background job that physically removes tombstoned decks.
+ *
+ * Cards are processed in fixed-size chunks; each chunk runs one bulk DELETE per
+ * dependent table inside its own short transaction, so a huge deck never holds
+ * long locks or builds an unbounded IN list. Audio files that are no longer
+ * referenced by any card are removed after each chunk. Purges always run on the
+ * maintenance executor, never on a scheduler thread, so a backlog of large decks
+ * does not hold up other scheduled jobs.
+ */
+@Service
+@Slf4j
+public class DeckCleanupService {
+
+    private final DeckRepository deckRepository;
+    private final CardRepository cardRepository;
+    private final QuizSessionRepository quizSessionRepository;
+    private final LearningProgressRepository learningProgressRepository;
+    private final CardDeletionService cardDeletionService;
+    private final DistractorIndexService distractorIndexService;
+    private final QuizStatsService quizStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor maintenanceExecutor;
+
+    @Value("${app.deck.cleanup.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.deck.cleanup.retry-after-minutes:10}")
+    private long retryAfterMinutes;
+
+    /**
+     * Decks currently being purged, so the async job and the sweeper never work on the same deck
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public DeckCleanupService(DeckRepository deckRepository,
+                              CardRepository cardRepository,
+                              QuizSessionRepository quizSessionRepository,
+                              LearningProgressRepository learningProgressRepository,
+                              CardDeletionService cardDeletionService,
+                              DistractorIndexService distractorIndexService,
+                              QuizStatsService quizStatsService,
+                              TransactionTemplate transactionTemplate,
+                              @Qualifier("maintenanceExecutor") TaskExecutor maintenanceExecutor) {
+        this.deckRepository = deckRepository;
+        this.cardRepository = cardRepository;
+        this.quizSessionRepository = quizSessionRepository;
+        this.learningProgressRepository = learningProgressRepository;
+        this.cardDeletionService = cardDeletionService;
+        this.distractorIndexService = distractorIndexService;
+        this.quizStatsService = quizStatsService;
+        this.transactionTemplate = transactionTemplate;
+        this.maintenanceExecutor = maintenanceExecutor;
+    }
+
+    /**
+     * Purge a tombstoned deck in the background
+     */
+    @Async("maintenanceExecutor")
+    public void purgeDeckAsync(Long deckId) {
+        purgeDeck(deckId);
+    }
+
+    /**
+     * Re-run purges that were interrupted (restart, queue overflow, DB error)
+     *
+     * Only queues the purges: the scheduler thread returns right away.
+     */
+    @Scheduled(fixedDelayString = "${app.deck.cleanup.sweep-interval-ms:600000}")
+    public void sweepTombstonedDecks() {
+        List<Long> deckIds = deckRepository.findTombstonedDeckIds(
+                LocalDateTime.now().minusMinutes(retryAfterMinutes));
+        if (deckIds.isEmpty()) {
+            return;
+        }
+        log.info("Resuming cleanup of {} tombstoned deck(s)", deckIds.size());
+        for (Long deckId : deckIds) {
+            if (inFlight.contains(deckId)) {
+                continue;
+            }
+            try {
+                maintenanceExecutor.execute(() -> purgeDeck(deckId));
+            } catch (TaskRejectedException e) {
+                log.warn("Cleanup queue is full, remaining tombstoned decks wait for the next sweep");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delete all data of a tombstoned deck, chunk by chunk
+     */
+    public void purgeDeck(Long deckId) {
+        if (!inFlight.add(deckId)) {
+            log.debug("Deck {} is already being purged", deckId);
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            int totalCards = 0;
+            int deletedAudioFiles = 0;
+
+            List<Long> cardIds;
+            while (!(cardIds = cardRepository.findIdsByDeckId(deckId, PageRequest.of(0, chunkSize))).isEmpty()) {
+                List<String> audioUrls = cardDeletionService.deleteCards(deckId, cardIds);
+                deletedAudioFiles += cardDeletionService.deleteOrphanedAudio(audioUrls);
+                totalCards += cardIds.size();
+            }
+
+            distractorIndexService.evict(deckId);
+            transactionTemplate.executeWithoutResult(status -> {
+                quizSessionRepository.deleteByDeckId(deckId);
+                learningProgressRepository.deleteByDeckId(deckId);
+                quizStatsService.deleteByDeckId(deckId);
+                deckRepository.deleteTombstoned(deckId);
+            });
+
+            log.info("Purged deck {}: {} cards, {} audio files in {} ms",
+                    deckId, totalCards, deletedAudioFiles, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to purge deck {}, will retry on next sweep", deckId, e);
+        } finally {
+            inFlight.remove(deckId);
+        }
+    }
+}
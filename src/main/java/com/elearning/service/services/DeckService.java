@@ -6,30 +6,31 @@ import com.elearning.service.entities.Deck;
 import com.elearning.service.entities.User;
 import com.elearning.service.repositories.DeckRepository;
 import com.elearning.service.repositories.UserRepository;
-import com.elearning.service.repositories.ReviewHistoryRepository;
-import com.elearning.service.repositories.SpacedRepetitionRepository;
-import com.elearning.service.repositories.CardRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class DeckService {
 
     private final DeckRepository deckRepository;
     private final UserRepository userRepository;
     private final ModelMapper modelMapper;
-    private final ReviewHistoryRepository reviewHistoryRepository;
-    private final SpacedRepetitionRepository spacedRepetitionRepository;
-    private final CardRepository cardRepository;
+    private final DeckCleanupService deckCleanupService;
 
     public List<DeckDTO> getDecksForCurrentUser() {
         // Yêu cầu Copilot: Viết logic hoàn chỉnh cho phương thức getDecksForCurrentUser.
@@ -44,8 +45,9 @@ public class DeckService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         
         // 3. Truy vấn danh sách bộ thẻ:
-        //    - Gọi phương thức deckRepository.findAllByUserId(user.getId()) để lấy về một List<Deck>.
-        List<Deck> decks = deckRepository.findAllByUserId(user.getId());
+        //    - Gọi phương thức deckRepository.findAllByUserIdAndDeletedAtIsNull(user.getId()) để lấy về một List<Deck>
+        //      (bỏ qua các bộ thẻ đã bị xóa nhưng chưa được dọn dẹp).
+        List<Deck> decks = deckRepository.findAllByUserIdAndDeletedAtIsNull(user.getId());
         
         // 4. Chuyển đổi List<Deck> thành List<DeckDTO>:
         //    - Sử dụng Java Stream API (.stream()) kết hợp với ModelMapper.
@@ -76,7 +78,7 @@ public class DeckService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
         
-        List<Deck> decks = deckRepository.findAllByUserId(user.getId());
+        List<Deck> decks = deckRepository.findAllByUserIdAndDeletedAtIsNull(user.getId());
         
         return decks.stream()
                 .map(deck -> {
@@ -115,7 +117,7 @@ public class DeckService {
     private Deck getAndVerifyDeckOwnership(Long deckId) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         
-        Deck deck = deckRepository.findById(deckId)
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
                 .orElseThrow(() -> new RuntimeException("Deck not found with id: " + deckId));
         
         if (!deck.getUser().getEmail().equals(email)) {
@@ -138,28 +140,29 @@ public class DeckService {
         return deckDTO;
     }
 
+    /**
+     * Xóa bộ thẻ: ghi tombstone ngay để bộ thẻ biến mất khỏi danh sách,
+     * phần dọn dẹp cards/tiến độ/lịch sử/âm thanh chạy nền trong DeckCleanupService
+     */
     @Transactional
     public void deleteDeck(Long deckId) {
         // Verify ownership first
-        Deck deck = getAndVerifyDeckOwnership(deckId);
-        
-        // Get all card IDs in this deck
-        List<Long> cardIds = deck.getCards().stream()
-                .map(card -> card.getId())
-                .collect(Collectors.toList());
-        
-        if (!cardIds.isEmpty()) {
-            // Step 1: Delete review_history first (has FK to cards)
-            reviewHistoryRepository.deleteByCardIdIn(cardIds);
-            
-            // Step 2: Delete spaced_repetition (has FK to cards)
-            spacedRepetitionRepository.deleteByCardIdIn(cardIds);
-            
-            // Step 3: Delete cards (has FK to deck)
-            cardRepository.deleteByDeckId(deckId);
-        }
-        
-        // Step 4: Finally delete the deck
-        deckRepository.deleteById(deckId);
+        getAndVerifyDeckOwnership(deckId);
+        
+        // Tombstone the deck
+        deckRepository.markDeleted(deckId, LocalDateTime.now());
+        
+        // Schedule the purge once the tombstone is committed;
+        // if the queue is full the periodic sweep picks it up later
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    deckCleanupService.purgeDeckAsync(deckId);
+                } catch (TaskRejectedException e) {
+                    log.warn("Cleanup queue is full, deck {} will be purged by the next sweep", deckId);
+                }
+            }
+        });
     }
 }
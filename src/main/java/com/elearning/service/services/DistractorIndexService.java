@@ -0,0 +1,92 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.Card;
+import com.elearning.service.utils.DistractorIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link DistractorIndex} per deck for quiz wrong-answer generation.
+ *
+ * Indexes are built lazily from the deck's cards the first time a quiz needs
+ * them, kept in a bounded LRU cache and updated incrementally when cards are
+ * created, edited or deleted, so starting a quiz never rescans the deck text.
+ */
+@Service
+@Slf4j
+public class DistractorIndexService {
+
+    private final Map<Long, DistractorIndex> indexes;
+
+    public DistractorIndexService(@Value("${app.quiz.distractor-index.max-decks:200}") int maxDecks) {
+        this.indexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DistractorIndex> eldest) {
+                return size() > maxDecks;
+            }
+        });
+    }
+
+    /**
+     * Get the index of a deck, building it from the given (already loaded) cards if needed
+     */
+    public DistractorIndex getOrBuild(Long deckId, List<Card> deckCards) {
+        DistractorIndex index = indexes.get(deckId);
+        if (index != null && index.size() == deckCards.size()) {
+            return index;
+        }
+
+        long start = System.currentTimeMillis();
+        DistractorIndex built = new DistractorIndex();
+        for (Card card : deckCards) {
+            built.put(card.getId(), card.getBack());
+        }
+        indexes.put(deckId, built);
+        log.debug("Built distractor index for deck {} ({} cards) in {} ms",
+                deckId, deckCards.size(), System.currentTimeMillis() - start);
+        return built;
+    }
+
+    /**
+     * Pick up to {@code count} plausible wrong-answer card IDs for a card
+     */
+    public List<Long> findDistractors(DistractorIndex index, Card card, int count) {
+        return index.findDistractors(card.getId(), card.getBack(), count);
+    }
+
+    /**
+     * Reflect a created or edited card in its deck's index (if cached)
+     */
+    public void onCardSaved(Long deckId, Card card) {
+        DistractorIndex index = indexes.get(deckId);
+        if (index != null) {
+            index.put(card.getId(), card.getBack());
+        }
+    }
+
+    /**
+     * Drop deleted cards from their deck's index (if cached)
+     */
+    public void onCardsDeleted(Long deckId, Collection<Long> cardIds) {
+        DistractorIndex index = indexes.get(deckId);
+        if (index != null) {
+            for (Long cardId : cardIds) {
+                index.remove(cardId);
+            }
+        }
+    }
+
+    /**
+     * Forget a deck's index (deck deleted)
+     */
+    public void evict(Long deckId) {
+        indexes.remove(deckId);
+    }
+}
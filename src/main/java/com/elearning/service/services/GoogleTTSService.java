@@ -1,5 +1,6 @@
 package com.elearning.service.services;
 
+import com.elearning.service.utils.SingleFlight;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -9,10 +10,6 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 
 @Service
@@ -22,6 +19,13 @@ public class GoogleTTSService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final AudioAssetService audioAssetService;
+    private final ProviderRateLimiter rateLimiter;
+    private final BatchAudioSynthesizer batchAudioSynthesizer;
+    private final AudioStorageStats audioStorageStats;
+    
+    // Concurrent requests for the same text/voice wait for one synthesis and share its file
+    private final SingleFlight<String> synthesisFlights = new SingleFlight<>();
 
     @Value("${google.translate.api.key:}")
     private String googleApiKey;
@@ -29,30 +33,33 @@ public class GoogleTTSService {
     @Value("${google.tts.url:https://texttospeech.googleapis.com/v1/text:synthesize}")
     private String googleTTSUrl;
 
-    @Value("${app.audio.storage.path:./audio}")
-    private String audioStoragePath;
-
-    @Value("${app.audio.base-url:http://localhost:8080/api/audio}")
-    private String audioBaseUrl;
-
     /**
      * Generate high-quality neural audio using Google Cloud TTS
      */
     public String generateGoogleTTSAudio(String text, String language, String voiceType) {
         try {
+            // Same text/language/voice already synthesized: reuse the file, no API call
+            String existingUrl = audioAssetService.findUrl(text, language, voiceType, AudioAssetService.GOOGLE_NEURAL);
+            if (existingUrl != null) {
+                return existingUrl;
+            }
+            
             if (googleApiKey.isEmpty()) {
                 log.warn("Google API key not configured, using fallback TTS");
                 return null;
             }
 
-            // Generate audio using Google Cloud TTS
-            byte[] audioData = callGoogleTTSAPI(text, language, voiceType);
-            
-            if (audioData != null) {
-                // Save audio file
-                String fileName = saveAudioFile(audioData, text, "google_neural");
-                return audioBaseUrl + "/" + fileName;
-            }
+            String key = language + "\u0000" + voiceType + "\u0000" + text;
+            return synthesisFlights.execute(key, () -> {
+                // Generate audio using Google Cloud TTS
+                byte[] audioData = callGoogleTTSAPI(text, language, voiceType);
+                
+                if (audioData != null) {
+                    // Save under its content address so every card with this word shares it
+                    return audioAssetService.store(text, language, voiceType, AudioAssetService.GOOGLE_NEURAL, audioData);
+                }
+                return null;
+            });
 
         } catch (Exception e) {
             log.error("Error generating Google TTS audio for text: {}", text, e);
@@ -98,6 +105,7 @@ public class GoogleTTSService {
         // Add API key to URL
         String urlWithKey = googleTTSUrl + "?key=" + googleApiKey;
         
+        rateLimiter.acquire(ProviderRateLimiter.GOOGLE_TTS);
         ResponseEntity<String> response = restTemplate.exchange(
                 urlWithKey,
                 HttpMethod.POST,
@@ -203,66 +211,9 @@ public class GoogleTTSService {
      * Generate audio for batch text (multiple cards)
      */
     public Map<String, String> generateBatchGoogleTTS(List<String> texts, String language, String voiceType) {
-        Map<String, String> audioUrls = new HashMap<>();
-        
-        for (String text : texts) {
-            try {
-                String audioUrl = generateGoogleTTSAudio(text, language, voiceType);
-                if (audioUrl != null) {
-                    audioUrls.put(text, audioUrl);
-                }
-                
-                // Small delay to respect rate limits
-                Thread.sleep(150);
-                
-            } catch (Exception e) {
-                log.error("Error generating batch Google TTS for: {}", text, e);
-                // Continue with other texts
-            }
-        }
-        
-        return audioUrls;
-    }
-
-    /**
-     * Save audio file to storage
-     */
-    private String saveAudioFile(byte[] audioData, String originalText, String provider) throws IOException {
-        // Create directory if not exists
-        Path storagePath = Paths.get(audioStoragePath);
-        if (!Files.exists(storagePath)) {
-            Files.createDirectories(storagePath);
-        }
-        
-        // Generate unique filename
-        String fileName = generateFileName(originalText, provider) + ".mp3";
-        Path filePath = storagePath.resolve(fileName);
-        
-        // Save file
-        Files.write(filePath, audioData);
-        
-        log.info("Saved Google Neural audio file: {} (size: {} bytes)", fileName, audioData.length);
-        return fileName;
-    }
-
-    /**
-     * Generate filename for audio file
-     */
-    private String generateFileName(String text, String provider) {
-        // Clean text for filename
-        String cleanText = text.replaceAll("[^a-zA-Z0-9\\s]", "")
-                              .replaceAll("\\s+", "_")
-                              .toLowerCase();
-        
-        if (cleanText.length() > 30) {
-            cleanText = cleanText.substring(0, 30);
-        }
-        
-        // Add provider and UUID for uniqueness
-        return String.format("%s_%s_%s", 
-                           provider, 
-                           cleanText, 
-                           UUID.randomUUID().toString().substring(0, 8));
+        // Concurrent, rate-limited; without an API key only already stored audio can be returned, so no retries
+        return batchAudioSynthesizer.synthesizeAll(ProviderRateLimiter.GOOGLE_TTS, texts, !googleApiKey.isEmpty(),
+                text -> generateGoogleTTSAudio(text, language, voiceType));
     }
 
     /**
@@ -319,18 +270,8 @@ public class GoogleTTSService {
     public Map<String, Object> getGoogleTTSStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        try {
-            Path audioPath = Paths.get(audioStoragePath);
-            if (Files.exists(audioPath)) {
-                long totalFiles = Files.list(audioPath)
-                                     .filter(p -> p.getFileName().toString().contains("google_neural"))
-                                     .count();
-                                     
-                stats.put("googleTTSFiles", totalFiles);
-            }
-        } catch (Exception e) {
-            log.error("Error getting Google TTS stats: ", e);
-        }
+        // Counters maintained on write/delete; no directory scan
+        stats.put("googleTTSFiles", audioStorageStats.filesOf(AudioAssetService.GOOGLE_NEURAL));
         
         stats.put("provider", "Google Cloud Text-to-Speech");
         stats.put("technology", "WaveNet Neural");
@@ -0,0 +1,72 @@
+package com.elearning.service.services;
+
+import com.elearning.service.utils.ScriptLanguageDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Local language detection shared by card creation, bulk import and translation.
+ *
+ * Runs entirely in-process (see {@link ScriptLanguageDetector}); no provider call,
+ * so detecting thousands of words costs microseconds.
+ */
+@Service
+public class LanguageDetectionService {
+
+    private final ScriptLanguageDetector detector;
+
+    public LanguageDetectionService(
+            @Value("${app.language-detection.han-only-language:ja}") String hanOnlyLanguage,
+            @Value("${app.language-detection.latin-trigrams:true}") boolean trigramsEnabled,
+            @Value("${app.language-detection.min-trigram-letters:12}") int minTrigramLetters) {
+        this.detector = new ScriptLanguageDetector(hanOnlyLanguage, trigramsEnabled, minTrigramLetters);
+    }
+
+    /**
+     * Detect the language of one text
+     */
+    public String detect(String text) {
+        return detector.detect(text);
+    }
+
+    /**
+     * Detect the language of every text (input order, duplicates detected once)
+     */
+    public Map<String, String> detectAll(Collection<String> texts) {
+        Map<String, String> languages = new LinkedHashMap<>();
+        if (texts == null) {
+            return languages;
+        }
+        for (String text : texts) {
+            if (text != null) {
+                languages.computeIfAbsent(text, detector::detect);
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * Most common language of a list of texts (ties go to the language seen first)
+     */
+    public String detectDominant(Collection<String> texts) {
+        Map<String, Integer> votes = new LinkedHashMap<>();
+        if (texts != null) {
+            for (String text : texts) {
+                if (text != null && !text.isBlank()) {
+                    votes.merge(detector.detect(text), 1, Integer::sum);
+                }
+            }
+        }
+        String dominant = detector.detect(null);
+        int best = 0;
+        for (Map.Entry<String, Integer> vote : votes.entrySet()) {
+            if (vote.getValue() > best) {
+                dominant = vote.getKey();
+                best = vote.getValue();
+            }
+        }
+        return dominant;
+    }
+}
@@ -142,8 +142,8 @@ public class LearningProgressService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
         
-        Deck deck = deckRepository.findById(deckId)
-            .orElseThrow(() -> new IllegalArgumentException("Deck not found: " + deckId));
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
+            .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         LearningProgress progress = LearningProgress.builder()
             .user(user)
@@ -0,0 +1,84 @@
+package com.elearning.service.services;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * In-memory state of one live quiz room.
+ *
+ * Everything mutable is guarded by the room's monitor; the critical sections
+ * only touch a few counters, so rooms never contend with each other and answers
+ * within a room are serialized cheaply.
+ */
+final class LiveQuizRoom {
+
+    enum Status {
+        WAITING,    // Chờ host bắt đầu
+        QUESTION,   // Đang nhận câu trả lời
+        REVEAL,     // Đang hiển thị kết quả câu vừa xong
+        FINISHED    // Đã kết thúc
+    }
+
+    /**
+     * Câu hỏi đã dựng sẵn (nội dung được resolve một lần khi tạo phòng)
+     */
+    static final class Question {
+        final String text;
+        final List<String> options;
+        final int correctIndex;
+
+        Question(String text, List<String> options, int correctIndex) {
+            this.text = text;
+            this.options = options;
+            this.correctIndex = correctIndex;
+        }
+    }
+
+    static final class Participant {
+        final String userKey;
+        final String displayName;
+        int score;
+        int correctAnswers;
+        int lastAnsweredIndex = -1;
+        int gained;
+        int rank;
+
+        Participant(String userKey, String displayName) {
+            this.userKey = userKey;
+            this.displayName = displayName;
+        }
+    }
+
+    final String code;
+    final String hostKey;
+    final String hostName;
+    final Long deckId;
+    final String deckName;
+    final List<Question> questions;
+    final long questionMillis;
+
+    final Map<String, Participant> participants = new LinkedHashMap<>();
+    Status status = Status.WAITING;
+    int currentIndex = -1;
+    long openedAt;
+    long deadline;
+    long nextQuestionAt;
+    int[] optionCounts;
+    int answeredCount;
+    boolean progressDirty;
+    ScheduledFuture<?> pendingTask;
+    long lastActivityAt = System.currentTimeMillis();
+
+    LiveQuizRoom(String code, String hostKey, String hostName, Long deckId, String deckName,
+                 List<Question> questions, long questionMillis) {
+        this.code = code;
+        this.hostKey = hostKey;
+        this.hostName = hostName;
+        this.deckId = deckId;
+        this.deckName = deckName;
+        this.questions = questions;
+        this.questionMillis = questionMillis;
+    }
+}
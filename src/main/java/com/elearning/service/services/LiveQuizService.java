@@ -0,0 +1,561 @@
+package com.elearning.service.services;
+
+import com.elearning.service.dtos.*;
+import com.elearning.service.entities.Card;
+import com.elearning.service.entities.Deck;
+import com.elearning.service.entities.User;
+import com.elearning.service.repositories.CardRepository;
+import com.elearning.service.repositories.DeckRepository;
+import com.elearning.service.repositories.UserRepository;
+import com.elearning.service.utils.QuizPlan;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service điều phối phòng quiz trực tiếp (nhiều người chơi, thời gian thực).
+ *
+ * Host tạo phòng từ một deck của mình; câu hỏi được dựng sẵn một lần và giữ
+ * trong bộ nhớ. Server quyết định thời điểm mở/đóng từng câu (hẹn giờ trên một
+ * scheduler dùng chung cho mọi phòng), chấm điểm và tổng hợp câu trả lời trong
+ * bộ nhớ, rồi phát sự kiện qua STOMP topic của phòng. Bảng điểm được gửi tăng
+ * dần: mỗi câu chỉ gửi những người có điểm thay đổi kèm top người chơi. Tiến độ
+ * cũng được phát trên scheduler đó, không phụ thuộc các job @Scheduled bảo trì.
+ */
+@Service
+@Slf4j
+public class LiveQuizService {
+
+    private static final String TOPIC_PREFIX = "/topic/live-quiz/";
+    private static final String USER_QUEUE = "/queue/live-quiz";
+    private static final String CODE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int CODE_LENGTH = 6;
+
+    private final UserRepository userRepository;
+    private final DeckRepository deckRepository;
+    private final CardRepository cardRepository;
+    private final QuizService quizService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler scheduler;
+
+    private final Map<String, LiveQuizRoom> rooms = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.live-quiz.max-rooms:500}")
+    private int maxRooms;
+
+    @Value("${app.live-quiz.max-participants:200}")
+    private int maxParticipants;
+
+    @Value("${app.live-quiz.max-questions:50}")
+    private int maxQuestions;
+
+    @Value("${app.live-quiz.default-question-seconds:20}")
+    private int defaultQuestionSeconds;
+
+    @Value("${app.live-quiz.reveal-seconds:5}")
+    private int revealSeconds;
+
+    @Value("${app.live-quiz.answer-grace-ms:300}")
+    private long answerGraceMs;
+
+    @Value("${app.live-quiz.leaderboard-size:10}")
+    private int leaderboardSize;
+
+    @Value("${app.live-quiz.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Value("${app.live-quiz.finished-retention-minutes:5}")
+    private long finishedRetentionMinutes;
+
+    @Value("${app.live-quiz.progress-interval-ms:500}")
+    private long progressIntervalMs;
+
+    public LiveQuizService(UserRepository userRepository,
+                           DeckRepository deckRepository,
+                           CardRepository cardRepository,
+                           QuizService quizService,
+                           SimpMessagingTemplate messagingTemplate,
+                           @Qualifier("liveQuizScheduler") TaskScheduler scheduler) {
+        this.userRepository = userRepository;
+        this.deckRepository = deckRepository;
+        this.cardRepository = cardRepository;
+        this.quizService = quizService;
+        this.messagingTemplate = messagingTemplate;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Tạo phòng quiz trực tiếp từ deck của user hiện tại
+     */
+    @Transactional(readOnly = true)
+    public LiveQuizRoomDTO createRoom(CreateLiveQuizRoomRequest request) {
+        User host = getCurrentUser();
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(request.getDeckId())
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy deck với ID: " + request.getDeckId()));
+        if (!deck.getUser().getId().equals(host.getId())) {
+            throw new AccessDeniedException("Bạn không có quyền truy cập deck này");
+        }
+        if (rooms.size() >= maxRooms) {
+            throw new IllegalStateException("Máy chủ đã đạt số phòng tối đa, vui lòng thử lại sau");
+        }
+
+        List<Card> cards = cardRepository.findAllByDeckId(deck.getId());
+        if (cards.size() < QuizPlan.OPTION_COUNT) {
+            throw new IllegalStateException("Deck phải có ít nhất 4 thẻ để có thể làm quiz");
+        }
+
+        // Dựng sẵn câu hỏi, resolve nội dung một lần để phòng không cần truy vấn DB nữa
+        List<Card> questionCards = new ArrayList<>(cards);
+        Collections.shuffle(questionCards);
+        int questionCount = Math.min(questionCards.size(), maxQuestions);
+        if (request.getQuestionCount() != null) {
+            questionCount = Math.min(questionCount, request.getQuestionCount());
+        }
+        questionCards = questionCards.subList(0, questionCount);
+
+        QuizPlan plan = quizService.buildQuizPlan(deck.getId(), questionCards, cards);
+        Map<Long, Card> cardsById = cards.stream().collect(Collectors.toMap(Card::getId, card -> card));
+        List<LiveQuizRoom.Question> questions = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            questions.add(new LiveQuizRoom.Question(
+                    questionCards.get(i).getFront(),
+                    List.copyOf(quizService.getOptionTexts(plan, i, cardsById)),
+                    plan.getCorrectIndex(i)));
+        }
+
+        int questionSeconds = request.getQuestionSeconds() != null
+                ? request.getQuestionSeconds() : defaultQuestionSeconds;
+
+        LiveQuizRoom room;
+        do {
+            room = new LiveQuizRoom(generateRoomCode(), host.getEmail(), host.getDisplayName(),
+                    deck.getId(), deck.getName(), questions, questionSeconds * 1000L);
+        } while (rooms.putIfAbsent(room.code, room) != null);
+
+        log.info("Tạo phòng live quiz {} cho deck ID: {} với {} câu hỏi", room.code, deck.getId(), questionCount);
+        synchronized (room) {
+            return toRoomDTO(room);
+        }
+    }
+
+    /**
+     * Thông tin hiện tại của phòng (để hiển thị phòng chờ hoặc kết nối lại)
+     */
+    public LiveQuizRoomDTO getRoom(String roomCode) {
+        LiveQuizRoom room = getRoomOrThrow(roomCode);
+        synchronized (room) {
+            return toRoomDTO(room);
+        }
+    }
+
+    /**
+     * Host bắt đầu phòng: mở câu hỏi đầu tiên
+     */
+    public LiveQuizRoomDTO startRoom(String roomCode) {
+        LiveQuizRoom room = getRoomOrThrow(roomCode);
+        checkHost(room);
+        synchronized (room) {
+            if (room.status != LiveQuizRoom.Status.WAITING) {
+                throw new IllegalStateException("Phòng đã bắt đầu");
+            }
+            openQuestion(room, 0);
+            return toRoomDTO(room);
+        }
+    }
+
+    /**
+     * Host kết thúc phòng sớm
+     */
+    public void closeRoom(String roomCode) {
+        LiveQuizRoom room = getRoomOrThrow(roomCode);
+        checkHost(room);
+        List<LiveQuizScoreDTO> leaderboard;
+        synchronized (room) {
+            if (room.status == LiveQuizRoom.Status.FINISHED) {
+                return;
+            }
+            leaderboard = finish(room);
+        }
+        broadcast(room, "FINISHED", Map.of("leaderboard", leaderboard));
+    }
+
+    /**
+     * Người chơi tham gia phòng (qua WebSocket)
+     *
+     * @param userKey email của người chơi (principal của kết nối STOMP)
+     */
+    public LiveQuizRoomDTO join(String roomCode, String userKey) {
+        LiveQuizRoom room = getRoomOrThrow(roomCode);
+        String displayName = userRepository.findByEmail(userKey)
+                .map(User::getDisplayName)
+                .orElseThrow(() -> new UsernameNotFoundException("Không tìm thấy user với email: " + userKey));
+
+        LiveQuizRoomDTO snapshot;
+        int participantCount;
+        synchronized (room) {
+            if (room.status == LiveQuizRoom.Status.FINISHED) {
+                throw new IllegalStateException("Phòng đã kết thúc");
+            }
+            boolean isNew = !room.participants.containsKey(userKey);
+            if (isNew && room.participants.size() >= maxParticipants) {
+                throw new IllegalStateException("Phòng đã đủ người");
+            }
+            if (isNew) {
+                room.participants.put(userKey, new LiveQuizRoom.Participant(userKey, displayName));
+            }
+            room.lastActivityAt = System.currentTimeMillis();
+            participantCount = room.participants.size();
+            snapshot = toRoomDTO(room);
+        }
+
+        broadcast(room, "PARTICIPANT_JOINED", Map.of(
+                "displayName", displayName,
+                "participantCount", participantCount));
+        return snapshot;
+    }
+
+    /**
+     * Nhận câu trả lời của người chơi. Chỉ xác nhận đã nhận; đúng/sai và điểm
+     * được công bố khi câu hỏi đóng để không lộ đáp án cho người khác
+     */
+    public LiveQuizEventDTO submitAnswer(String roomCode, String userKey, LiveQuizAnswerRequest answer) {
+        long now = System.currentTimeMillis();
+        LiveQuizRoom room = getRoomOrThrow(roomCode);
+
+        if (answer.getQuestionNumber() == null || answer.getSelectedAnswerIndex() == null
+                || answer.getSelectedAnswerIndex() < 0 || answer.getSelectedAnswerIndex() >= QuizPlan.OPTION_COUNT) {
+            throw new IllegalArgumentException("Đáp án được chọn không hợp lệ");
+        }
+
+        boolean everyoneAnswered;
+        int questionIndex = answer.getQuestionNumber() - 1;
+        synchronized (room) {
+            LiveQuizRoom.Participant participant = room.participants.get(userKey);
+            if (participant == null) {
+                throw new IllegalStateException("Bạn chưa tham gia phòng này");
+            }
+            if (room.status != LiveQuizRoom.Status.QUESTION || room.currentIndex != questionIndex) {
+                throw new IllegalStateException("Câu hỏi " + answer.getQuestionNumber() + " không còn nhận câu trả lời");
+            }
+            if (now > room.deadline + answerGraceMs) {
+                throw new IllegalStateException("Đã hết thời gian trả lời");
+            }
+            if (participant.lastAnsweredIndex >= questionIndex) {
+                throw new IllegalStateException("Bạn đã trả lời câu hỏi này");
+            }
+
+            // Điểm: 500 cho câu đúng + tối đa 500 theo thời gian còn lại
+            LiveQuizRoom.Question question = room.questions.get(questionIndex);
+            boolean isCorrect = answer.getSelectedAnswerIndex() == question.correctIndex;
+            long remaining = Math.max(0, room.deadline - now);
+            int gained = isCorrect ? 500 + (int) Math.round(500.0 * remaining / room.questionMillis) : 0;
+
+            participant.lastAnsweredIndex = questionIndex;
+            participant.gained = gained;
+            participant.score += gained;
+            if (isCorrect) {
+                participant.correctAnswers++;
+            }
+            room.optionCounts[answer.getSelectedAnswerIndex()]++;
+            room.answeredCount++;
+            room.progressDirty = true;
+            room.lastActivityAt = now;
+            everyoneAnswered = room.answeredCount >= room.participants.size();
+        }
+
+        if (everyoneAnswered) {
+            // Mọi người đã trả lời: đóng câu hỏi ngay, không chờ hết giờ
+            scheduler.schedule(() -> closeQuestion(room, questionIndex), Instant.now());
+        }
+
+        return event(room, "ANSWER_ACCEPTED", Map.of("questionNumber", answer.getQuestionNumber()));
+    }
+
+    @PostConstruct
+    void scheduleProgress() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                publishProgress();
+            } catch (RuntimeException e) {
+                // Một lần phát lỗi không được dừng lịch phát tiến độ
+                log.warn("Phát tiến độ live quiz thất bại: {}", e.getMessage());
+            }
+        }, Duration.ofMillis(progressIntervalMs));
+    }
+
+    /**
+     * Phát tiến độ (số người đã trả lời) của các câu đang mở, gộp theo chu kỳ
+     * để mỗi câu trả lời không kéo theo một lần broadcast
+     */
+    public void publishProgress() {
+        for (LiveQuizRoom room : rooms.values()) {
+            Map<String, Object> progress;
+            synchronized (room) {
+                if (!room.progressDirty || room.status != LiveQuizRoom.Status.QUESTION) {
+                    continue;
+                }
+                room.progressDirty = false;
+                progress = Map.of(
+                        "questionNumber", room.currentIndex + 1,
+                        "answeredCount", room.answeredCount,
+                        "participantCount", room.participants.size());
+            }
+            broadcast(room, "PROGRESS", progress);
+        }
+    }
+
+    /**
+     * Dọn các phòng đã kết thúc hoặc bỏ không quá lâu
+     */
+    @Scheduled(fixedDelayString = "${app.live-quiz.cleanup-interval-ms:60000}")
+    public void evictStaleRooms() {
+        long now = System.currentTimeMillis();
+        long finishedBefore = now - finishedRetentionMinutes * 60_000L;
+        long idleBefore = now - idleTimeoutMinutes * 60_000L;
+
+        for (LiveQuizRoom room : rooms.values()) {
+            synchronized (room) {
+                boolean expired = room.status == LiveQuizRoom.Status.FINISHED
+                        ? room.lastActivityAt < finishedBefore
+                        : room.lastActivityAt < idleBefore;
+                if (!expired) {
+                    continue;
+                }
+                if (room.pendingTask != null) {
+                    room.pendingTask.cancel(false);
+                }
+                room.status = LiveQuizRoom.Status.FINISHED;
+            }
+            rooms.remove(room.code, room);
+            log.info("Đã dọn phòng live quiz {}", room.code);
+        }
+    }
+
+    private void openQuestion(LiveQuizRoom room, int questionIndex) {
+        LiveQuizQuestionDTO question;
+        synchronized (room) {
+            if (room.status == LiveQuizRoom.Status.FINISHED) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            room.status = LiveQuizRoom.Status.QUESTION;
+            room.currentIndex = questionIndex;
+            room.openedAt = now;
+            room.deadline = now + room.questionMillis;
+            room.nextQuestionAt = 0;
+            room.optionCounts = new int[QuizPlan.OPTION_COUNT];
+            room.answeredCount = 0;
+            room.progressDirty = false;
+            room.lastActivityAt = now;
+            room.pendingTask = scheduler.schedule(() -> closeQuestion(room, questionIndex),
+                    Instant.ofEpochMilli(room.deadline + answerGraceMs));
+            question = toQuestionDTO(room);
+        }
+        broadcast(room, "QUESTION", question);
+    }
+
+    private void closeQuestion(LiveQuizRoom room, int questionIndex) {
+        LiveQuizQuestionResultDTO result;
+        Map<String, LiveQuizEventDTO> personalResults = new LinkedHashMap<>();
+        synchronized (room) {
+            // Có thể được gọi hai lần (hết giờ + mọi người đã trả lời): chỉ đóng một lần
+            if (room.status != LiveQuizRoom.Status.QUESTION || room.currentIndex != questionIndex) {
+                return;
+            }
+            if (room.pendingTask != null) {
+                room.pendingTask.cancel(false);
+            }
+
+            for (LiveQuizRoom.Participant participant : room.participants.values()) {
+                if (participant.lastAnsweredIndex != questionIndex) {
+                    participant.gained = 0;
+                }
+            }
+            List<LiveQuizRoom.Participant> ranked = rankParticipants(room);
+            LiveQuizRoom.Question question = room.questions.get(questionIndex);
+            boolean hasNext = questionIndex + 1 < room.questions.size();
+
+            room.status = LiveQuizRoom.Status.REVEAL;
+            room.nextQuestionAt = hasNext ? System.currentTimeMillis() + revealSeconds * 1000L : 0;
+            result = LiveQuizQuestionResultDTO.builder()
+                    .questionNumber(questionIndex + 1)
+                    .correctAnswerIndex(question.correctIndex)
+                    .correctAnswer(question.options.get(question.correctIndex))
+                    .optionCounts(Arrays.stream(room.optionCounts).boxed().collect(Collectors.toList()))
+                    .answeredCount(room.answeredCount)
+                    .changes(ranked.stream()
+                            .filter(participant -> participant.gained > 0)
+                            .map(this::toScoreDTO)
+                            .collect(Collectors.toList()))
+                    .leaderboard(ranked.stream().limit(leaderboardSize).map(this::toScoreDTO).collect(Collectors.toList()))
+                    .nextQuestionAt(hasNext ? room.nextQuestionAt : null)
+                    .build();
+
+            for (LiveQuizRoom.Participant participant : ranked) {
+                personalResults.put(participant.userKey, event(room, "YOUR_RESULT", Map.of(
+                        "questionNumber", questionIndex + 1,
+                        "answered", participant.lastAnsweredIndex == questionIndex,
+                        "correct", participant.gained > 0,
+                        "gained", participant.gained,
+                        "score", participant.score,
+                        "rank", participant.rank)));
+            }
+
+            if (hasNext) {
+                room.pendingTask = scheduler.schedule(() -> openQuestion(room, questionIndex + 1),
+                        Instant.ofEpochMilli(room.nextQuestionAt));
+            }
+        }
+
+        broadcast(room, "QUESTION_RESULT", result);
+        personalResults.forEach((userKey, event) -> messagingTemplate.convertAndSendToUser(userKey, USER_QUEUE, event));
+
+        if (result.getNextQuestionAt() == null) {
+            List<LiveQuizScoreDTO> leaderboard;
+            synchronized (room) {
+                if (room.status == LiveQuizRoom.Status.FINISHED) {
+                    return;
+                }
+                leaderboard = finish(room);
+            }
+            broadcast(room, "FINISHED", Map.of("leaderboard", leaderboard));
+        }
+    }
+
+    /**
+     * Kết thúc phòng (gọi khi đang giữ lock của phòng)
+     *
+     * @return bảng điểm cuối cùng để phát cho cả phòng
+     */
+    private List<LiveQuizScoreDTO> finish(LiveQuizRoom room) {
+        if (room.pendingTask != null) {
+            room.pendingTask.cancel(false);
+        }
+        room.status = LiveQuizRoom.Status.FINISHED;
+        room.lastActivityAt = System.currentTimeMillis();
+        List<LiveQuizScoreDTO> leaderboard = rankParticipants(room).stream()
+                .map(this::toScoreDTO)
+                .collect(Collectors.toList());
+        log.info("Phòng live quiz {} kết thúc với {} người chơi", room.code, leaderboard.size());
+        return leaderboard;
+    }
+
+    /**
+     * Sắp xếp người chơi theo điểm và gán hạng (đồng điểm thì đồng hạng)
+     */
+    private List<LiveQuizRoom.Participant> rankParticipants(LiveQuizRoom room) {
+        List<LiveQuizRoom.Participant> ranked = new ArrayList<>(room.participants.values());
+        ranked.sort(Comparator.comparingInt((LiveQuizRoom.Participant participant) -> participant.score).reversed());
+        for (int i = 0; i < ranked.size(); i++) {
+            LiveQuizRoom.Participant participant = ranked.get(i);
+            participant.rank = i > 0 && ranked.get(i - 1).score == participant.score
+                    ? ranked.get(i - 1).rank : i + 1;
+        }
+        return ranked;
+    }
+
+    private void broadcast(LiveQuizRoom room, String type, Object payload) {
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + room.code, event(room, type, payload));
+    }
+
+    private LiveQuizEventDTO event(LiveQuizRoom room, String type, Object payload) {
+        return LiveQuizEventDTO.builder()
+                .type(type)
+                .roomCode(room.code)
+                .serverTime(System.currentTimeMillis())
+                .payload(payload)
+                .build();
+    }
+
+    private LiveQuizQuestionDTO toQuestionDTO(LiveQuizRoom room) {
+        LiveQuizRoom.Question question = room.questions.get(room.currentIndex);
+        return LiveQuizQuestionDTO.builder()
+                .questionNumber(room.currentIndex + 1)
+                .totalQuestions(room.questions.size())
+                .question(question.text)
+                .options(question.options)
+                .openedAt(room.openedAt)
+                .deadline(room.deadline)
+                .build();
+    }
+
+    private LiveQuizScoreDTO toScoreDTO(LiveQuizRoom.Participant participant) {
+        return LiveQuizScoreDTO.builder()
+                .displayName(participant.displayName)
+                .score(participant.score)
+                .gained(participant.gained)
+                .rank(participant.rank)
+                .correctAnswers(participant.correctAnswers)
+                .build();
+    }
+
+    /**
+     * Ảnh chụp trạng thái phòng (gọi khi đang giữ lock của phòng)
+     */
+    private LiveQuizRoomDTO toRoomDTO(LiveQuizRoom room) {
+        List<LiveQuizRoom.Participant> ranked = rankParticipants(room);
+        return LiveQuizRoomDTO.builder()
+                .roomCode(room.code)
+                .deckId(room.deckId)
+                .deckName(room.deckName)
+                .hostName(room.hostName)
+                .status(room.status.name())
+                .totalQuestions(room.questions.size())
+                .questionSeconds((int) (room.questionMillis / 1000))
+                .participantCount(room.participants.size())
+                .topic(TOPIC_PREFIX + room.code)
+                .currentQuestion(room.status == LiveQuizRoom.Status.QUESTION ? toQuestionDTO(room) : null)
+                .leaderboard(ranked.stream().limit(leaderboardSize).map(this::toScoreDTO).collect(Collectors.toList()))
+                .serverTime(System.currentTimeMillis())
+                .build();
+    }
+
+    private String generateRoomCode() {
+        StringBuilder code = new StringBuilder(CODE_LENGTH);
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code.append(CODE_ALPHABET.charAt(random.nextInt(CODE_ALPHABET.length())));
+        }
+        return code.toString();
+    }
+
+    private LiveQuizRoom getRoomOrThrow(String roomCode) {
+        LiveQuizRoom room = roomCode == null ? null : rooms.get(roomCode.toUpperCase(Locale.ROOT));
+        if (room == null) {
+            throw new IllegalStateException("Không tìm thấy phòng: " + roomCode);
+        }
+        return room;
+    }
+
+    private void checkHost(LiveQuizRoom room) {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (!room.hostKey.equals(email)) {
+            throw new AccessDeniedException("Chỉ host mới có quyền điều khiển phòng");
+        }
+    }
+
+    /**
+     * Lấy thông tin user hiện tại
+     */
+    private User getCurrentUser() {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("Không tìm thấy user với email: " + email));
+    }
+}
@@ -0,0 +1,117 @@
+package com.elearning.service.services;
+
+import com.elearning.service.utils.MappedDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Offline dictionaries used when no translation provider is configured or reachable.
+ *
+ * For each language pair the first of these is memory-mapped on first use:
+ * <ol>
+ *   <li>a prebuilt {@code {source}-{target}.dict} file in app.dictionary.path</li>
+ *   <li>a {@code {source}-{target}.tsv} file in app.dictionary.path, compiled once to .dict next to it</li>
+ *   <li>the bundled classpath:dictionaries/{source}-{target}.tsv, compiled to a temporary .dict</li>
+ * </ol>
+ * Pairs without any dictionary are remembered so they are not probed again.
+ */
+@Service
+@Slf4j
+public class OfflineDictionaryService {
+
+    private static final Pattern LANGUAGE_CODE = Pattern.compile("[a-z]{2,3}(-[a-z0-9]{2,8})?");
+
+    private final Map<String, Optional<MappedDictionary>> dictionaries = new ConcurrentHashMap<>();
+
+    @Value("${app.dictionary.path:./dictionaries}")
+    private String dictionaryPath;
+
+    /**
+     * Translate a headword from the offline dictionary of the language pair
+     *
+     * @return the translation, or null if there is no dictionary or no entry
+     */
+    public String lookup(String text, String sourceLanguage, String targetLanguage) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return dictionary(sourceLanguage, targetLanguage)
+                .map(dictionary -> dictionary.lookup(text))
+                .orElse(null);
+    }
+
+    /**
+     * Entry count per loaded language pair
+     */
+    public Map<String, Integer> getLoadedDictionaries() {
+        Map<String, Integer> loaded = new LinkedHashMap<>();
+        dictionaries.forEach((pair, dictionary) -> dictionary.ifPresent(d -> loaded.put(pair, d.size())));
+        return loaded;
+    }
+
+    private Optional<MappedDictionary> dictionary(String sourceLanguage, String targetLanguage) {
+        String source = sourceLanguage == null ? "" : sourceLanguage.trim().toLowerCase(Locale.ROOT);
+        String target = targetLanguage == null ? "" : targetLanguage.trim().toLowerCase(Locale.ROOT);
+        // Mã ngôn ngữ đến từ request nên chỉ chấp nhận dạng chuẩn (không cho ghép đường dẫn)
+        if (!LANGUAGE_CODE.matcher(source).matches() || !LANGUAGE_CODE.matcher(target).matches()) {
+            return Optional.empty();
+        }
+        return dictionaries.computeIfAbsent(source + "-" + target, this::load);
+    }
+
+    private Optional<MappedDictionary> load(String pair) {
+        long start = System.currentTimeMillis();
+        try {
+            Path directory = Paths.get(dictionaryPath);
+            Path prebuilt = directory.resolve(pair + ".dict");
+            Path tsv = directory.resolve(pair + ".tsv");
+
+            MappedDictionary dictionary;
+            if (Files.isRegularFile(prebuilt)
+                    && (!Files.isRegularFile(tsv) || !Files.getLastModifiedTime(tsv).toInstant()
+                        .isAfter(Files.getLastModifiedTime(prebuilt).toInstant()))) {
+                dictionary = MappedDictionary.open(prebuilt);
+            } else if (Files.isRegularFile(tsv)) {
+                try (BufferedReader reader = Files.newBufferedReader(tsv, StandardCharsets.UTF_8)) {
+                    MappedDictionary.write(prebuilt, MappedDictionary.readTsv(reader));
+                }
+                dictionary = MappedDictionary.open(prebuilt);
+            } else {
+                ClassPathResource bundled = new ClassPathResource("dictionaries/" + pair + ".tsv");
+                if (!bundled.exists()) {
+                    return Optional.empty();
+                }
+                Path compiled = Files.createTempFile("dictionary-" + pair, ".dict");
+                compiled.toFile().deleteOnExit();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(bundled.getInputStream(), StandardCharsets.UTF_8))) {
+                    MappedDictionary.write(compiled, MappedDictionary.readTsv(reader));
+                }
+                dictionary = MappedDictionary.open(compiled);
+            }
+
+            log.info("Loaded offline dictionary {} ({} entries) in {} ms",
+                    pair, dictionary.size(), System.currentTimeMillis() - start);
+            return Optional.of(dictionary);
+        } catch (IOException e) {
+            log.error("Cannot load offline dictionary {}: {}", pair, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.elearning.service.services;
+
+import com.elearning.service.utils.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-provider token buckets shared by every caller of an external API.
+ *
+ * Each provider name maps to app.rate-limit.{provider}.permits-per-second and
+ * app.rate-limit.{provider}.burst, falling back to the app.rate-limit.default-*
+ * values. The limit applies to the whole instance, whether the calls come from a
+ * single request, concurrent batch chunks or several users at once.
+ */
+@Service
+@Slf4j
+public class ProviderRateLimiter {
+
+    public static final String GEMINI = "gemini";
+    public static final String GOOGLE_TRANSLATE = "google-translate";
+    public static final String GOOGLE_TTS = "google-tts";
+    public static final String OPENAI_TTS = "openai-tts";
+
+    private final Environment environment;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Value("${app.rate-limit.default-permits-per-second:5}")
+    private double defaultPermitsPerSecond;
+
+    @Value("${app.rate-limit.default-burst:5}")
+    private int defaultBurst;
+
+    @Value("${app.rate-limit.max-wait-ms:30000}")
+    private long maxWaitMillis;
+
+    public ProviderRateLimiter(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Block until the provider allows one more call
+     *
+     * @throws IllegalStateException if the wait would exceed app.rate-limit.max-wait-ms or the thread is interrupted
+     */
+    public void acquire(String provider) {
+        try {
+            if (!bucket(provider).acquire(maxWaitMillis)) {
+                throw new IllegalStateException("Vượt giới hạn tần suất gọi " + provider);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị ngắt khi chờ giới hạn tần suất " + provider, e);
+        }
+    }
+
+    /**
+     * Tokens currently available per provider (negative while callers are queued)
+     */
+    public Map<String, Double> getAvailablePermits() {
+        Map<String, Double> permits = new LinkedHashMap<>();
+        buckets.forEach((provider, bucket) -> permits.put(provider, bucket.available()));
+        return permits;
+    }
+
+    private TokenBucket bucket(String provider) {
+        return buckets.computeIfAbsent(provider, name -> {
+            double permitsPerSecond = environment.getProperty(
+                    "app.rate-limit." + name + ".permits-per-second", Double.class, defaultPermitsPerSecond);
+            int burst = environment.getProperty("app.rate-limit." + name + ".burst", Integer.class, defaultBurst);
+            log.info("Rate limit for {}: {} req/s, burst {}", name, permitsPerSecond, burst);
+            return new TokenBucket(permitsPerSecond, burst);
+        });
+    }
+}
@@ -0,0 +1,298 @@
+package com.elearning.service.services;
+
+import com.elearning.service.utils.ProviderHealth;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes calls across fallback chains of external providers (translation, TTS).
+ *
+ * Every call is timed and recorded in a rolling window per provider; a provider whose
+ * recent calls keep failing (or are too slow) gets its circuit opened and is skipped
+ * outright until a probe call succeeds, so a degraded provider no longer adds its
+ * timeout to every request. A result of {@code null} counts as a failure.
+ *
+ * Optionally (app.provider-router.hedge.{chain}.enabled) a chain hedges: if the first
+ * provider has not answered within its usual latency (p90, or a configured delay),
+ * the next provider is started in parallel and the first usable answer wins. Only
+ * use hedging for chains whose calls are safe to run twice.
+ */
+@Service
+@Slf4j
+public class ProviderRouter {
+
+    public static final String GOOGLE_TTS = "google-tts";
+    public static final String OPENAI_TTS = "openai-tts";
+    public static final String RESPONSIVE_VOICE = "responsive-voice";
+
+    /**
+     * One provider in a fallback chain; the call returns null (or throws) when it has no result
+     */
+    public record Route<T>(String provider, Callable<T> call) {
+    }
+
+    public enum Status { OK, EMPTY, ERROR, TIMEOUT }
+
+    /**
+     * Result of one provider in a fan-out; {@code value} is null unless the status is OK
+     */
+    public record Outcome<T>(Status status, T value, long latencyMillis, String error) {
+    }
+
+    private final Environment environment;
+    private final TaskExecutor hedgeExecutor;
+    private final Map<String, ProviderHealth> healths = new ConcurrentHashMap<>();
+    private final LongAdder hedgedCalls = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    @Value("${app.provider-router.window-size:50}")
+    private int windowSize;
+
+    @Value("${app.provider-router.min-calls:10}")
+    private int minCalls;
+
+    @Value("${app.provider-router.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${app.provider-router.slow-call-ms:8000}")
+    private long slowCallMillis;
+
+    @Value("${app.provider-router.open-seconds:30}")
+    private long openSeconds;
+
+    @Value("${app.provider-router.hedge.enabled:false}")
+    private boolean hedgeEnabledByDefault;
+
+    @Value("${app.provider-router.hedge.delay-ms:0}")
+    private long hedgeDelayMillis;
+
+    @Value("${app.provider-router.hedge.min-delay-ms:300}")
+    private long hedgeMinDelayMillis;
+
+    @Value("${app.provider-router.hedge.default-delay-ms:2000}")
+    private long hedgeDefaultDelayMillis;
+
+    public ProviderRouter(Environment environment,
+                          @Qualifier("providerHedgeExecutor") TaskExecutor hedgeExecutor) {
+        this.environment = environment;
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    /**
+     * Call a single provider through its circuit breaker
+     *
+     * @return the result, or null if the circuit is open or the call failed
+     */
+    public <T> T call(String provider, Callable<T> call) {
+        if (!health(provider).tryAcquire(System.currentTimeMillis())) {
+            log.debug("Circuit open for {}, skipping call", provider);
+            return null;
+        }
+        return timed(provider, call);
+    }
+
+    /**
+     * Whether a call to the provider would be let through now
+     *
+     * Once the open period has passed this moves the circuit to half-open, so a caller
+     * that checks first and then uses {@link #call} still gets to send the probe.
+     */
+    public boolean isAvailable(String provider) {
+        return health(provider).isCallPermitted(System.currentTimeMillis());
+    }
+
+    /**
+     * Try the providers of {@code chain} in order, skipping open circuits, hedging if enabled for the chain
+     *
+     * @return the first non-null result, or null if every provider failed or was skipped
+     */
+    public <T> T route(String chain, List<Route<T>> routes) {
+        boolean hedge = environment.getProperty("app.provider-router.hedge." + chain + ".enabled",
+                Boolean.class, hedgeEnabledByDefault);
+
+        for (int i = 0; i < routes.size(); i++) {
+            Route<T> route = routes.get(i);
+            if (!health(route.provider()).tryAcquire(System.currentTimeMillis())) {
+                log.debug("Circuit open for {} in chain {}, trying next provider", route.provider(), chain);
+                continue;
+            }
+
+            if (!hedge || i == routes.size() - 1) {
+                T result = timed(route.provider(), route.call());
+                if (result != null) {
+                    return result;
+                }
+                continue;
+            }
+
+            HedgeOutcome<T> outcome = hedged(chain, routes, i);
+            if (outcome.result() != null) {
+                return outcome.result();
+            }
+            i = outcome.lastTried();
+        }
+        return null;
+    }
+
+    /**
+     * Call every route concurrently and wait at most {@code timeoutMillis} for each, keeping partial results
+     *
+     * Meant for side-by-side comparison: circuits are ignored and nothing is recorded here
+     * (the provider services record their own calls). A timed-out call keeps running in the
+     * background; only its result is dropped.
+     *
+     * @return outcome per provider, in route order
+     */
+    public <T> Map<String, Outcome<T>> fanOut(List<Route<T>> routes, long timeoutMillis) {
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Outcome<T>>> futures = new LinkedHashMap<>();
+        for (Route<T> route : routes) {
+            futures.put(route.provider(), CompletableFuture.supplyAsync(() -> measure(route.call()), hedgeExecutor));
+        }
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<String, Outcome<T>> outcomes = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Outcome<T>>> entry : futures.entrySet()) {
+            try {
+                outcomes.put(entry.getKey(), entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                outcomes.put(entry.getKey(), new Outcome<>(Status.TIMEOUT, null, timeoutMillis,
+                        "No response within " + timeoutMillis + " ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcomes.put(entry.getKey(), new Outcome<>(Status.ERROR, null, 0, "Interrupted"));
+            } catch (ExecutionException e) {
+                outcomes.put(entry.getKey(), new Outcome<>(Status.ERROR, null, 0, String.valueOf(e.getCause())));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Per-provider rolling stats and circuit state
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> providers = new TreeMap<>();
+        healths.forEach((provider, health) -> providers.put(provider, health.snapshot()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("providers", providers);
+        stats.put("hedgedCalls", hedgedCalls.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        return stats;
+    }
+
+    /**
+     * Run routes[index] (already acquired) and, if it is slow, race it against the next available provider
+     */
+    private <T> HedgeOutcome<T> hedged(String chain, List<Route<T>> routes, int index) {
+        Route<T> primary = routes.get(index);
+        CompletableFuture<T> primaryCall = CompletableFuture.supplyAsync(
+                () -> timed(primary.provider(), primary.call()), hedgeExecutor);
+
+        long delay = hedgeDelay(primary.provider());
+        try {
+            return new HedgeOutcome<>(primaryCall.get(delay, TimeUnit.MILLISECONDS), index);
+        } catch (TimeoutException e) {
+            // Primary is slower than usual: start the backup below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new HedgeOutcome<>(null, routes.size());
+        } catch (ExecutionException e) {
+            return new HedgeOutcome<>(null, index);
+        }
+
+        int backupIndex = index + 1;
+        while (backupIndex < routes.size()
+                && !health(routes.get(backupIndex).provider()).tryAcquire(System.currentTimeMillis())) {
+            backupIndex++;
+        }
+        if (backupIndex >= routes.size()) {
+            return new HedgeOutcome<>(primaryCall.join(), index);
+        }
+
+        Route<T> backup = routes.get(backupIndex);
+        hedgedCalls.increment();
+        log.info("{} slower than {} ms in chain {}, hedging with {}", primary.provider(), delay, chain, backup.provider());
+        CompletableFuture<T> backupCall = CompletableFuture.supplyAsync(
+                () -> timed(backup.provider(), backup.call()), hedgeExecutor);
+
+        // First non-null answer wins; the losing call is left to finish on its own
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        primaryCall.thenAccept(result -> settle(winner, pending, result));
+        backupCall.thenAccept(result -> {
+            if (result != null && !winner.isDone()) {
+                hedgeWins.increment();
+            }
+            settle(winner, pending, result);
+        });
+        return new HedgeOutcome<>(winner.join(), backupIndex);
+    }
+
+    private static <T> void settle(CompletableFuture<T> winner, AtomicInteger pending, T result) {
+        if (result != null) {
+            winner.complete(result);
+        } else if (pending.decrementAndGet() == 0) {
+            winner.complete(null);
+        }
+    }
+
+    private long hedgeDelay(String provider) {
+        if (hedgeDelayMillis > 0) {
+            return hedgeDelayMillis;
+        }
+        long p90 = health(provider).latencyPercentile(90);
+        return Math.max(hedgeMinDelayMillis, p90 > 0 ? p90 : hedgeDefaultDelayMillis);
+    }
+
+    private static <T> Outcome<T> measure(Callable<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return result != null
+                    ? new Outcome<>(Status.OK, result, latencyMillis, null)
+                    : new Outcome<>(Status.EMPTY, null, latencyMillis, "No result");
+        } catch (Exception e) {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Outcome<>(Status.ERROR, null, latencyMillis, e.getMessage());
+        }
+    }
+
+    /**
+     * Run the call and record its latency and outcome; exceptions count as failures and yield null
+     */
+    private <T> T timed(String provider, Callable<T> call) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = result != null;
+            return result;
+        } catch (Exception e) {
+            log.warn("Provider {} failed: {}", provider, e.getMessage());
+            return null;
+        } finally {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            health(provider).record(success, latencyMillis, System.currentTimeMillis());
+        }
+    }
+
+    private ProviderHealth health(String provider) {
+        return healths.computeIfAbsent(provider, name -> new ProviderHealth(
+                windowSize, minCalls, failureRateThreshold, slowCallMillis, openSeconds * 1000));
+    }
+
+    private record HedgeOutcome<T>(T result, int lastTried) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.elearning.service.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Issues and verifies opaque per-question answer tokens for prefetched quiz questions.
+ *
+ * A token is [question index: 4 bytes][truncated HMAC-SHA256 of session ID,
+ * question index and question card ID], base64url encoded. It reveals nothing
+ * about the correct answer and cannot be reused for another session or question;
+ * the answer itself is still checked against the session's question plan.
+ */
+@Service
+@Slf4j
+public class QuizAnswerTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = Integer.BYTES + MAC_LENGTH;
+
+    private final SecretKeySpec key;
+
+    public QuizAnswerTokenService(@Value("${app.quiz.answer-token-secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            // Token chỉ hợp lệ trong vòng đời của instance này
+            log.warn("app.quiz.answer-token-secret chưa được cấu hình, dùng khóa ngẫu nhiên");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Create the token for one question of a session (0-based question index)
+     */
+    public String issue(long sessionId, int questionIndex, long questionCardId) {
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH);
+        token.putInt(questionIndex);
+        token.put(sign(sessionId, questionIndex, questionCardId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * Read the question index a token claims to be for, without checking the signature
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public int questionIndexOf(String token) {
+        return ByteBuffer.wrap(decode(token)).getInt();
+    }
+
+    /**
+     * Check that a token was issued for the given session, question and card
+     */
+    public boolean verify(String token, long sessionId, int questionIndex, long questionCardId) {
+        byte[] raw = decode(token);
+        if (ByteBuffer.wrap(raw).getInt() != questionIndex) {
+            return false;
+        }
+        byte[] mac = Arrays.copyOfRange(raw, Integer.BYTES, TOKEN_LENGTH);
+        return MessageDigest.isEqual(mac, sign(sessionId, questionIndex, questionCardId));
+    }
+
+    private byte[] decode(String token) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token câu trả lời không hợp lệ");
+        }
+        if (raw.length != TOKEN_LENGTH) {
+            throw new IllegalArgumentException("Token câu trả lời không hợp lệ");
+        }
+        return raw;
+    }
+
+    private byte[] sign(long sessionId, int questionIndex, long questionCardId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(ByteBuffer.allocate(Long.BYTES + Integer.BYTES + Long.BYTES)
+                    .putLong(sessionId)
+                    .putInt(questionIndex)
+                    .putLong(questionCardId)
+                    .array());
+            return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không thể tạo token câu trả lời", e);
+        }
+    }
+}
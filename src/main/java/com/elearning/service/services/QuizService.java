@@ -3,11 +3,14 @@ package com.elearning.service.services;
 import com.elearning.service.dtos.*;
 import com.elearning.service.entities.*;
 import com.elearning.service.repositories.*;
+import com.elearning.service.utils.DistractorIndex;
+import com.elearning.service.utils.QuizPlan;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -34,14 +37,33 @@ public class QuizService {
     private final UserRepository userRepository;
     private final DeckRepository deckRepository;
     private final CardRepository cardRepository;
+    private final DistractorIndexService distractorIndexService;
+    private final QuizAnswerTokenService quizAnswerTokenService;
+    private final QuizWeaknessService quizWeaknessService;
+    private final QuizStatsService quizStatsService;
     private final ObjectMapper objectMapper;
 
+    @Value("${app.quiz.prefetch.max-count:20}")
+    private int maxPrefetchCount;
+
+    /**
+     * Số câu hỏi mặc định của một quiz (0 = toàn bộ deck)
+     */
+    @Value("${app.quiz.default-question-count:0}")
+    private int defaultQuestionCount;
+
     /**
      * Bắt đầu quiz mới cho deck
+     * 
+     * @param questionCount Số câu hỏi tối đa (null = theo cấu hình mặc định)
      */
     @Transactional
-    public QuizQuestionDTO startQuiz(Long deckId) {
-        log.info("Bắt đầu quiz cho deck ID: {}", deckId);
+    public QuizQuestionDTO startQuiz(Long deckId, Integer questionCount) {
+        log.info("Bắt đầu quiz cho deck ID: {}, số câu: {}", deckId, questionCount);
+        
+        if (questionCount != null && questionCount < 1) {
+            throw new IllegalStateException("Số câu hỏi phải lớn hơn 0");
+        }
         
         User currentUser = getCurrentUser();
         Deck deck = getDeckWithAccessCheck(deckId, currentUser);
@@ -59,37 +81,38 @@ public class QuizService {
             quizSessionRepository.save(session);
         });
         
-        // Xáo trộn thứ tự cards
-        Collections.shuffle(cards);
+        // Chọn và sắp thứ tự thẻ theo độ yếu của user (thẻ yếu xuất hiện sớm hơn)
+        int limit = questionCount != null ? questionCount : defaultQuestionCount;
+        List<Card> questionCards = quizWeaknessService.selectQuizCards(currentUser.getId(), cards, limit);
         
-        // Tạo session mới
-        List<Long> cardIds = cards.stream().map(Card::getId).collect(Collectors.toList());
-        String cardIdsJson = convertToJson(cardIds);
+        // Dựng sẵn toàn bộ câu hỏi (options + đáp án đúng) một lần duy nhất
+        QuizPlan plan = buildQuizPlan(deckId, questionCards, cards);
         
+        // Tạo session mới (thứ tự thẻ nằm trong kế hoạch câu hỏi, kết quả lưu bằng bitset)
         QuizSession session = QuizSession.builder()
                 .user(currentUser)
                 .deck(deck)
                 .status(QuizSession.QuizStatus.ACTIVE)
                 .currentQuestion(1)
-                .totalQuestions(cards.size())
-                .cardIds(cardIdsJson)
+                .totalQuestions(questionCards.size())
+                .questionPlan(plan.toBytes())
+                .correctMask(new byte[(questionCards.size() + 7) / 8])
                 .correctAnswers(0)
                 .wrongAnswers(0)
-                .correctCardIds("[]")
-                .wrongCardIds("[]")
                 .build();
         
         session = quizSessionRepository.save(session);
-        log.info("Tạo quiz session ID: {} với {} câu hỏi", session.getId(), cards.size());
+        log.info("Tạo quiz session ID: {} với {} câu hỏi", session.getId(), questionCards.size());
         
-        // Trả về câu hỏi đầu tiên
-        return generateQuestion(session, cards.get(0), cards);
+        // Trả về câu hỏi đầu tiên (cards đã có sẵn trong bộ nhớ)
+        Map<Long, Card> cardsById = cards.stream().collect(Collectors.toMap(Card::getId, card -> card));
+        return toQuestionDTO(session, plan, 0, cardsById);
     }
 
     /**
      * Lấy câu hỏi hiện tại của session
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public QuizQuestionDTO getCurrentQuestion(Long deckId) {
         log.info("Lấy câu hỏi hiện tại cho deck ID: {}", deckId);
         
@@ -99,29 +122,46 @@ public class QuizService {
         QuizSession session = quizSessionRepository.findActiveSessionByUserAndDeck(currentUser, deck)
                 .orElseThrow(() -> new IllegalStateException("Không tìm thấy session quiz active"));
         
-        List<Long> cardIds = convertFromJson(session.getCardIds(), new TypeReference<List<Long>>() {});
-        Long currentCardId = cardIds.get(session.getCurrentQuestion() - 1);
-        
-        Card currentCard = cardRepository.findById(currentCardId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy card ID: " + currentCardId));
-        
-        // Kiểm tra xem câu hỏi đã được tạo chưa
-        if (session.getCurrentOptions() != null && session.getCurrentCorrectAnswerIndex() != null) {
-            // Sử dụng options đã lưu
-            List<String> options = convertFromJson(session.getCurrentOptions(), new TypeReference<List<String>>() {});
-            return QuizQuestionDTO.builder()
-                    .cardId(currentCard.getId())
-                    .questionNumber(session.getCurrentQuestion())
-                    .totalQuestions(session.getTotalQuestions())
-                    .question(currentCard.getFront())
-                    .options(options)
-                    .correctAnswerIndex(session.getCurrentCorrectAnswerIndex())
-                    .build();
-        } else {
-            // Tạo câu hỏi mới
-            List<Card> allCards = cardRepository.findAllByDeckId(deckId);
-            return generateQuestion(session, currentCard, allCards);
+        QuizPlan plan = getQuizPlan(session);
+        int questionIndex = session.getCurrentQuestion() - 1;
+        
+        return toQuestionDTO(session, plan, questionIndex, loadOptionCards(plan, questionIndex));
+    }
+
+    /**
+     * Lấy trước tối đa {@code count} câu hỏi kể từ câu hiện tại.
+     * Câu hỏi lấy trước không kèm đáp án đúng; mỗi câu có token riêng để submit
+     */
+    @Transactional
+    public List<QuizQuestionDTO> prefetchQuestions(Long deckId, int count) {
+        log.info("Prefetch {} câu hỏi cho deck ID: {}", count, deckId);
+        
+        if (count < 1) {
+            throw new IllegalArgumentException("Số câu hỏi cần lấy phải lớn hơn 0");
+        }
+        
+        User currentUser = getCurrentUser();
+        Deck deck = getDeckWithAccessCheck(deckId, currentUser);
+        
+        QuizSession session = quizSessionRepository.findActiveSessionByUserAndDeck(currentUser, deck)
+                .orElseThrow(() -> new IllegalStateException("Không tìm thấy session quiz active"));
+        
+        QuizPlan plan = getQuizPlan(session);
+        int from = session.getCurrentQuestion() - 1;
+        int to = Math.min(plan.size(), from + Math.min(count, maxPrefetchCount));
+        
+        // Một truy vấn cho tất cả thẻ của các câu được lấy
+        int[] questionIndexes = new int[Math.max(0, to - from)];
+        for (int i = 0; i < questionIndexes.length; i++) {
+            questionIndexes[i] = from + i;
         }
+        Map<Long, Card> optionCards = loadOptionCards(plan, questionIndexes);
+        
+        List<QuizQuestionDTO> questions = new ArrayList<>(questionIndexes.length);
+        for (int questionIndex : questionIndexes) {
+            questions.add(toQuestionDTO(session, plan, questionIndex, optionCards));
+        }
+        return questions;
     }
 
     /**
@@ -138,38 +178,48 @@ public class QuizService {
         QuizSession session = quizSessionRepository.findActiveSessionByUserAndDeck(currentUser, deck)
                 .orElseThrow(() -> new IllegalStateException("Không tìm thấy session quiz active"));
         
-        // Validate card ID
-        List<Long> cardIds = convertFromJson(session.getCardIds(), new TypeReference<List<Long>>() {});
-        if (cardIds.isEmpty() || session.getCurrentQuestion() <= 0 || session.getCurrentQuestion() > cardIds.size()) {
+        // Validate câu hỏi hiện tại
+        QuizPlan plan = getQuizPlan(session);
+        int questionIndex = session.getCurrentQuestion() - 1;
+        if (questionIndex < 0 || questionIndex >= plan.size()) {
             throw new IllegalStateException("Dữ liệu session không hợp lệ");
         }
         
-        Long currentCardId = cardIds.get(session.getCurrentQuestion() - 1);
+        Long currentCardId = plan.getQuestionCardId(questionIndex);
         
-        if (!currentCardId.equals(answerDTO.getCardId())) {
-            throw new IllegalArgumentException("Card ID không khớp với câu hỏi hiện tại");
+        // Token xác định câu hỏi được trả lời; câu trả lời phải đến đúng thứ tự
+        if (answerDTO.getAnswerToken() == null || answerDTO.getAnswerToken().isBlank()) {
+            throw new IllegalArgumentException("Thiếu token câu trả lời");
         }
+        validateAnswerToken(session, answerDTO.getAnswerToken(), questionIndex, currentCardId);
         
-        // Lấy options và correct index từ session (đã được lưu khi tạo câu hỏi)
-        List<String> currentOptions = convertFromJson(session.getCurrentOptions(), new TypeReference<List<String>>() {});
-        Integer correctAnswerIndex = session.getCurrentCorrectAnswerIndex();
-        
-        if (currentOptions.isEmpty() || correctAnswerIndex == null || 
-            correctAnswerIndex < 0 || correctAnswerIndex >= currentOptions.size()) {
-            throw new IllegalStateException("Dữ liệu câu hỏi không hợp lệ");
+        if (answerDTO.getCardId() != null && !currentCardId.equals(answerDTO.getCardId())) {
+            throw new IllegalArgumentException("Card ID không khớp với câu hỏi hiện tại");
         }
         
         if (answerDTO.getSelectedAnswerIndex() == null || 
             answerDTO.getSelectedAnswerIndex() < 0 || 
-            answerDTO.getSelectedAnswerIndex() >= currentOptions.size()) {
+            answerDTO.getSelectedAnswerIndex() >= QuizPlan.OPTION_COUNT) {
             throw new IllegalArgumentException("Đáp án được chọn không hợp lệ");
         }
         
-        // Kiểm tra đáp án
-        boolean isCorrect = answerDTO.getSelectedAnswerIndex().equals(correctAnswerIndex);
+        // Kiểm tra đáp án (tra cứu trực tiếp trong kế hoạch câu hỏi)
+        int correctAnswerIndex = plan.getCorrectIndex(questionIndex);
+        boolean isCorrect = answerDTO.getSelectedAnswerIndex() == correctAnswerIndex;
         
         // Cập nhật session
-        updateSessionWithAnswer(session, currentCardId, isCorrect);
+        updateSessionWithAnswer(session, questionIndex, isCorrect);
+        
+        // Ghi nhật ký câu trả lời + cộng dồn thống kê tỉ lệ sai của thẻ/deck
+        quizStatsService.recordAnswer(session.getId(), currentUser.getId(), deck.getUser().getId(), deckId, currentCardId,
+                questionIndex + 1, answerDTO.getSelectedAnswerIndex(), isCorrect, answerDTO.getResponseTime());
+        
+        // Chỉ load các thẻ của câu hiện tại và câu tiếp theo (tối đa 8 thẻ)
+        boolean hasNextQuestion = session.getCurrentQuestion() < session.getTotalQuestions();
+        Map<Long, Card> optionCards = hasNextQuestion
+                ? loadOptionCards(plan, questionIndex, questionIndex + 1)
+                : loadOptionCards(plan, questionIndex);
+        List<String> currentOptions = getOptionTexts(plan, questionIndex, optionCards);
         
         // Tạo kết quả
         QuizAnswerResultDTO result = QuizAnswerResultDTO.builder()
@@ -180,22 +230,18 @@ public class QuizService {
                 .build();
         
         // Kiểm tra xem còn câu hỏi nào không
-        if (session.getCurrentQuestion() < session.getTotalQuestions()) {
-            // Còn câu hỏi -> tạo câu hỏi tiếp theo
+        if (hasNextQuestion) {
+            // Còn câu hỏi -> trả về câu hỏi tiếp theo đã dựng sẵn
             session.setCurrentQuestion(session.getCurrentQuestion() + 1);
-            session = quizSessionRepository.save(session);
-            
-            Long nextCardId = cardIds.get(session.getCurrentQuestion() - 1);
-            Card nextCard = cardRepository.findById(nextCardId)
-                    .orElseThrow(() -> new RuntimeException("Không tìm thấy card ID: " + nextCardId));
+            quizSessionRepository.save(session);
             
-            List<Card> allCards = cardRepository.findAllByDeckId(deckId);
-            result.setNextQuestion(generateQuestion(session, nextCard, allCards));
+            result.setNextQuestion(toQuestionDTO(session, plan, questionIndex + 1, optionCards));
         } else {
             // Hết câu hỏi -> hoàn thành quiz
             session.setStatus(QuizSession.QuizStatus.COMPLETED);
             session.setCompletedAt(LocalDateTime.now());
             quizSessionRepository.save(session);
+            quizWeaknessService.invalidate(currentUser.getId());
             
             result.setNextQuestion(null);
         }
@@ -231,6 +277,22 @@ public class QuizService {
         // Tạo thông báo khuyến khích
         String message = generateEncouragementMessage(accuracy);
         
+        // Danh sách thẻ đúng/sai suy ra từ kế hoạch câu hỏi + bitset
+        List<Long> correctCardIds = new ArrayList<>();
+        List<Long> wrongCardIds = new ArrayList<>();
+        if (session.getQuestionPlan() != null && session.getCorrectMask() != null) {
+            QuizPlan plan = QuizPlan.wrap(session.getQuestionPlan());
+            BitSet correctMask = BitSet.valueOf(session.getCorrectMask());
+            int answered = Math.min(session.getCorrectAnswers() + session.getWrongAnswers(), plan.size());
+            for (int i = 0; i < answered; i++) {
+                (correctMask.get(i) ? correctCardIds : wrongCardIds).add(plan.getQuestionCardId(i));
+            }
+        } else {
+            // Session cũ lưu dạng JSON
+            correctCardIds = convertFromJson(session.getCorrectCardIds(), new TypeReference<List<Long>>() {});
+            wrongCardIds = convertFromJson(session.getWrongCardIds(), new TypeReference<List<Long>>() {});
+        }
+        
         return QuizResultDTO.builder()
                 .deckId(deckId)
                 .totalQuestions(session.getTotalQuestions())
@@ -238,83 +300,186 @@ public class QuizService {
                 .wrongAnswers(session.getWrongAnswers())
                 .accuracyPercentage(Math.round(accuracy * 100.0) / 100.0)
                 .totalTimeSeconds(totalSeconds)
-                .correctCardIds(convertFromJson(session.getCorrectCardIds(), new TypeReference<List<Long>>() {}))
-                .wrongCardIds(convertFromJson(session.getWrongCardIds(), new TypeReference<List<Long>>() {}))
+                .correctCardIds(correctCardIds)
+                .wrongCardIds(wrongCardIds)
                 .message(message)
                 .build();
     }
 
     /**
-     * Tạo câu hỏi quiz với 4 lựa chọn
+     * Kiểm tra token của câu trả lời: đúng session, đúng câu hỏi hiện tại
+     */
+    private void validateAnswerToken(QuizSession session, String token, int currentIndex, long currentCardId) {
+        int tokenIndex = quizAnswerTokenService.questionIndexOf(token);
+        if (tokenIndex < currentIndex) {
+            throw new IllegalStateException("Câu hỏi " + (tokenIndex + 1) + " đã được trả lời");
+        }
+        if (tokenIndex > currentIndex) {
+            throw new IllegalStateException("Câu hỏi " + (currentIndex + 1) + " chưa được trả lời");
+        }
+        if (!quizAnswerTokenService.verify(token, session.getId(), currentIndex, currentCardId)) {
+            throw new IllegalArgumentException("Token câu trả lời không hợp lệ");
+        }
+    }
+
+    /**
+     * Thống kê tỉ lệ sai quiz của deck và các thẻ khó nhất
      */
-    private QuizQuestionDTO generateQuestion(QuizSession session, Card questionCard, List<Card> allCards) {
-        // Lấy đáp án đúng
-        String correctAnswer = questionCard.getBack();
-        
-        // Tạo 3 đáp án sai từ các cards khác
-        List<String> wrongAnswers = allCards.stream()
-                .filter(card -> !card.getId().equals(questionCard.getId()))
-                .map(Card::getBack)
-                .filter(back -> !back.equals(correctAnswer)) // Tránh trùng lặp
-                .collect(Collectors.toList());
-        
-        Collections.shuffle(wrongAnswers);
-        
-        // Lấy 3 đáp án sai đầu tiên
-        List<String> selectedWrongAnswers = wrongAnswers.stream()
-                .limit(3)
-                .collect(Collectors.toList());
-        
-        // Nếu không đủ 3 đáp án sai, tạo thêm đáp án giả
-        while (selectedWrongAnswers.size() < 3) {
-            selectedWrongAnswers.add("Đáp án " + (selectedWrongAnswers.size() + 1));
+    @Transactional(readOnly = true)
+    public QuizDeckStatsDTO getQuizStats(Long deckId, int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("Số thẻ cần lấy phải từ 1 đến 100");
         }
         
-        // Tạo danh sách 4 lựa chọn
-        List<String> options = new ArrayList<>();
-        options.add(correctAnswer);
-        options.addAll(selectedWrongAnswers);
+        User currentUser = getCurrentUser();
+        getDeckWithAccessCheck(deckId, currentUser);
         
-        // Xáo trộn thứ tự
-        Collections.shuffle(options);
+        return quizStatsService.getDeckStats(deckId, limit);
+    }
+
+    /**
+     * Dựng kế hoạch câu hỏi cho toàn bộ quiz: mỗi câu có 1 đáp án đúng + 3 đáp án sai
+     * gần giống đáp án đúng (lấy từ distractor index của deck), thứ tự đã xáo trộn.
+     * Dùng chung với phòng quiz trực tiếp
+     */
+    public QuizPlan buildQuizPlan(Long deckId, List<Card> questionCards, List<Card> deckCards) {
+        QuizPlan plan = QuizPlan.allocate(questionCards.size());
+        DistractorIndex distractorIndex = distractorIndexService.getOrBuild(deckId, deckCards);
+        Random random = new Random();
+        
+        for (int q = 0; q < questionCards.size(); q++) {
+            Card questionCard = questionCards.get(q);
+            List<Long> wrongCardIds = distractorIndexService.findDistractors(
+                    distractorIndex, questionCard, QuizPlan.OPTION_COUNT - 1);
+            
+            // Tạo danh sách 4 lựa chọn (thiếu đáp án sai thì dùng đáp án giả) rồi xáo trộn
+            List<Long> options = new ArrayList<>(QuizPlan.OPTION_COUNT);
+            options.add(questionCard.getId());
+            options.addAll(wrongCardIds);
+            while (options.size() < QuizPlan.OPTION_COUNT) {
+                options.add(QuizPlan.PLACEHOLDER_OPTION);
+            }
+            Collections.shuffle(options, random);
+            
+            long[] optionIds = options.stream().mapToLong(Long::longValue).toArray();
+            plan.setQuestion(q, optionIds, options.indexOf(questionCard.getId()));
+        }
         
-        // Tìm index của đáp án đúng sau khi xáo trộn
-        int correctAnswerIndex = options.indexOf(correctAnswer);
+        return plan;
+    }
+
+    /**
+     * Lấy kế hoạch câu hỏi của session; session cũ (lưu dạng JSON) được chuyển đổi một lần
+     */
+    private QuizPlan getQuizPlan(QuizSession session) {
+        if (session.getQuestionPlan() != null) {
+            if (session.getCorrectMask() == null) {
+                session.setCorrectMask(new byte[(session.getTotalQuestions() + 7) / 8]);
+            }
+            return QuizPlan.wrap(session.getQuestionPlan());
+        }
+        
+        log.info("Dựng kế hoạch câu hỏi cho session cũ ID: {}", session.getId());
+        List<Long> cardIds = convertFromJson(session.getCardIds(), new TypeReference<List<Long>>() {});
+        Map<Long, Card> cardsById = cardRepository.findAllByDeckId(session.getDeck().getId()).stream()
+                .collect(Collectors.toMap(Card::getId, card -> card));
+        List<Card> orderedCards = new ArrayList<>(cardIds.size());
+        for (Long cardId : cardIds) {
+            Card card = cardsById.get(cardId);
+            if (card == null) {
+                throw new RuntimeException("Không tìm thấy card ID: " + cardId);
+            }
+            orderedCards.add(card);
+        }
+        
+        QuizPlan plan = buildQuizPlan(session.getDeck().getId(), orderedCards, new ArrayList<>(cardsById.values()));
         
-        // Lưu thông tin câu hỏi hiện tại vào session
-        session.setCurrentOptions(convertToJson(options));
-        session.setCurrentCorrectAnswerIndex(correctAnswerIndex);
+        // Chuyển danh sách thẻ trả lời đúng (JSON) sang bitset theo vị trí câu hỏi
+        Set<Long> correctIds = new HashSet<>(
+                convertFromJson(session.getCorrectCardIds(), new TypeReference<List<Long>>() {}));
+        BitSet correctMask = new BitSet(cardIds.size());
+        for (int i = 0; i < cardIds.size(); i++) {
+            if (correctIds.contains(cardIds.get(i))) {
+                correctMask.set(i);
+            }
+        }
+        
+        session.setQuestionPlan(plan.toBytes());
+        session.setCorrectMask(Arrays.copyOf(correctMask.toByteArray(), (cardIds.size() + 7) / 8));
         quizSessionRepository.save(session);
+        return plan;
+    }
+
+    /**
+     * Load các thẻ xuất hiện trong những câu hỏi được chỉ định (một truy vấn theo ID)
+     */
+    private Map<Long, Card> loadOptionCards(QuizPlan plan, int... questionIndexes) {
+        Set<Long> ids = new HashSet<>();
+        for (int questionIndex : questionIndexes) {
+            for (int option = 0; option < QuizPlan.OPTION_COUNT; option++) {
+                long cardId = plan.getOptionCardId(questionIndex, option);
+                if (cardId != QuizPlan.PLACEHOLDER_OPTION) {
+                    ids.add(cardId);
+                }
+            }
+        }
+        return cardRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Card::getId, card -> card));
+    }
+
+    /**
+     * Nội dung các lựa chọn của một câu hỏi theo đúng thứ tự hiển thị
+     */
+    public List<String> getOptionTexts(QuizPlan plan, int questionIndex, Map<Long, Card> cardsById) {
+        List<String> options = new ArrayList<>(QuizPlan.OPTION_COUNT);
+        int placeholderNumber = 1;
+        for (int option = 0; option < QuizPlan.OPTION_COUNT; option++) {
+            long cardId = plan.getOptionCardId(questionIndex, option);
+            if (cardId == QuizPlan.PLACEHOLDER_OPTION) {
+                options.add("Đáp án " + placeholderNumber++);
+                continue;
+            }
+            Card card = cardsById.get(cardId);
+            if (card == null) {
+                throw new RuntimeException("Không tìm thấy card ID: " + cardId);
+            }
+            options.add(card.getBack());
+        }
+        return options;
+    }
+
+    /**
+     * Tạo DTO câu hỏi từ kế hoạch câu hỏi
+     */
+    private QuizQuestionDTO toQuestionDTO(QuizSession session, QuizPlan plan, int questionIndex, Map<Long, Card> cardsById) {
+        long questionCardId = plan.getQuestionCardId(questionIndex);
+        Card questionCard = cardsById.get(questionCardId);
+        if (questionCard == null) {
+            throw new RuntimeException("Không tìm thấy card ID: " + questionCardId);
+        }
         
         return QuizQuestionDTO.builder()
                 .cardId(questionCard.getId())
-                .questionNumber(session.getCurrentQuestion())
+                .questionNumber(questionIndex + 1)
                 .totalQuestions(session.getTotalQuestions())
                 .question(questionCard.getFront())
-                .options(options)
-                .correctAnswerIndex(correctAnswerIndex)
+                .options(getOptionTexts(plan, questionIndex, cardsById))
+                .answerToken(quizAnswerTokenService.issue(session.getId(), questionIndex, questionCardId))
                 .build();
     }
 
     /**
-     * Cập nhật session với câu trả lời
+     * Cập nhật session với câu trả lời: tăng bộ đếm và bật bit của câu trả lời đúng.
+     * Chi phí không phụ thuộc độ dài quiz; session được lưu bởi caller
      */
-    private void updateSessionWithAnswer(QuizSession session, Long cardId, boolean isCorrect) {
+    private void updateSessionWithAnswer(QuizSession session, int questionIndex, boolean isCorrect) {
         if (isCorrect) {
             session.setCorrectAnswers(session.getCorrectAnswers() + 1);
             
-            List<Long> correctIds = convertFromJson(session.getCorrectCardIds(), new TypeReference<List<Long>>() {});
-            correctIds.add(cardId);
-            session.setCorrectCardIds(convertToJson(correctIds));
+            session.getCorrectMask()[questionIndex >> 3] |= (byte) (1 << (questionIndex & 7));
         } else {
             session.setWrongAnswers(session.getWrongAnswers() + 1);
-            
-            List<Long> wrongIds = convertFromJson(session.getWrongCardIds(), new TypeReference<List<Long>>() {});
-            wrongIds.add(cardId);
-            session.setWrongCardIds(convertToJson(wrongIds));
         }
-        
-        quizSessionRepository.save(session);
     }
 
     /**
@@ -347,8 +512,8 @@ public class QuizService {
      * Lấy deck và kiểm tra quyền truy cập
      */
     private Deck getDeckWithAccessCheck(Long deckId, User user) {
-        Deck deck = deckRepository.findById(deckId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy deck với ID: " + deckId));
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         if (!deck.getUser().getId().equals(user.getId())) {
             throw new AccessDeniedException("Bạn không có quyền truy cập deck này");
@@ -357,18 +522,6 @@ public class QuizService {
         return deck;
     }
 
-    /**
-     * Convert object to JSON string
-     */
-    private String convertToJson(Object obj) {
-        try {
-            return objectMapper.writeValueAsString(obj);
-        } catch (JsonProcessingException e) {
-            log.error("Lỗi khi convert object to JSON", e);
-            throw new RuntimeException("Lỗi khi xử lý dữ liệu JSON", e);
-        }
-    }
-
     /**
      * Convert JSON string to object
      */
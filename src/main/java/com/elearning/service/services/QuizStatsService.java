@@ -0,0 +1,153 @@
+package com.elearning.service.services;
+
+import com.elearning.service.dtos.QuizCardStatsDTO;
+import com.elearning.service.dtos.QuizDeckStatsDTO;
+import com.elearning.service.entities.Card;
+import com.elearning.service.entities.QuizAnswerLog;
+import com.elearning.service.entities.QuizCardStats;
+import com.elearning.service.entities.QuizDeckStats;
+import com.elearning.service.repositories.CardRepository;
+import com.elearning.service.repositories.QuizAnswerLogRepository;
+import com.elearning.service.repositories.QuizCardStatsRepository;
+import com.elearning.service.repositories.QuizDeckStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ghi nhật ký câu trả lời quiz và duy trì thống kê tỉ lệ sai theo thẻ/deck.
+ *
+ * Mỗi câu trả lời ghi thêm một dòng log và cộng dồn vào thống kê bằng câu lệnh
+ * UPDATE tại chỗ (tổng số lần + trung bình trượt hàm mũ của tỉ lệ sai), nên
+ * các màn hình "thẻ khó nhất" và bộ sắp xếp quiz không cần quét lại lịch sử.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuizStatsService {
+
+    private final QuizAnswerLogRepository quizAnswerLogRepository;
+    private final QuizCardStatsRepository quizCardStatsRepository;
+    private final QuizDeckStatsRepository quizDeckStatsRepository;
+    private final CardRepository cardRepository;
+
+    /**
+     * Trọng số của câu trả lời mới nhất trong tỉ lệ sai gần đây
+     */
+    @Value("${app.quiz.stats.ewma-alpha:0.2}")
+    private double ewmaAlpha;
+
+    /**
+     * Số lần trả lời tối thiểu để một thẻ được xếp hạng
+     */
+    @Value("${app.quiz.stats.min-attempts:2}")
+    private int minAttempts;
+
+    /**
+     * Ghi một câu trả lời (trong transaction của caller)
+     *
+     * @param userId      người trả lời (ghi vào nhật ký)
+     * @param deckOwnerId chủ sở hữu deck (ghi vào thống kê của thẻ)
+     */
+    @Transactional
+    public void recordAnswer(Long sessionId, Long userId, Long deckOwnerId, Long deckId, Long cardId, int questionNumber,
+                             int selectedIndex, boolean correct, Long responseTimeMs) {
+        LocalDateTime now = LocalDateTime.now();
+        int error = correct ? 0 : 1;
+        double decay = 1.0 - ewmaAlpha;
+        double errorShare = error * ewmaAlpha;
+
+        quizAnswerLogRepository.save(QuizAnswerLog.builder()
+                .sessionId(sessionId)
+                .userId(userId)
+                .deckId(deckId)
+                .cardId(cardId)
+                .questionNumber(questionNumber)
+                .selectedIndex((byte) selectedIndex)
+                .correct(correct)
+                .responseTimeMs(responseTimeMs != null ? (int) Math.min(Integer.MAX_VALUE, Math.max(0, responseTimeMs)) : null)
+                .answeredAt(now)
+                .build());
+
+        // Upsert: dòng thống kê được tạo ở lần trả lời đầu tiên, các lần sau cộng dồn tại chỗ
+        quizCardStatsRepository.recordAnswer(cardId, deckOwnerId, deckId, error, decay, errorShare, now);
+        quizDeckStatsRepository.recordAnswer(deckId, error, decay, errorShare, now);
+    }
+
+    /**
+     * Thống kê quiz của deck kèm danh sách thẻ khó nhất (caller kiểm tra quyền)
+     */
+    @Transactional(readOnly = true)
+    public QuizDeckStatsDTO getDeckStats(Long deckId, int limit) {
+        QuizDeckStats deckStats = quizDeckStatsRepository.findById(deckId).orElse(null);
+
+        List<QuizCardStats> hardest = quizCardStatsRepository.findHardestByDeckId(
+                deckId, minAttempts, PageRequest.of(0, limit));
+        Map<Long, Card> cardsById = cardRepository.findAllById(
+                        hardest.stream().map(QuizCardStats::getCardId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        List<QuizCardStatsDTO> hardestCards = hardest.stream()
+                .filter(stats -> cardsById.containsKey(stats.getCardId()))
+                .map(stats -> {
+                    Card card = cardsById.get(stats.getCardId());
+                    return QuizCardStatsDTO.builder()
+                            .cardId(stats.getCardId())
+                            .front(card.getFront())
+                            .back(card.getBack())
+                            .attempts(stats.getAttempts())
+                            .errors(stats.getErrors())
+                            .errorRate(rate(stats.getErrors(), stats.getAttempts()))
+                            .recentErrorRate(round(stats.getRecentErrorRate()))
+                            .lastAnsweredAt(stats.getLastAnsweredAt())
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        return QuizDeckStatsDTO.builder()
+                .deckId(deckId)
+                .attempts(deckStats != null ? deckStats.getAttempts() : 0)
+                .errors(deckStats != null ? deckStats.getErrors() : 0)
+                .errorRate(deckStats != null ? rate(deckStats.getErrors(), deckStats.getAttempts()) : 0.0)
+                .recentErrorRate(deckStats != null ? round(deckStats.getRecentErrorRate()) : 0.0)
+                .lastAnsweredAt(deckStats != null ? deckStats.getLastAnsweredAt() : null)
+                .hardestCards(hardestCards)
+                .build();
+    }
+
+    /**
+     * Xóa log và thống kê của các thẻ bị xóa
+     */
+    @Transactional
+    public void deleteByCardIds(List<Long> cardIds) {
+        quizAnswerLogRepository.deleteByCardIdIn(cardIds);
+        quizCardStatsRepository.deleteByCardIdIn(cardIds);
+    }
+
+    /**
+     * Xóa log và thống kê còn lại của một deck bị xóa
+     */
+    @Transactional
+    public void deleteByDeckId(Long deckId) {
+        quizAnswerLogRepository.deleteByDeckId(deckId);
+        quizDeckStatsRepository.deleteByDeckId(deckId);
+    }
+
+    private static double rate(int errors, int attempts) {
+        return attempts > 0 ? round((double) errors / attempts) : 0.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000.0) / 10000.0;
+    }
+}
@@ -0,0 +1,197 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.Card;
+import com.elearning.service.entities.SpacedRepetition;
+import com.elearning.service.repositories.QuizCardStatsRepository;
+import com.elearning.service.repositories.ReviewHistoryRepository;
+import com.elearning.service.repositories.SpacedRepetitionRepository;
+import com.elearning.service.repositories.UserCardProgressRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chọn và sắp thứ tự thẻ cho quiz theo độ yếu của user (spaced repetition).
+ *
+ * Mỗi user có một snapshot điểm yếu của tất cả thẻ, dựng bằng vài truy vấn
+ * tổng hợp (easiness factor + giai đoạn học, tiến độ ôn tập, số lần sai gần đây,
+ * tỉ lệ sai quiz)
+ * và giữ trong cache LRU có thời hạn; không truy vấn theo từng thẻ. Snapshot bị
+ * loại bỏ khi user ôn tập thẻ.
+ *
+ * Thẻ được lấy mẫu có trọng số không hoàn lại (Efraimidis–Spirakis): thẻ càng
+ * yếu càng dễ được chọn và xuất hiện sớm, nhưng thứ tự vẫn ngẫu nhiên.
+ */
+@Service
+@Slf4j
+public class QuizWeaknessService {
+
+    private static final double DEFAULT_EASINESS = 2.5;
+    private static final double MIN_EASINESS = 1.3;
+
+    private final SpacedRepetitionRepository spacedRepetitionRepository;
+    private final UserCardProgressRepository userCardProgressRepository;
+    private final ReviewHistoryRepository reviewHistoryRepository;
+    private final QuizCardStatsRepository quizCardStatsRepository;
+    private final Map<Long, Snapshot> snapshots;
+
+    @Value("${app.quiz.adaptive.snapshot-ttl-minutes:10}")
+    private long snapshotTtlMinutes;
+
+    @Value("${app.quiz.adaptive.failure-window-days:14}")
+    private int failureWindowDays;
+
+    /**
+     * Số lần trả lời quiz tối thiểu để tỉ lệ sai của thẻ được tính vào điểm yếu
+     */
+    @Value("${app.quiz.adaptive.min-quiz-attempts:2}")
+    private int minQuizAttempts;
+
+    public QuizWeaknessService(SpacedRepetitionRepository spacedRepetitionRepository,
+                               UserCardProgressRepository userCardProgressRepository,
+                               ReviewHistoryRepository reviewHistoryRepository,
+                               QuizCardStatsRepository quizCardStatsRepository,
+                               @Value("${app.quiz.adaptive.max-users:1000}") int maxUsers) {
+        this.spacedRepetitionRepository = spacedRepetitionRepository;
+        this.userCardProgressRepository = userCardProgressRepository;
+        this.reviewHistoryRepository = reviewHistoryRepository;
+        this.quizCardStatsRepository = quizCardStatsRepository;
+        this.snapshots = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+
+    /**
+     * Chọn tối đa {@code limit} thẻ (0 = tất cả) theo trọng số độ yếu, thẻ yếu có xu hướng đứng trước
+     */
+    public List<Card> selectQuizCards(Long userId, List<Card> cards, int limit) {
+        Snapshot snapshot = getSnapshot(userId);
+        int count = limit > 0 ? Math.min(limit, cards.size()) : cards.size();
+
+        // Khóa ngẫu nhiên u^(1/w): sắp giảm dần theo khóa = lấy mẫu có trọng số không hoàn lại
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        PriorityQueue<Map.Entry<Double, Card>> top = new PriorityQueue<>(count + 1, Map.Entry.comparingByKey());
+        for (Card card : cards) {
+            double key = Math.log(random.nextDouble(Double.MIN_VALUE, 1.0)) / snapshot.weightOf(card.getId());
+            if (top.size() < count) {
+                top.add(Map.entry(key, card));
+            } else if (key > top.peek().getKey()) {
+                top.poll();
+                top.add(Map.entry(key, card));
+            }
+        }
+
+        List<Card> selected = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            selected.add(top.poll().getValue());
+        }
+        Collections.reverse(selected);
+        return selected;
+    }
+
+    /**
+     * Loại snapshot của user (sau khi user ôn tập thẻ)
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            snapshots.remove(userId);
+        }
+    }
+
+    private Snapshot getSnapshot(Long userId) {
+        Snapshot snapshot = snapshots.get(userId);
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now - snapshot.builtAt < snapshotTtlMinutes * 60_000L) {
+            return snapshot;
+        }
+        snapshot = buildSnapshot(userId, now);
+        snapshots.put(userId, snapshot);
+        return snapshot;
+    }
+
+    private Snapshot buildSnapshot(Long userId, long now) {
+        Map<Long, Double> weakness = new HashMap<>();
+
+        // Easiness factor thấp và giai đoạn LEARNING làm thẻ yếu hơn; MASTERED giảm ưu tiên
+        for (Object[] row : spacedRepetitionRepository.findWeaknessSignalsByUserId(userId)) {
+            Long cardId = (Long) row[0];
+            double easiness = row[1] != null ? ((BigDecimal) row[1]).doubleValue() : DEFAULT_EASINESS;
+            SpacedRepetition.LearningPhase phase = (SpacedRepetition.LearningPhase) row[2];
+            Integer lastQuality = (Integer) row[3];
+
+            double score = easinessWeakness(easiness);
+            if (phase == SpacedRepetition.LearningPhase.LEARNING) {
+                score += 1.5;
+            } else if (phase == SpacedRepetition.LearningPhase.MASTERED) {
+                score -= 0.7;
+            }
+            if (lastQuality != null && lastQuality < 3) {
+                score += 1.0;
+            }
+            weakness.merge(cardId, score, Double::sum);
+        }
+
+        for (Object[] row : userCardProgressRepository.findWeaknessSignalsByUserId(userId)) {
+            Long cardId = (Long) row[0];
+            double easeFactor = row[1] != null ? (Double) row[1] : DEFAULT_EASINESS;
+            int totalReviews = row[2] != null ? (Integer) row[2] : 0;
+            int correctReviews = row[3] != null ? (Integer) row[3] : 0;
+
+            double score = easinessWeakness(easeFactor);
+            if (totalReviews > 0) {
+                score += 1.0 - (double) correctReviews / totalReviews;
+            }
+            weakness.merge(cardId, score, Double::sum);
+        }
+
+        LocalDateTime since = LocalDateTime.now().minusDays(failureWindowDays);
+        for (Object[] row : reviewHistoryRepository.countRecentFailuresByCard(userId, since)) {
+            long failures = (Long) row[1];
+            weakness.merge((Long) row[0], Math.min(3.0, failures), Double::sum);
+        }
+
+        // Tỉ lệ sai quiz gần đây (thống kê cộng dồn, không quét nhật ký)
+        for (Object[] row : quizCardStatsRepository.findErrorRatesByUserId(userId, minQuizAttempts)) {
+            weakness.merge((Long) row[0], 2.0 * (Double) row[1], Double::sum);
+        }
+
+        Map<Long, Float> weights = new HashMap<>(weakness.size() * 2);
+        weakness.forEach((cardId, score) -> weights.put(cardId, (float) Math.max(0.2, 1.0 + score)));
+        log.debug("Dựng snapshot độ yếu cho user {} ({} thẻ) trong {} ms",
+                userId, weights.size(), System.currentTimeMillis() - now);
+        return new Snapshot(weights, now);
+    }
+
+    /**
+     * 0 với EF mặc định (2.5), tăng tới 2 khi EF chạm mức tối thiểu (1.3)
+     */
+    private static double easinessWeakness(double easiness) {
+        return Math.max(0.0, 2.0 * (DEFAULT_EASINESS - easiness) / (DEFAULT_EASINESS - MIN_EASINESS));
+    }
+
+    /**
+     * Trọng số theo thẻ của một user; thẻ chưa có dữ liệu có trọng số 1
+     */
+    private static final class Snapshot {
+        private final Map<Long, Float> weights;
+        private final long builtAt;
+
+        private Snapshot(Map<Long, Float> weights, long builtAt) {
+            this.weights = weights;
+            this.builtAt = builtAt;
+        }
+
+        private double weightOf(Long cardId) {
+            Float weight = weights.get(cardId);
+            return weight != null ? weight : 1.0;
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class ReviewService {
     private final CardRepository cardRepository;
     private final DeckRepository deckRepository;
     private final ModelMapper modelMapper;
+    private final QuizWeaknessService quizWeaknessService;
 
     /**
      * Lấy danh sách các thẻ cần ôn tập hôm nay cho người dùng hiện tại
@@ -105,6 +106,7 @@ public class ReviewService {
         
         // Lưu bản ghi đã cập nhật
         userCardProgressRepository.save(progress);
+        quizWeaknessService.invalidate(currentUser.getId());
         
         log.info("Đã cập nhật tiến độ cho card ID: {}, EF: {}, interval: {}, repetitions: {}, nextReview: {}", 
                 card.getId(), progress.getEaseFactor(), progress.getInterval(), 
@@ -223,8 +225,8 @@ public class ReviewService {
     private void verifyDeckAccess(Long deckId) {
         User currentUser = getCurrentUser();
         
-        Deck deck = deckRepository.findById(deckId)
-                .orElseThrow(() -> new RuntimeException("Deck not found with id: " + deckId));
+        Deck deck = deckRepository.findByIdAndDeletedAtIsNull(deckId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy bộ thẻ với ID: " + deckId));
         
         if (!deck.getUser().getEmail().equals(currentUser.getEmail())) {
             throw new AccessDeniedException("Bạn không có quyền truy cập bộ thẻ này");
@@ -0,0 +1,107 @@
+package com.elearning.service.services;
+
+import com.elearning.service.dto.StreamedTranslationDto;
+import com.elearning.service.dto.TranslationResultDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Batch translation that delivers results as they become available.
+ *
+ * Cached words are emitted immediately; the rest are split into small chunks that
+ * run concurrently on the translation executor, and each chunk is emitted as soon as
+ * its provider calls return. Chunks not started yet are skipped once the client is gone.
+ */
+@Service
+@Slf4j
+public class StreamingTranslationService {
+
+    private final TranslationService translationService;
+    private final TranslationCacheService translationCacheService;
+    private final TaskExecutor translationExecutor;
+
+    @Value("${app.translation.stream.chunk-size:10}")
+    private int chunkSize;
+
+    public StreamingTranslationService(TranslationService translationService,
+                                       TranslationCacheService translationCacheService,
+                                       @Qualifier("translationExecutor") TaskExecutor translationExecutor) {
+        this.translationService = translationService;
+        this.translationCacheService = translationCacheService;
+        this.translationExecutor = translationExecutor;
+    }
+
+    /**
+     * Translate {@code words}, passing each group of finished results to {@code sink}
+     *
+     * @param sink      receives results in completion order; may be called from several threads
+     * @param cancelled checked before each chunk; true stops further provider calls
+     * @return completes when every chunk has been emitted or skipped
+     */
+    public CompletableFuture<Void> translate(List<String> words, String sourceLanguage, String targetLanguage,
+                                             String context, Consumer<List<StreamedTranslationDto>> sink,
+                                             BooleanSupplier cancelled) {
+        String ctx = context != null ? context : "";
+
+        // Positions of each distinct word, so duplicates are translated once and emitted for every index
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (word != null && !word.isBlank()) {
+                positions.computeIfAbsent(word, key -> new ArrayList<>()).add(i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Cache hits (Gemini tier, reported with its confidence) go out before any provider call
+        Map<String, String> cached = translationCacheService.getAll(positions.keySet(), sourceLanguage, targetLanguage, ctx,
+                AITranslationService.PROVIDER);
+        if (!cached.isEmpty()) {
+            List<StreamedTranslationDto> hits = new ArrayList<>();
+            cached.forEach((word, translation) -> addResults(hits, positions.get(word), new TranslationResultDto(word, translation, 0.95)));
+            sink.accept(hits);
+        }
+
+        List<String> missing = positions.keySet().stream()
+                .filter(word -> !cached.containsKey(word))
+                .toList();
+        int size = Math.max(1, chunkSize);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += size) {
+            List<String> chunk = missing.subList(from, Math.min(from + size, missing.size()));
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                Map<String, TranslationResultDto> translated =
+                        translationService.translateChunk(chunk, sourceLanguage, targetLanguage, ctx);
+                List<StreamedTranslationDto> results = new ArrayList<>();
+                translated.forEach((word, result) -> addResults(results, positions.get(word), result));
+                sink.accept(results);
+            }, translationExecutor));
+        }
+        log.info("Streaming translation of {} words: {} cached, {} in {} chunks",
+                words.size(), cached.size(), missing.size(), futures.size());
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private static void addResults(List<StreamedTranslationDto> results, List<Integer> indexes, TranslationResultDto result) {
+        if (indexes == null) {
+            return;
+        }
+        for (Integer index : indexes) {
+            results.add(new StreamedTranslationDto(index, result.getWord(), result.getTranslation(), result.getConfidence()));
+        }
+    }
+}
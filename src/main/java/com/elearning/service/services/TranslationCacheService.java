@@ -0,0 +1,279 @@
+package com.elearning.service.services;
+
+import com.elearning.service.entities.TranslationCacheEntry;
+import com.elearning.service.repositories.TranslationCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Two-tier cache for translations: a bounded in-memory LRU in front of the
+ * persistent translation_cache table.
+ *
+ * Entries are keyed by SHA-256 of (provider, normalized text, source language,
+ * target language, normalized context); normalization is Unicode NFC, trimmed,
+ * collapsed whitespace and lower case, so "Apple " and "apple" share an entry.
+ * Each provider (quality tier) has its own entries, so a Google result never
+ * replaces or is served in place of a Gemini one. Only real provider results are
+ * stored, never mock/fallback text. Database writes never run inside the caller's
+ * transaction: when one is active they are handed to the maintenance executor once
+ * it completes, so the caller never holds a second pooled connection and a
+ * duplicate-key race never rolls it back.
+ */
+@Service
+@Slf4j
+public class TranslationCacheService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final TranslationCacheRepository translationCacheRepository;
+    private final TransactionTemplate writeTransaction;
+    private final TaskExecutor writeExecutor;
+    private final Map<String, String> memory;
+    private final int maxEntries;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    @Value("${app.translation.cache.enabled:true}")
+    private boolean enabled;
+
+    public TranslationCacheService(TranslationCacheRepository translationCacheRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier("maintenanceExecutor") TaskExecutor writeExecutor,
+                                   @Value("${app.translation.cache.max-entries:20000}") int maxEntries) {
+        this.translationCacheRepository = translationCacheRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeExecutor = writeExecutor;
+        this.maxEntries = maxEntries;
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Look up one translation from a provider
+     *
+     * @return the cached translation, or null on a miss
+     */
+    public String get(String text, String sourceLanguage, String targetLanguage, String context, String provider) {
+        if (!enabled || text == null) {
+            return null;
+        }
+        String key = cacheKey(text, sourceLanguage, targetLanguage, context, provider);
+        String cached = memory.get(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return cached;
+        }
+        try {
+            Optional<TranslationCacheEntry> entry = translationCacheRepository.findByCacheKey(key);
+            if (entry.isPresent()) {
+                databaseHits.incrementAndGet();
+                memory.put(key, entry.get().getTranslatedText());
+                return entry.get().getTranslatedText();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Translation cache lookup failed: {}", e.getMessage());
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Look up many translations from a provider at once (one database query for all memory misses)
+     *
+     * @return cached translations keyed by the original input text; misses are absent
+     */
+    public Map<String, String> getAll(Collection<String> texts, String sourceLanguage, String targetLanguage,
+                                      String context, String provider) {
+        Map<String, String> found = new HashMap<>();
+        if (!enabled || texts == null || texts.isEmpty()) {
+            return found;
+        }
+
+        Map<String, List<String>> pending = new HashMap<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            String key = cacheKey(text, sourceLanguage, targetLanguage, context, provider);
+            String cached = memory.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                found.put(text, cached);
+            } else {
+                pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(text);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                for (Object[] row : translationCacheRepository.findTranslationsByCacheKeyIn(pending.keySet())) {
+                    String key = (String) row[0];
+                    String translation = (String) row[1];
+                    memory.put(key, translation);
+                    for (String text : pending.remove(key)) {
+                        databaseHits.incrementAndGet();
+                        found.put(text, translation);
+                    }
+                }
+            } catch (DataAccessException e) {
+                log.warn("Translation cache batch lookup failed: {}", e.getMessage());
+            }
+            pending.values().forEach(miss -> misses.addAndGet(miss.size()));
+        }
+        return found;
+    }
+
+    /**
+     * Store one provider translation
+     */
+    public void put(String text, String sourceLanguage, String targetLanguage, String context,
+                    String translation, String provider) {
+        if (text == null) {
+            return;
+        }
+        putAll(Map.of(text, translation), sourceLanguage, targetLanguage, context, provider);
+    }
+
+    /**
+     * Store provider translations (original text → translation); blank results are skipped
+     */
+    public void putAll(Map<String, String> translations, String sourceLanguage, String targetLanguage,
+                       String context, String provider) {
+        if (!enabled || translations == null || translations.isEmpty()) {
+            return;
+        }
+
+        Map<String, TranslationCacheEntry> entries = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        translations.forEach((text, translation) -> {
+            if (text == null || translation == null || translation.isBlank()) {
+                return;
+            }
+            String key = cacheKey(text, sourceLanguage, targetLanguage, context, provider);
+            memory.put(key, translation);
+            entries.putIfAbsent(key, TranslationCacheEntry.builder()
+                    .cacheKey(key)
+                    .sourceLanguage(normalizeLanguage(sourceLanguage))
+                    .targetLanguage(normalizeLanguage(targetLanguage))
+                    .sourceText(normalizeText(text))
+                    .translatedText(translation)
+                    .provider(provider)
+                    .createdAt(now)
+                    .build());
+        });
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(entries);
+            return;
+        }
+        // Ghi sau khi transaction của caller kết thúc, trên luồng khác: không giữ hai kết nối cùng lúc
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    writeExecutor.execute(() -> write(entries));
+                } catch (TaskRejectedException e) {
+                    log.debug("Translation cache write dropped, executor busy: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void write(Map<String, TranslationCacheEntry> entries) {
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                // Bỏ các khóa đã có (do request khác ghi trước)
+                for (Object[] row : translationCacheRepository.findTranslationsByCacheKeyIn(entries.keySet())) {
+                    entries.remove((String) row[0]);
+                }
+                translationCacheRepository.saveAll(entries.values());
+            });
+            writes.addAndGet(entries.size());
+        } catch (DataAccessException | TransactionException e) {
+            // Trùng khóa khi hai request cùng ghi; bản trong bộ nhớ vẫn dùng được
+            log.debug("Translation cache write skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hit/miss counters since startup
+     */
+    public Map<String, Object> getStats() {
+        long fromMemory = memoryHits.get();
+        long fromDatabase = databaseHits.get();
+        long missed = misses.get();
+        long lookups = fromMemory + fromDatabase + missed;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lookups", lookups);
+        stats.put("memoryHits", fromMemory);
+        stats.put("databaseHits", fromDatabase);
+        stats.put("misses", missed);
+        stats.put("hitRatio", lookups > 0 ? (double) (fromMemory + fromDatabase) / lookups : 0.0);
+        stats.put("memoryHitRatio", lookups > 0 ? (double) fromMemory / lookups : 0.0);
+        stats.put("writes", writes.get());
+        stats.put("memoryEntries", memory.size());
+        stats.put("maxMemoryEntries", maxEntries);
+        return stats;
+    }
+
+    /**
+     * Cache key of a translation request to a provider (also used to coalesce identical in-flight requests)
+     */
+    public static String cacheKey(String text, String sourceLanguage, String targetLanguage, String context,
+                                  String provider) {
+        String raw = normalizeLanguage(provider) + '\u0000'
+                + normalizeText(text) + '\u0000'
+                + normalizeLanguage(sourceLanguage) + '\u0000'
+                + normalizeLanguage(targetLanguage) + '\u0000'
+                + normalizeText(context);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private static String normalizeText(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = Normalizer.normalize(text, Normalizer.Form.NFC).trim();
+        return WHITESPACE.matcher(trimmed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeLanguage(String language) {
+        return language == null ? "" : language.trim().toLowerCase(Locale.ROOT);
+    }
+}
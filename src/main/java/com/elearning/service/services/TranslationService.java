@@ -1,5 +1,6 @@
 package com.elearning.service.services;
 
+import com.elearning.service.dto.TranslationResultDto;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +12,7 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,9 +21,18 @@ import java.util.Map;
 @Slf4j
 public class TranslationService {
 
+    private static final String PROVIDER = "GOOGLE";
+    private static final String PARSE_ERROR = "Translation error";
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final AITranslationService aiTranslationService;
+    private final TranslationCacheService translationCacheService;
+    private final BatchTranslationDispatcher batchTranslationDispatcher;
+    private final ProviderRateLimiter providerRateLimiter;
+    private final ProviderRouter providerRouter;
+    private final OfflineDictionaryService offlineDictionaryService;
+    private final LanguageDetectionService languageDetectionService;
 
     @Value("${google.translate.api.key:}")
     private String googleApiKey;
@@ -33,38 +44,8 @@ public class TranslationService {
      * Translate a single text using Google Translate API
      */
     public String translateText(String text, String sourceLanguage, String targetLanguage) {
-        try {
-            if (googleApiKey.isEmpty()) {
-                log.warn("Google Translate API key not configured, using mock translation");
-                return getMockTranslation(text, sourceLanguage, targetLanguage);
-            }
-
-            String url = UriComponentsBuilder.fromHttpUrl(googleTranslateUrl)
-                    .queryParam("key", googleApiKey)
-                    .queryParam("q", text)
-                    .queryParam("source", sourceLanguage)
-                    .queryParam("target", targetLanguage)
-                    .queryParam("format", "text")
-                    .toUriString();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url, 
-                    HttpMethod.POST, 
-                    entity, 
-                    String.class
-            );
-
-            return parseGoogleTranslateResponse(response.getBody());
-
-        } catch (Exception e) {
-            log.error("Error translating text: {}", e.getMessage());
-            return getMockTranslation(text, sourceLanguage, targetLanguage);
-        }
+        String translation = translateWithGoogle(text, sourceLanguage, targetLanguage);
+        return translation != null ? translation : getMockTranslation(text, sourceLanguage, targetLanguage);
     }
 
     /**
@@ -79,45 +60,102 @@ public class TranslationService {
      */
     public Map<String, String> translateBatch(List<String> texts, String sourceLanguage, String targetLanguage, String context) {
         // Try AI translation first for better results
+        Map<String, String> aiTranslations = Map.of();
         try {
             log.info("Using AI translation service for batch translation");
-            return aiTranslationService.batchTranslateWithAI(texts, sourceLanguage, targetLanguage, context);
+            aiTranslations = aiTranslationService.batchTranslateWithAI(texts, sourceLanguage, targetLanguage, context);
         } catch (Exception e) {
             log.warn("AI translation failed, falling back to Google Translate: {}", e.getMessage());
         }
         
-        // Fallback to Google Translate or mock
-        Map<String, String> translations = new HashMap<>();
+        // Words the AI did not return go to Google Translate concurrently (rate limited per provider)
+        Map<String, String> known = aiTranslations;
+        List<String> remaining = texts.stream()
+                .filter(text -> text != null && !known.containsKey(text))
+                .toList();
+        Map<String, String> googleTranslations = Map.of();
+        if (!remaining.isEmpty()) {
+            if (!known.isEmpty()) {
+                log.info("AI translation missed {} words, falling back to Google Translate", remaining.size());
+            }
+            googleTranslations = batchTranslationDispatcher.translateEach(remaining,
+                    text -> translateText(text.trim(), sourceLanguage, targetLanguage));
+        }
         
+        // Merge in input order; mock only for words every provider failed on
+        Map<String, String> translations = new LinkedHashMap<>();
         for (String text : texts) {
-            try {
-                String translation = translateText(text.trim(), sourceLanguage, targetLanguage);
-                translations.put(text, translation);
-                
-                // Add small delay to respect API rate limits
-                Thread.sleep(100);
-                
-            } catch (Exception e) {
-                log.error("Error translating text '{}': {}", text, e.getMessage());
-                translations.put(text, getMockTranslation(text, sourceLanguage, targetLanguage));
+            if (text == null) {
+                continue;
+            }
+            String translation = known.get(text);
+            if (translation == null) {
+                translation = googleTranslations.get(text);
             }
+            if (translation == null) {
+                translation = getMockTranslation(text, sourceLanguage, targetLanguage);
+            }
+            translations.put(text, translation);
         }
         
         return translations;
     }
 
     /**
-     * Auto-detect language of text
+     * Translate one small chunk on the calling thread: AI, then Google for the words AI missed, then offline.
+     * 
+     * Provider calls run sequentially here; callers parallelize across chunks.
+     * Confidence reflects the source: AI 0.95, Google 0.8, offline 0.5.
      */
-    public String detectLanguage(String text) {
+    public Map<String, TranslationResultDto> translateChunk(List<String> chunk, String sourceLanguage, String targetLanguage, String context) {
+        Map<String, String> aiTranslations = Map.of();
+        try {
+            aiTranslations = aiTranslationService.translateChunkWithAI(chunk, sourceLanguage, targetLanguage, context);
+        } catch (Exception e) {
+            log.warn("AI translation failed for chunk of {} words, falling back to Google Translate: {}", chunk.size(), e.getMessage());
+        }
+        
+        Map<String, TranslationResultDto> results = new LinkedHashMap<>();
+        for (String text : chunk) {
+            if (text == null || results.containsKey(text)) {
+                continue;
+            }
+            String translation = aiTranslations.get(text);
+            if (translation != null) {
+                results.put(text, new TranslationResultDto(text, translation, 0.95));
+                continue;
+            }
+            String googleTranslation = translateWithGoogle(text.trim(), sourceLanguage, targetLanguage);
+            if (googleTranslation != null) {
+                results.put(text, new TranslationResultDto(text, googleTranslation, 0.8));
+            } else {
+                results.put(text, new TranslationResultDto(text, getMockTranslation(text, sourceLanguage, targetLanguage), 0.5));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Google Translate only (cache first); null when unavailable instead of a mock translation
+     */
+    private String translateWithGoogle(String text, String sourceLanguage, String targetLanguage) {
+        String cached = translationCacheService.get(text, sourceLanguage, targetLanguage, "", PROVIDER);
+        if (cached != null) {
+            return cached;
+        }
+        
         try {
             if (googleApiKey.isEmpty()) {
-                return getMockDetectedLanguage(text);
+                log.warn("Google Translate API key not configured, using mock translation");
+                return null;
             }
 
-            String url = UriComponentsBuilder.fromHttpUrl("https://translation.googleapis.com/language/translate/v2/detect")
+            String url = UriComponentsBuilder.fromHttpUrl(googleTranslateUrl)
                     .queryParam("key", googleApiKey)
                     .queryParam("q", text)
+                    .queryParam("source", sourceLanguage)
+                    .queryParam("target", targetLanguage)
+                    .queryParam("format", "text")
                     .toUriString();
 
             HttpHeaders headers = new HttpHeaders();
@@ -125,21 +163,41 @@ public class TranslationService {
 
             HttpEntity<?> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(
+            // Skip Google entirely while its circuit is open
+            if (!providerRouter.isAvailable(ProviderRateLimiter.GOOGLE_TRANSLATE)) {
+                return null;
+            }
+            providerRateLimiter.acquire(ProviderRateLimiter.GOOGLE_TRANSLATE);
+            String body = providerRouter.call(ProviderRateLimiter.GOOGLE_TRANSLATE, () -> restTemplate.exchange(
                     url, 
                     HttpMethod.POST, 
                     entity, 
                     String.class
-            );
+            ).getBody());
+            if (body == null) {
+                return null;
+            }
 
-            return parseLanguageDetectionResponse(response.getBody());
+            String translation = parseGoogleTranslateResponse(body);
+            if (PARSE_ERROR.equals(translation)) {
+                return null;
+            }
+            translationCacheService.put(text, sourceLanguage, targetLanguage, "", translation, PROVIDER);
+            return translation;
 
         } catch (Exception e) {
-            log.error("Error detecting language: {}", e.getMessage());
-            return getMockDetectedLanguage(text);
+            log.error("Error translating text: {}", e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Auto-detect language of text (local script/trigram detection, no API call)
+     */
+    public String detectLanguage(String text) {
+        return languageDetectionService.detect(text);
+    }
+
     private String parseGoogleTranslateResponse(String responseBody) {
         try {
             JsonNode root = objectMapper.readTree(responseBody);
@@ -150,262 +208,17 @@ public class TranslationService {
                       .asText();
         } catch (Exception e) {
             log.error("Error parsing Google Translate response: {}", e.getMessage());
-            return "Translation error";
-        }
-    }
-
-    private String parseLanguageDetectionResponse(String responseBody) {
-        try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            return root.path("data")
-                      .path("detections")
-                      .get(0)
-                      .get(0)
-                      .path("language")
-                      .asText();
-        } catch (Exception e) {
-            log.error("Error parsing language detection response: {}", e.getMessage());
-            return "en";
+            return PARSE_ERROR;
         }
     }
 
     /**
-     * Mock translation for development/demo purposes
+     * Offline translation (dictionary, then pattern-based guess) used when providers are unavailable
      */
     private String getMockTranslation(String text, String sourceLanguage, String targetLanguage) {
-        // Enhanced mock translations for demo
-        Map<String, String> mockTranslations = new HashMap<>();
-        
-        // Japanese to Vietnamese
-        mockTranslations.put("最後", "cuối cùng");
-        mockTranslations.put("時代", "thời đại"); 
-        mockTranslations.put("場所", "địa điểm");
-        mockTranslations.put("関係", "mối quan hệ");
-        mockTranslations.put("問題", "vấn đề");
-        mockTranslations.put("方法", "phương pháp");
-        mockTranslations.put("世界", "thế giới");
-        mockTranslations.put("人間", "con người");
-        mockTranslations.put("社会", "xã hội");
-        mockTranslations.put("経済", "kinh tế");
-        
-        // English to Vietnamese - Common words  
-        mockTranslations.put("hello", "xin chào");
-        mockTranslations.put("world", "thế giới");
-        mockTranslations.put("study", "học tập");
-        mockTranslations.put("flashcard", "thẻ ghi nhớ");
-        mockTranslations.put("language", "ngôn ngữ");
-        mockTranslations.put("affect", "ảnh hưởng");
-        mockTranslations.put("avoid", "tránh");
-        mockTranslations.put("chapped", "nứt nẻ");
-        mockTranslations.put("dim", "mờ, tối");
-        mockTranslations.put("disease", "bệnh tật");
-        mockTranslations.put("eye drops", "thuốc nhỏ mắt");
-        mockTranslations.put("book", "sách");
-        mockTranslations.put("computer", "máy tính");
-        mockTranslations.put("phone", "điện thoại");
-        mockTranslations.put("water", "nước");
-        mockTranslations.put("food", "thức ăn");
-        mockTranslations.put("house", "ngôi nhà");
-        mockTranslations.put("car", "xe hơi");
-        mockTranslations.put("school", "trường học");
-        mockTranslations.put("teacher", "giáo viên");
-        mockTranslations.put("student", "học sinh");
-        
-        // New words from test case
-        mockTranslations.put("cardboard", "bìa cứng");
-        mockTranslations.put("dollhouse", "nhà búp bê");
-        mockTranslations.put("gardening", "làm vườn");
-        mockTranslations.put("glue", "keo dán");
-        mockTranslations.put("horse riding", "cưỡi ngựa");
-        mockTranslations.put("insect", "côn trùng");
-        mockTranslations.put("jogging", "chạy bộ");
-        
-        // More common English words
-        mockTranslations.put("apple", "quả táo");
-        mockTranslations.put("banana", "quả chuối");
-        mockTranslations.put("cat", "con mèo");
-        mockTranslations.put("dog", "con chó");
-        mockTranslations.put("elephant", "con voi");
-        mockTranslations.put("flower", "bông hoa");
-        mockTranslations.put("guitar", "đàn ghi-ta");
-        mockTranslations.put("hospital", "bệnh viện");
-        mockTranslations.put("ice cream", "kem");
-        mockTranslations.put("jungle", "rừng rậm");
-        mockTranslations.put("kitchen", "nhà bếp");
-        mockTranslations.put("library", "thư viện");
-        mockTranslations.put("mountain", "núi");
-        mockTranslations.put("newspaper", "báo");
-        mockTranslations.put("ocean", "đại dương");
-        mockTranslations.put("piano", "đàn piano");
-        mockTranslations.put("question", "câu hỏi");
-        mockTranslations.put("restaurant", "nhà hàng");
-        mockTranslations.put("sunshine", "ánh nắng");
-        mockTranslations.put("television", "tivi");
-        mockTranslations.put("university", "đại học");
-        mockTranslations.put("vacation", "kỳ nghỉ");
-        mockTranslations.put("window", "cửa sổ");
-        mockTranslations.put("xylophone", "đàn mộc cầm");
-        mockTranslations.put("yellow", "màu vàng");
-        mockTranslations.put("zebra", "ngựa vằn");
-        
-        // Words from test cases
-        mockTranslations.put("belong to", "thuộc về");
-        mockTranslations.put("benefit", "lợi ích");
-        mockTranslations.put("bug", "lỗi, côn trùng");
-        mockTranslations.put("making models", "làm mô hình");
-        mockTranslations.put("maturity", "sự trưởng thành");
-        mockTranslations.put("patient", "bệnh nhân, kiên nhẫn");
-        mockTranslations.put("popular", "phổ biến");
-        mockTranslations.put("responsibility", "trách nhiệm");
-        
-        // Additional common words
-        mockTranslations.put("nature", "thiên nhiên");
-        mockTranslations.put("culture", "văn hóa");
-        mockTranslations.put("society", "xã hội");
-        mockTranslations.put("education", "giáo dục");
-        mockTranslations.put("knowledge", "kiến thức");
-        mockTranslations.put("experience", "kinh nghiệm");
-        mockTranslations.put("opportunity", "cơ hội");
-        mockTranslations.put("challenge", "thử thách");
-        mockTranslations.put("success", "thành công");
-        mockTranslations.put("failure", "thất bại");
-        mockTranslations.put("friendship", "tình bạn");
-        mockTranslations.put("relationship", "mối quan hệ");
-        mockTranslations.put("communication", "giao tiếp");
-        mockTranslations.put("understanding", "sự hiểu biết");
-        mockTranslations.put("confidence", "sự tự tin");
-        mockTranslations.put("creativity", "sự sáng tạo");
-        mockTranslations.put("imagination", "trí tưởng tượng");
-        mockTranslations.put("development", "sự phát triển");
-        mockTranslations.put("improvement", "sự cải thiện");
-        mockTranslations.put("achievement", "thành tựu");
-        
-        // Additional common words to improve coverage
-        mockTranslations.put("puppet", "con rối");
-        mockTranslations.put("sculpture", "tác phẩm điêu khắc");
-        mockTranslations.put("painting", "bức tranh");
-        mockTranslations.put("drawing", "bản vẽ");
-        mockTranslations.put("music", "âm nhạc");
-        mockTranslations.put("dance", "khiêu vũ");
-        mockTranslations.put("theater", "nhà hát");
-        mockTranslations.put("movie", "phim");
-        mockTranslations.put("photography", "nhiếp ảnh");
-        mockTranslations.put("literature", "văn học");
-        mockTranslations.put("poetry", "thơ ca");
-        mockTranslations.put("novel", "tiểu thuyết");
-        mockTranslations.put("magazine", "tạp chí");
-        mockTranslations.put("dictionary", "từ điển");
-        mockTranslations.put("encyclopedia", "bách khoa toàn thư");
-        mockTranslations.put("science", "khoa học");
-        mockTranslations.put("mathematics", "toán học");
-        mockTranslations.put("physics", "vật lý");
-        mockTranslations.put("chemistry", "hóa học");
-        mockTranslations.put("biology", "sinh học");
-        mockTranslations.put("history", "lịch sử");
-        mockTranslations.put("geography", "địa lý");
-        mockTranslations.put("economy", "kinh tế");
-        mockTranslations.put("politics", "chính trị");
-        mockTranslations.put("government", "chính phủ");
-        mockTranslations.put("society", "xã hội");
-        mockTranslations.put("community", "cộng đồng");
-        mockTranslations.put("family", "gia đình");
-        mockTranslations.put("friendship", "tình bạn");
-        mockTranslations.put("love", "tình yêu");
-        mockTranslations.put("happiness", "hạnh phúc");
-        mockTranslations.put("sadness", "nỗi buồn");
-        mockTranslations.put("anger", "cơn giận");
-        mockTranslations.put("fear", "nỗi sợ");
-        mockTranslations.put("hope", "hy vọng");
-        mockTranslations.put("dream", "giấc mơ");
-        mockTranslations.put("reality", "thực tế");
-        mockTranslations.put("future", "tương lai");
-        mockTranslations.put("past", "quá khứ");
-        mockTranslations.put("present", "hiện tại");
-        mockTranslations.put("moment", "khoảnh khắc");
-        mockTranslations.put("time", "thời gian");
-        mockTranslations.put("space", "không gian");
-        mockTranslations.put("place", "nơi chốn");
-        mockTranslations.put("location", "vị trí");
-        mockTranslations.put("direction", "hướng");
-        mockTranslations.put("distance", "khoảng cách");
-        mockTranslations.put("journey", "hành trình");
-        mockTranslations.put("adventure", "cuộc phiêu lưu");
-        mockTranslations.put("travel", "du lịch");
-        mockTranslations.put("trip", "chuyến đi");
-        mockTranslations.put("vacation", "kỳ nghỉ");
-        mockTranslations.put("holiday", "ngày lễ");
-        mockTranslations.put("celebration", "lễ kỷ niệm");
-        mockTranslations.put("party", "bữa tiệc");
-        mockTranslations.put("festival", "lễ hội");
-        mockTranslations.put("tradition", "truyền thống");
-        mockTranslations.put("custom", "phong tục");
-        mockTranslations.put("habit", "thói quen");
-        mockTranslations.put("behavior", "hành vi");
-        mockTranslations.put("character", "tính cách");
-        mockTranslations.put("personality", "nhân cách");
-        mockTranslations.put("attitude", "thái độ");
-        
-        // Verbs
-        mockTranslations.put("run", "chạy");
-        mockTranslations.put("walk", "đi bộ");
-        mockTranslations.put("swim", "bơi");
-        mockTranslations.put("fly", "bay");
-        mockTranslations.put("jump", "nhảy");
-        mockTranslations.put("sing", "hát");
-        mockTranslations.put("dance", "khiêu vũ");
-        mockTranslations.put("read", "đọc");
-        mockTranslations.put("write", "viết");
-        mockTranslations.put("listen", "nghe");
-        mockTranslations.put("speak", "nói");
-        mockTranslations.put("watch", "xem");
-        mockTranslations.put("play", "chơi");
-        mockTranslations.put("work", "làm việc");
-        mockTranslations.put("sleep", "ngủ");
-        mockTranslations.put("eat", "ăn");
-        mockTranslations.put("drink", "uống");
-        mockTranslations.put("cook", "nấu ăn");
-        mockTranslations.put("clean", "dọn dẹp");
-        mockTranslations.put("think", "suy nghĩ");
-        
-        // Adjectives
-        mockTranslations.put("big", "to");
-        mockTranslations.put("small", "nhỏ");
-        mockTranslations.put("hot", "nóng");
-        mockTranslations.put("cold", "lạnh");
-        mockTranslations.put("good", "tốt");
-        mockTranslations.put("bad", "tệ");
-        mockTranslations.put("beautiful", "đẹp");
-        mockTranslations.put("ugly", "xấu");
-        mockTranslations.put("fast", "nhanh");
-        mockTranslations.put("slow", "chậm");
-        mockTranslations.put("happy", "vui");
-        mockTranslations.put("sad", "buồn");
-        mockTranslations.put("new", "mới");
-        mockTranslations.put("old", "cũ");
-        mockTranslations.put("young", "trẻ");
-        mockTranslations.put("tall", "cao");
-        mockTranslations.put("short", "thấp");
-        mockTranslations.put("fat", "béo");
-        mockTranslations.put("thin", "gầy");
-        mockTranslations.put("rich", "giàu");
-        mockTranslations.put("poor", "nghèo");
-        mockTranslations.put("smart", "thông minh");
-        mockTranslations.put("stupid", "ngu ngốc");
-        mockTranslations.put("strong", "mạnh");
-        mockTranslations.put("weak", "yếu");
-        
-        // Check if we have a specific mock translation
-        String key = text.toLowerCase().trim();
-        String mockResult = mockTranslations.get(key);
-        if (mockResult != null) {
-            return mockResult;
-        }
-        
-        // Try without case sensitivity and extra spaces
-        for (Map.Entry<String, String> entry : mockTranslations.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(key)) {
-                return entry.getValue();
-            }
+        String dictionaryResult = offlineDictionaryService.lookup(text, sourceLanguage, targetLanguage);
+        if (dictionaryResult != null) {
+            return dictionaryResult;
         }
         
         // Generic smart mock based on common patterns
@@ -535,17 +348,4 @@ public class TranslationService {
         // For Chinese text, provide meaningful mock
         return text + " (dịch tiếng Việt)";
     }
-
-    private String getMockDetectedLanguage(String text) {
-        // Simple heuristic language detection
-        if (text.matches(".*[\\u3040-\\u309F\\u30A0-\\u30FF\\u4E00-\\u9FAF].*")) {
-            return "ja"; // Japanese
-        } else if (text.matches(".*[\\uAC00-\\uD7AF].*")) {
-            return "ko"; // Korean
-        } else if (text.matches(".*[\\u4E00-\\u9FFF].*")) {
-            return "zh"; // Chinese
-        } else {
-            return "en"; // Default to English
-        }
-    }
 }
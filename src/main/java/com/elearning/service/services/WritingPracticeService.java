@@ -2,6 +2,7 @@ package com.elearning.service.services;
 
 import com.elearning.service.dto.WritingEvaluationRequest;
 import com.elearning.service.dto.WritingFeedbackResponse;
+import com.elearning.service.utils.SingleFlight;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,9 @@ public class WritingPracticeService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    
+    // Concurrent requests for the same word share one Gemini call
+    private final SingleFlight<String> exampleFlights = new SingleFlight<>();
 
     @Value("${ai.translation.gemini.api-key:}")
     private String geminiApiKey;
@@ -48,27 +52,7 @@ public class WritingPracticeService {
      */
     public String generateExampleSentence(String word, String meaning) {
         try {
-            String prompt = String.format(
-                "Tạo 1 câu ví dụ tiếng Anh sử dụng từ '%s' (nghĩa: %s) và dịch sang tiếng Việt.\n\n" +
-                "Yêu cầu:\n" +
-                "- Câu tiếng Anh đơn giản, dễ hiểu cho người Việt học\n" +
-                "- Thể hiện rõ cách sử dụng từ trong ngữ cảnh thực tế\n" +
-                "- Dịch tiếng Việt chính xác, tự nhiên\n\n" +
-                "Chỉ trả về JSON thuần túy, không thêm markdown hay text khác:\n" +
-                "{\n" +
-                "  \"example\": \"câu ví dụ tiếng Anh\",\n" +
-                "  \"translation\": \"bản dịch tiếng Việt\"\n" +
-                "}",
-                word, meaning
-            );
-            
-            String response = callGeminiAPI(prompt);
-            String cleanedResponse = cleanJsonResponse(response);
-            
-            // Validate JSON and return
-            JsonNode jsonNode = objectMapper.readTree(cleanedResponse);
-            return cleanedResponse;
-            
+            return exampleFlights.execute(word + "\u0000" + meaning, () -> requestExampleSentence(word, meaning));
         } catch (Exception e) {
             log.error("Error generating example sentence: {}", e.getMessage());
             // Fallback JSON format
@@ -79,6 +63,32 @@ public class WritingPracticeService {
         }
     }
 
+    /**
+     * Ask Gemini for an example sentence and validate the JSON it returns
+     */
+    private String requestExampleSentence(String word, String meaning) throws Exception {
+        String prompt = String.format(
+            "Tạo 1 câu ví dụ tiếng Anh sử dụng từ '%s' (nghĩa: %s) và dịch sang tiếng Việt.\n\n" +
+            "Yêu cầu:\n" +
+            "- Câu tiếng Anh đơn giản, dễ hiểu cho người Việt học\n" +
+            "- Thể hiện rõ cách sử dụng từ trong ngữ cảnh thực tế\n" +
+            "- Dịch tiếng Việt chính xác, tự nhiên\n\n" +
+            "Chỉ trả về JSON thuần túy, không thêm markdown hay text khác:\n" +
+            "{\n" +
+            "  \"example\": \"câu ví dụ tiếng Anh\",\n" +
+            "  \"translation\": \"bản dịch tiếng Việt\"\n" +
+            "}",
+            word, meaning
+        );
+        
+        String response = callGeminiAPI(prompt);
+        String cleanedResponse = cleanJsonResponse(response);
+        
+        // Validate JSON and return
+        objectMapper.readTree(cleanedResponse);
+        return cleanedResponse;
+    }
+
     /**
      * Clean JSON response by removing markdown formatting
      */
@@ -0,0 +1,218 @@
+package com.elearning.service.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a batch translation answer into an index-addressed array.
+ *
+ * The expected answer is a JSON array {@code [{"i":0,"w":"...","t":"..."}, ...]} where
+ * {@code i} is the position of the word in the request and {@code w} echoes the word.
+ * An entry whose echoed word does not match the word at its index is rejected, so a
+ * model that shifts or mixes up indexes leaves those slots empty (and retried) instead
+ * of filing translations under the wrong word; entries without {@code w} are taken by
+ * index. The array is read with a streaming parser in a single pass, so cost is linear
+ * in the answer size. Lenient features (single quotes, unquoted names, trailing commas)
+ * absorb common model slips; code fences and prose around the array are skipped; a
+ * truncated or otherwise broken array keeps every entry read before the error. A plain array of strings is taken positionally.
+ *
+ * If no JSON array is found at all, the answer is read as lines of
+ * {@code index|translation} or {@code word|translation} (the older free-text format),
+ * matching words through a hash map instead of scanning every input per line.
+ *
+ * Slots that stay null were not answered and can be retried on their own.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class BatchTranslationParser {
+
+    private static final JsonFactory LENIENT_JSON = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .build();
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private BatchTranslationParser() {
+    }
+
+    /**
+     * @return one slot per input text; null where the answer had no usable translation
+     */
+    public static String[] parse(String answer, List<String> texts) {
+        String[] translations = new String[texts.size()];
+        if (answer == null || answer.isBlank()) {
+            return translations;
+        }
+
+        int arrayStart = answer.indexOf('[');
+        if (arrayStart >= 0 && parseJsonArray(answer.substring(arrayStart), texts, translations)) {
+            return translations;
+        }
+        parseLines(answer, texts, translations);
+        return translations;
+    }
+
+    /**
+     * Number of null slots
+     */
+    public static int countMissing(String[] translations) {
+        int missing = 0;
+        for (String translation : translations) {
+            if (translation == null) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Stream the array into {@code translations}; stops quietly at the first syntax error
+     *
+     * @return true if the input started a JSON array and yielded at least one entry (rejected ones included)
+     */
+    private static boolean parseJsonArray(String json, List<String> texts, String[] translations) {
+        int found = 0;
+        try (JsonParser parser = LENIENT_JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return false;
+            }
+            int position = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING) {
+                    // ["...", "..."]: positional
+                    found += store(translations, position, parser.getText());
+                } else if (token == JsonToken.START_OBJECT) {
+                    Entry entry = readEntry(parser, position);
+                    if (entry.word() == null || matches(texts, entry.index(), entry.word())) {
+                        found += store(translations, entry.index(), entry.translation());
+                    } else {
+                        // Sai chỉ số: bỏ, ô trống sẽ được hỏi lại
+                        found++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                position++;
+            }
+        } catch (IOException e) {
+            // Truncated or malformed tail: keep what was read so far
+        }
+        return found > 0;
+    }
+
+    /**
+     * Read one {"i": n, "w": "...", "t": "..."} object; without "i" the entry's position in the array is used
+     */
+    private static Entry readEntry(JsonParser parser, int position) throws IOException {
+        int index = position;
+        String word = null;
+        String translation = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("i".equals(field) || "index".equals(field)) {
+                if (value == JsonToken.VALUE_NUMBER_INT) {
+                    index = parser.getIntValue();
+                } else if (value == JsonToken.VALUE_STRING) {
+                    Integer parsed = parseIndex(parser.getText().trim());
+                    index = parsed != null ? parsed : -1;
+                }
+            } else if (("w".equals(field) || "word".equals(field)) && value == JsonToken.VALUE_STRING) {
+                word = parser.getText();
+            } else if (("t".equals(field) || "translation".equals(field)) && value == JsonToken.VALUE_STRING) {
+                translation = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Entry(index, word, translation);
+    }
+
+    /**
+     * Whether the echoed word is the word at {@code index} (ignoring case, spacing and Unicode form)
+     */
+    private static boolean matches(List<String> texts, int index, String word) {
+        if (index < 0 || index >= texts.size() || texts.get(index) == null) {
+            return false;
+        }
+        return normalize(texts.get(index)).equals(normalize(word));
+    }
+
+    private static String normalize(String text) {
+        String trimmed = Normalizer.normalize(text, Normalizer.Form.NFC).trim();
+        return WHITESPACE.matcher(trimmed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static int store(String[] translations, int index, String translation) {
+        if (index < 0 || index >= translations.length || translation == null) {
+            return 0;
+        }
+        String trimmed = translation.trim();
+        if (trimmed.isEmpty() || translations[index] != null) {
+            return 0;
+        }
+        translations[index] = trimmed;
+        return 1;
+    }
+
+    /**
+     * Older "index|translation" / "word|translation" line format
+     */
+    private static void parseLines(String answer, List<String> texts, String[] translations) {
+        Map<String, Integer> indexByText = new HashMap<>(texts.size() * 2);
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text != null) {
+                indexByText.putIfAbsent(text.trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        for (String rawLine : answer.split("\n")) {
+            String line = rawLine.trim();
+            int separator = line.indexOf('|');
+            if (separator <= 0) {
+                continue;
+            }
+            String key = line.substring(0, separator).trim().replaceAll("^[-*•]\\s*", "");
+            String translation = line.substring(separator + 1);
+
+            Integer index = indexByText.get(key.toLowerCase(Locale.ROOT));
+            if (index == null) {
+                index = parseIndex(key.replaceAll("[.)]$", ""));
+            }
+            if (index != null) {
+                store(translations, index, translation);
+            }
+        }
+    }
+
+    private static Integer parseIndex(String key) {
+        if (key.isEmpty() || key.length() > 6) {
+            return null;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return null;
+            }
+        }
+        return Integer.parseInt(key);
+    }
+
+    private record Entry(int index, String word, String translation) {
+    }
+}
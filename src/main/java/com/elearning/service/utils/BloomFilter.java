@@ -0,0 +1,111 @@
+package com.elearning.service.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size Bloom filter over strings.
+ *
+ * Sized once from the expected number of entries and the wanted false positive rate
+ * (about 9.6 bits per entry at 1%), so memory does not depend on key length. A
+ * negative answer is exact; a positive one may be wrong with roughly that rate, which
+ * suits callers where a false positive only means "keep it". Bit positions come from
+ * double hashing of one 64-bit hash of the key's UTF-8 bytes. Not thread-safe.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class BloomFilter {
+
+    private static final int MAX_HASHES = 16;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long entries;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Filter for about {@code expectedEntries} keys with the given false positive rate
+     */
+    public static BloomFilter create(long expectedEntries, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate phải nằm trong (0, 1)");
+        }
+        long n = Math.max(1, expectedEntries);
+        double ln2 = Math.log(2);
+        long bitCount = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        if (bitCount > Integer.MAX_VALUE * 64L) {
+            throw new IllegalArgumentException("Bloom filter quá lớn cho " + n + " phần tử");
+        }
+        int hashCount = (int) Math.round((double) bitCount / n * ln2);
+        return new BloomFilter(Math.max(64, bitCount), Math.max(1, Math.min(MAX_HASHES, hashCount)));
+    }
+
+    public void add(String key) {
+        long hash = hash64(key);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        entries++;
+    }
+
+    /**
+     * False: the key was never added. True: it probably was.
+     */
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of {@link #add} calls (duplicates included)
+     */
+    public long entries() {
+        return entries;
+    }
+
+    public long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, then a 64-bit finalizer so nearby keys spread over all bits
+     */
+    private static long hash64(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
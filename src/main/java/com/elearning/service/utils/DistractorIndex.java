@@ -0,0 +1,305 @@
+package com.elearning.service.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory similarity index over the answers (card backs) of one deck, used to
+ * pick plausible wrong answers for quiz questions.
+ *
+ * Answers are indexed by character trigrams. A lookup scores only the entries
+ * that share at least one trigram with the correct answer (Dice coefficient
+ * minus a length-difference penalty), keeps those written in the same script,
+ * and samples from the best few so quizzes still vary. When the answer has no
+ * similar neighbours, entries are sampled at random (same script first)
+ * without ever shuffling the whole deck.
+ *
+ * Cards can be added, updated and removed incrementally; removed slots are
+ * compacted once they make up half of the index.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class DistractorIndex {
+
+    /**
+     * Trigrams shared by more answers than this carry no signal and are skipped
+     */
+    private static final int MAX_POSTING_SIZE = 2048;
+
+    /**
+     * How many of the best-scoring candidates are kept to sample from
+     */
+    private static final int POOL_FACTOR = 3;
+
+    private static final int RANDOM_ATTEMPTS_PER_SLOT = 16;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Long, Integer> positionByCardId = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int removedCount;
+
+    /**
+     * Add a card or replace its answer
+     */
+    public void put(long cardId, String answer) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(cardId);
+            Entry entry = new Entry(cardId, answer);
+            int position = entries.size();
+            entries.add(entry);
+            positionByCardId.put(cardId, position);
+            for (long gram : entry.grams) {
+                postings.computeIfAbsent(gram, key -> new IntList()).add(position);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a card; unknown IDs are ignored
+     */
+    public void remove(long cardId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(cardId);
+            if (removedCount > 64 && removedCount * 2 > entries.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positionByCardId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find up to {@code count} card IDs whose answers are plausible distractors
+     * for the given card. Answers are distinct from each other and from the
+     * card's own answer.
+     */
+    public List<Long> findDistractors(long cardId, String answer, int count) {
+        Random random = ThreadLocalRandom.current();
+        Entry target = new Entry(cardId, answer);
+        List<Long> result = new ArrayList<>(count);
+        Set<String> usedAnswers = new HashSet<>();
+        usedAnswers.add(target.normalized);
+
+        lock.readLock().lock();
+        try {
+            // 1. Similar answers: same script, sharing trigrams, close in length
+            int[] pool = topSimilar(target, count * POOL_FACTOR);
+            for (int i = pool.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = pool[i];
+                pool[i] = pool[j];
+                pool[j] = tmp;
+            }
+            for (int position : pool) {
+                if (result.size() >= count) {
+                    break;
+                }
+                tryAdd(entries.get(position), target, result, usedAnswers);
+            }
+
+            // 2. Random answers written in the same script, then any script
+            sampleRandom(target, true, count, random, result, usedAnswers);
+            sampleRandom(target, false, count, random, result, usedAnswers);
+
+            // 3. Decks with many duplicate answers: deterministic scan
+            for (int i = 0; i < entries.size() && result.size() < count; i++) {
+                tryAdd(entries.get(i), target, result, usedAnswers);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private int[] topSimilar(Entry target, int limit) {
+        if (limit <= 0 || target.grams.length == 0 || entries.isEmpty()) {
+            return new int[0];
+        }
+
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (long gram : target.grams) {
+            IntList posting = postings.get(gram);
+            if (posting == null || posting.size > MAX_POSTING_SIZE) {
+                continue;
+            }
+            for (int i = 0; i < posting.size; i++) {
+                shared.merge(posting.values[i], 1, Integer::sum);
+            }
+        }
+
+        // Bounded selection of the best candidates (limit is tiny, insertion is fine)
+        int[] best = new int[limit];
+        double[] bestScores = new double[limit];
+        int found = 0;
+        for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+            Entry entry = entries.get(candidate.getKey());
+            if (entry == null || entry.cardId == target.cardId || entry.script != target.script) {
+                continue;
+            }
+            double dice = 2.0 * candidate.getValue() / (entry.grams.length + target.grams.length);
+            int maxLength = Math.max(1, Math.max(entry.length, target.length));
+            double score = dice - 0.5 * Math.abs(entry.length - target.length) / maxLength;
+
+            int slot = found < limit ? found++ : limit;
+            if (slot == limit && score <= bestScores[limit - 1]) {
+                continue;
+            }
+            slot = Math.min(slot, limit - 1);
+            while (slot > 0 && bestScores[slot - 1] < score) {
+                best[slot] = best[slot - 1];
+                bestScores[slot] = bestScores[slot - 1];
+                slot--;
+            }
+            best[slot] = candidate.getKey();
+            bestScores[slot] = score;
+        }
+        return Arrays.copyOf(best, found);
+    }
+
+    private void sampleRandom(Entry target, boolean sameScript, int count, Random random,
+                              List<Long> result, Set<String> usedAnswers) {
+        int size = entries.size();
+        int attempts = (count - result.size()) * RANDOM_ATTEMPTS_PER_SLOT;
+        while (result.size() < count && attempts-- > 0 && size > 0) {
+            Entry entry = entries.get(random.nextInt(size));
+            if (entry != null && (!sameScript || entry.script == target.script)) {
+                tryAdd(entry, target, result, usedAnswers);
+            }
+        }
+    }
+
+    private void tryAdd(Entry entry, Entry target, List<Long> result, Set<String> usedAnswers) {
+        if (entry != null && entry.cardId != target.cardId && usedAnswers.add(entry.normalized)) {
+            result.add(entry.cardId);
+        }
+    }
+
+    private void removeInternal(long cardId) {
+        Integer position = positionByCardId.remove(cardId);
+        if (position != null) {
+            // Postings keep the stale position; lookups skip null slots
+            entries.set(position, null);
+            removedCount++;
+        }
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>(positionByCardId.size());
+        for (Entry entry : entries) {
+            if (entry != null) {
+                live.add(entry);
+            }
+        }
+        entries.clear();
+        positionByCardId.clear();
+        postings.clear();
+        removedCount = 0;
+        for (Entry entry : live) {
+            int position = entries.size();
+            entries.add(entry);
+            positionByCardId.put(entry.cardId, position);
+            for (long gram : entry.grams) {
+                postings.computeIfAbsent(gram, key -> new IntList()).add(position);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long cardId;
+        private final String normalized;
+        private final int length;
+        private final Character.UnicodeScript script;
+        private final long[] grams;
+
+        private Entry(long cardId, String answer) {
+            this.cardId = cardId;
+            this.normalized = normalize(answer);
+            this.length = normalized.length();
+            this.script = dominantScript(normalized);
+            this.grams = trigrams(normalized);
+        }
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Script of the first letter; answers without letters are grouped as COMMON
+     */
+    private static Character.UnicodeScript dominantScript(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetter(codePoint)) {
+                Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+                // Japanese mixes kana and kanji in the same answer
+                return script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA
+                        ? Character.UnicodeScript.HAN : script;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return Character.UnicodeScript.COMMON;
+    }
+
+    /**
+     * Distinct character trigrams of " text ", each packed into a long (3 x 16 bits)
+     */
+    private static long[] trigrams(String text) {
+        if (text.isEmpty()) {
+            return new long[0];
+        }
+        String padded = " " + text + " ";
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Growable int array for posting lists
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
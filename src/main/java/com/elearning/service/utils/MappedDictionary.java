@@ -0,0 +1,205 @@
+package com.elearning.service.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only offline dictionary for one language pair, memory-mapped from a compact file.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * [magic "FDIC"][version][entry count]
+ * [record offset] x entry count        -- sorted by key bytes
+ * [key length: u16][key UTF-8][value length: u16][value UTF-8] x entry count
+ * </pre>
+ * Keys are normalized (NFC, trimmed, collapsed whitespace, lower case) and sorted
+ * by unsigned UTF-8 bytes, so a lookup is a binary search that compares the query
+ * bytes directly against the mapped file: O(log n), no index held on the heap and
+ * nothing allocated besides the query bytes and the returned value. The OS page
+ * cache shares the file between lookups and restarts.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class MappedDictionary {
+
+    private static final int MAGIC = 0x46444943; // "FDIC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MappedByteBuffer buffer;
+    private final int entryCount;
+
+    private MappedDictionary(MappedByteBuffer buffer, int entryCount) {
+        this.buffer = buffer;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Map a dictionary file built by {@link #write}
+     *
+     * @throws IOException if the file cannot be read or is not a dictionary file
+     */
+    public static MappedDictionary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a dictionary file: " + file);
+            }
+            int count = buffer.getInt(8);
+            if (count < 0 || HEADER_SIZE + (long) count * Integer.BYTES > buffer.capacity()) {
+                throw new IOException("Corrupt dictionary index: " + file);
+            }
+            return new MappedDictionary(buffer, count);
+        }
+    }
+
+    /**
+     * Look up the translation of a headword
+     *
+     * @return the translation, or null if the headword is not in the dictionary
+     */
+    public String lookup(String text) {
+        if (text == null || entryCount == 0) {
+            return null;
+        }
+        byte[] key = normalize(text).getBytes(StandardCharsets.UTF_8);
+
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = buffer.getInt(HEADER_SIZE + mid * Integer.BYTES);
+            int cmp = compareKey(record, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readValue(record);
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Build a dictionary file from headword → translation pairs (written atomically)
+     *
+     * @return number of entries written (duplicate keys after normalization keep the last value)
+     */
+    public static int write(Path file, Map<String, String> entries) throws IOException {
+        TreeMap<byte[], byte[]> sorted = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            String key = normalize(entry.getKey());
+            String value = entry.getValue().trim();
+            if (key.isEmpty() || value.isEmpty()) {
+                continue;
+            }
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            if (keyBytes.length > MAX_FIELD_BYTES || valueBytes.length > MAX_FIELD_BYTES) {
+                continue;
+            }
+            sorted.put(keyBytes, valueBytes);
+        }
+
+        int count = sorted.size();
+        ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + count * Integer.BYTES);
+        index.putInt(MAGIC).putInt(VERSION).putInt(count);
+        long offset = index.capacity();
+        for (Map.Entry<byte[], byte[]> entry : sorted.entrySet()) {
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Dictionary too large");
+            }
+            index.putInt((int) offset);
+            offset += 2 + entry.getKey().length + 2 + entry.getValue().length;
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(index.array());
+            ByteBuffer lengths = ByteBuffer.allocate(2);
+            for (Map.Entry<byte[], byte[]> entry : sorted.entrySet()) {
+                out.write(lengths.putShort(0, (short) entry.getKey().length).array());
+                out.write(entry.getKey());
+                out.write(lengths.putShort(0, (short) entry.getValue().length).array());
+                out.write(entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Read "headword&lt;TAB&gt;translation" lines; blank lines and lines starting with # are skipped
+     */
+    public static Map<String, String> readTsv(BufferedReader reader) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                entries.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Key normalization shared by lookups and the builder
+     */
+    public static String normalize(String text) {
+        String trimmed = Normalizer.normalize(text, Normalizer.Form.NFC).trim();
+        return WHITESPACE.matcher(trimmed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private int compareKey(int record, byte[] key) {
+        int length = Short.toUnsignedInt(buffer.getShort(record));
+        int start = record + 2;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(Byte.toUnsignedInt(buffer.get(start + i)), Byte.toUnsignedInt(key[i]));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String readValue(int record) {
+        int valueAt = record + 2 + Short.toUnsignedInt(buffer.getShort(record));
+        int length = Short.toUnsignedInt(buffer.getShort(valueAt));
+        byte[] value = new byte[length];
+        buffer.get(valueAt + 2, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,156 @@
+package com.elearning.service.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rolling health of one external provider plus its circuit breaker.
+ *
+ * The last {@code windowSize} calls are kept in a ring buffer (latency and outcome).
+ * A call counts as failed when it throws, returns nothing, or is slower than
+ * {@code slowCallMillis}. Once the window holds at least {@code minCalls} calls and
+ * the failure rate reaches {@code failureRateThreshold}, the circuit opens: callers
+ * skip the provider for {@code openMillis}. After that a single probe call is let
+ * through (half-open); its outcome closes the circuit again or re-opens it.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class ProviderHealth {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final long[] latencies;
+    private final boolean[] failures;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private int next;
+    private int count;
+    private int failureCount;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private boolean probeInFlight;
+    private long totalCalls;
+
+    public ProviderHealth(int windowSize, int minCalls, double failureRateThreshold,
+                          long slowCallMillis, long openMillis) {
+        if (windowSize < 1 || minCalls < 1 || failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("windowSize, minCalls phải >= 1 và failureRateThreshold trong (0, 1]");
+        }
+        this.latencies = new long[windowSize];
+        this.failures = new boolean[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a call may go to the provider now; in half-open state only one probe at a time
+     */
+    public synchronized boolean tryAcquire(long nowMillis) {
+        expireOpen(nowMillis);
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether {@link #tryAcquire} would let a call through now, without taking the half-open probe
+     */
+    public synchronized boolean isCallPermitted(long nowMillis) {
+        expireOpen(nowMillis);
+        return state == State.CLOSED || (state == State.HALF_OPEN && !probeInFlight);
+    }
+
+    /**
+     * Record the outcome of a call that was let through by {@link #tryAcquire}
+     */
+    public synchronized void record(boolean success, long latencyMillis, long nowMillis) {
+        boolean failed = !success || (slowCallMillis > 0 && latencyMillis > slowCallMillis);
+        totalCalls++;
+
+        if (count == latencies.length && failures[next]) {
+            failureCount--;
+        }
+        latencies[next] = latencyMillis;
+        failures[next] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        next = (next + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (failed) {
+                open(nowMillis);
+            } else {
+                state = State.CLOSED;
+                resetWindow();
+            }
+        } else if (state == State.CLOSED && count >= minCalls
+                && (double) failureCount / count >= failureRateThreshold) {
+            open(nowMillis);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Latency percentile over the window (0 when there is no data yet)
+     */
+    public synchronized long latencyPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += latencies[i];
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("windowCalls", count);
+        stats.put("errorRate", count > 0 ? (double) failureCount / count : 0.0);
+        stats.put("avgLatencyMs", count > 0 ? sum / count : 0);
+        stats.put("p90LatencyMs", latencyPercentile(90));
+        stats.put("totalCalls", totalCalls);
+        return stats;
+    }
+
+    private void expireOpen(long nowMillis) {
+        if (state == State.OPEN && nowMillis >= openUntil) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+    }
+
+    private void open(long nowMillis) {
+        state = State.OPEN;
+        openUntil = nowMillis + openMillis;
+    }
+
+    private void resetWindow() {
+        next = 0;
+        count = 0;
+        failureCount = 0;
+    }
+}
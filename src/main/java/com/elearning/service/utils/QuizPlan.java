@@ -0,0 +1,92 @@
+package com.elearning.service.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact, random-access quiz question plan.
+ *
+ * Every question is a fixed-width record:
+ * [correct option index: 1 byte][option card ID: 8 bytes x OPTION_COUNT].
+ * The question card is the option at the correct index. An option card ID of 0
+ * marks a placeholder answer (deck without enough distinct answers).
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class QuizPlan {
+
+    public static final int OPTION_COUNT = 4;
+
+    public static final long PLACEHOLDER_OPTION = 0L;
+
+    private static final int RECORD_SIZE = 1 + OPTION_COUNT * Long.BYTES;
+
+    private final ByteBuffer buffer;
+
+    private QuizPlan(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create an empty plan for the given number of questions
+     */
+    public static QuizPlan allocate(int questionCount) {
+        return new QuizPlan(ByteBuffer.allocate(questionCount * RECORD_SIZE));
+    }
+
+    /**
+     * Wrap a plan previously produced by {@link #toBytes()}
+     */
+    public static QuizPlan wrap(byte[] data) {
+        if (data == null || data.length % RECORD_SIZE != 0) {
+            throw new IllegalStateException("Dữ liệu kế hoạch quiz không hợp lệ");
+        }
+        return new QuizPlan(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Number of questions in the plan
+     */
+    public int size() {
+        return buffer.capacity() / RECORD_SIZE;
+    }
+
+    /**
+     * Write one question (0-based index)
+     */
+    public void setQuestion(int index, long[] optionCardIds, int correctIndex) {
+        if (optionCardIds.length != OPTION_COUNT || correctIndex < 0 || correctIndex >= OPTION_COUNT) {
+            throw new IllegalArgumentException("Câu hỏi phải có đúng " + OPTION_COUNT + " lựa chọn");
+        }
+        int offset = index * RECORD_SIZE;
+        buffer.put(offset, (byte) correctIndex);
+        for (int i = 0; i < OPTION_COUNT; i++) {
+            buffer.putLong(offset + 1 + i * Long.BYTES, optionCardIds[i]);
+        }
+    }
+
+    /**
+     * Index of the correct option for a question (0-based index)
+     */
+    public int getCorrectIndex(int index) {
+        return buffer.get(index * RECORD_SIZE);
+    }
+
+    /**
+     * Card ID shown as the given option, or {@link #PLACEHOLDER_OPTION}
+     */
+    public long getOptionCardId(int index, int option) {
+        return buffer.getLong(index * RECORD_SIZE + 1 + option * Long.BYTES);
+    }
+
+    /**
+     * ID of the card asked by a question
+     */
+    public long getQuestionCardId(int index) {
+        return getOptionCardId(index, getCorrectIndex(index));
+    }
+
+    public byte[] toBytes() {
+        return buffer.array();
+    }
+}
@@ -0,0 +1,240 @@
+package com.elearning.service.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local language detector for short flashcard texts.
+ *
+ * One pass over the code points counts letters per script (kana, Han, Hangul,
+ * Thai, Cyrillic, Arabic, Latin) and language-specific Latin letters
+ * (Vietnamese ơ/ư/đ/ă and tone-marked vowels, German ß/ä/ö/ü, Spanish ñ, ...).
+ * Non-Latin scripts decide immediately. Latin text without decisive letters can
+ * optionally be scored against small character-trigram profiles; this only
+ * kicks in for longer texts, since single words carry too little signal and
+ * stay on the default (English).
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class ScriptLanguageDetector {
+
+    private static final String DEFAULT_LANGUAGE = "en";
+
+    /**
+     * Most frequent trigrams per language, by rank (space = word boundary)
+     */
+    private static final Map<String, String[]> TRIGRAM_PROFILES = new LinkedHashMap<>();
+
+    static {
+        TRIGRAM_PROFILES.put("en", new String[]{" th", "the", "he ", "and", " an", "nd ", " of", "of ", "ing", "ng ",
+                " to", "to ", " in", "ion", "tio", "ent", "er ", "ed ", " is", "is ", "hat", "tha", " wa", "for",
+                " re", "es ", "on ", "at ", "ter", "her"});
+        TRIGRAM_PROFILES.put("fr", new String[]{" de", "de ", "es ", "ent", " le", "le ", "la ", " la", "ion", "les",
+                " et", "et ", " qu", "que", "ue ", "re ", "des", " pa", "ne ", "our", "eur", "ait", " co", "ans",
+                "men", "tio", " en", "en ", "on ", "est"});
+        TRIGRAM_PROFILES.put("es", new String[]{" de", "de ", "os ", "la ", " la", "el ", " el", "en ", " en", "es ",
+                "ue ", " qu", "que", " lo", "as ", "ado", "con", " co", "ent", "ara", "par", " pa", "nte", "est",
+                "aci", "los", " se", "ien", "una", " un"});
+        TRIGRAM_PROFILES.put("de", new String[]{"en ", "er ", "der", " de", "ch ", "ie ", "ein", "die", " di", "sch",
+                "ich", " ei", "und", " un", "nd ", "cht", "den", "in ", "te ", "ung", "gen", " ge", "ine", "che",
+                "ter", " da", "es ", "ber", "ste", "ist"});
+        TRIGRAM_PROFILES.put("pt", new String[]{" de", "de ", "os ", "que", " qu", "ue ", "da ", "do ", "ent", " co",
+                "as ", "es ", " do", " da", "nte", "ado", "com", "men", "est", "em ", "ra ", "ar ", "to ", "or ",
+                "con", "ida", " um", "um ", "par", " pa"});
+        TRIGRAM_PROFILES.put("it", new String[]{" di", "di ", "to ", "la ", "re ", " de", "ne ", "che", "le ", "del",
+                " la", "ell", "ion", " co", "lla", "he ", "ent", "no ", "one", "per", " pe", "ato", "zio", "ta ",
+                "are", " il", "il ", " ch", "gli", "non"});
+        TRIGRAM_PROFILES.put("id", new String[]{"an ", "ang", "ng ", " me", "kan", "nya", "men", " di", "yan", " ya",
+                "dan", " da", "ber", " be", "en ", "ya ", "ara", "ah ", "eng", "ter", "per", "ata", "asi", " ke",
+                "ini", " in", "gan", "un ", "uk ", "ak "});
+    }
+
+    private final String hanOnlyLanguage;
+    private final boolean trigramsEnabled;
+    private final int minTrigramLetters;
+    private final String[] profileLanguages;
+    private final long[][] profileTrigrams;
+    private final int[][] profileWeights;
+
+    /**
+     * @param hanOnlyLanguage   language for text written only in Han characters (no kana), e.g. "ja" or "zh"
+     * @param trigramsEnabled   score undecided Latin text against trigram profiles
+     * @param minTrigramLetters minimum Latin letters before trigram scoring is trusted
+     */
+    public ScriptLanguageDetector(String hanOnlyLanguage, boolean trigramsEnabled, int minTrigramLetters) {
+        this.hanOnlyLanguage = hanOnlyLanguage;
+        this.trigramsEnabled = trigramsEnabled;
+        this.minTrigramLetters = minTrigramLetters;
+
+        int languages = TRIGRAM_PROFILES.size();
+        this.profileLanguages = new String[languages];
+        this.profileTrigrams = new long[languages][];
+        this.profileWeights = new int[languages][];
+        int i = 0;
+        for (Map.Entry<String, String[]> profile : TRIGRAM_PROFILES.entrySet()) {
+            String[] trigrams = profile.getValue();
+            long[][] pairs = new long[trigrams.length][];
+            for (int rank = 0; rank < trigrams.length; rank++) {
+                pairs[rank] = new long[]{pack(trigrams[rank].charAt(0), trigrams[rank].charAt(1), trigrams[rank].charAt(2)),
+                        trigrams.length - rank};
+            }
+            Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+            profileLanguages[i] = profile.getKey();
+            profileTrigrams[i] = new long[pairs.length];
+            profileWeights[i] = new int[pairs.length];
+            for (int j = 0; j < pairs.length; j++) {
+                profileTrigrams[i][j] = pairs[j][0];
+                profileWeights[i][j] = (int) pairs[j][1];
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Detect the language of one text (ISO 639-1 code, "en" when undecided)
+     */
+    public String detect(String text) {
+        if (text == null || text.isEmpty()) {
+            return DEFAULT_LANGUAGE;
+        }
+
+        int kana = 0, han = 0, hangul = 0, thai = 0, cyrillic = 0, arabic = 0, latin = 0;
+        int vietnamese = 0, sharedAccents = 0, german = 0, spanish = 0, french = 0, portuguese = 0;
+
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (cp < 0x80) {
+                if ((cp | 0x20) >= 'a' && (cp | 0x20) <= 'z') {
+                    latin++;
+                }
+            } else if (cp >= 0x3040 && cp <= 0x30FF || cp >= 0x31F0 && cp <= 0x31FF || cp >= 0xFF66 && cp <= 0xFF9D) {
+                kana++;
+            } else if (cp >= 0x4E00 && cp <= 0x9FFF || cp >= 0x3400 && cp <= 0x4DBF || cp >= 0x20000 && cp <= 0x2A6DF) {
+                han++;
+            } else if (cp >= 0xAC00 && cp <= 0xD7AF || cp >= 0x1100 && cp <= 0x11FF || cp >= 0x3130 && cp <= 0x318F) {
+                hangul++;
+            } else if (cp >= 0x0E00 && cp <= 0x0E7F) {
+                thai++;
+            } else if (cp >= 0x0400 && cp <= 0x04FF) {
+                cyrillic++;
+            } else if (cp >= 0x0600 && cp <= 0x06FF) {
+                arabic++;
+            } else if (cp >= 0x00C0 && cp <= 0x024F || cp >= 0x1E00 && cp <= 0x1EFF) {
+                latin++;
+                int lower = Character.toLowerCase(cp);
+                if (lower >= 0x1EA0 && lower <= 0x1EF9 || lower == 'đ' || lower == 'ơ' || lower == 'ư' || lower == 'ă'
+                        || lower == 'ĩ' || lower == 'ũ') {
+                    vietnamese++;
+                } else if (lower == 'ß' || lower == 'ä' || lower == 'ö' || lower == 'ü') {
+                    german++;
+                } else if (lower == 'ñ') {
+                    spanish++;
+                } else if (lower == 'ç' || lower == 'œ' || lower == 'ë' || lower == 'ï' || lower == 'û' || lower == 'î') {
+                    french++;
+                } else if (lower == 'õ') {
+                    portuguese++;
+                } else if ("àáâãèéêìíòóôùúý".indexOf(lower) >= 0) {
+                    sharedAccents++;
+                }
+            } else if (cp == '¿' || cp == '¡') {
+                spanish++;
+            }
+        }
+
+        if (kana > 0) {
+            return "ja";
+        }
+        if (hangul > 0) {
+            return "ko";
+        }
+        if (han > 0) {
+            return hanOnlyLanguage;
+        }
+        if (thai > 0) {
+            return "th";
+        }
+        if (cyrillic > 0) {
+            return "ru";
+        }
+        if (arabic > 0) {
+            return "ar";
+        }
+        if (vietnamese > 0) {
+            return "vi";
+        }
+        if (german > 0) {
+            return "de";
+        }
+        if (spanish > 0) {
+            return "es";
+        }
+        if (portuguese > 0) {
+            return "pt";
+        }
+        if (french > 0) {
+            return "fr";
+        }
+
+        if (trigramsEnabled && latin >= minTrigramLetters) {
+            String byTrigrams = detectByTrigrams(text);
+            if (byTrigrams != null) {
+                return byTrigrams;
+            }
+        }
+        // Dấu sắc/huyền/mũ đơn lẻ (cá, mèo, tôi) thường là tiếng Việt trong ứng dụng này
+        return sharedAccents > 0 ? "vi" : DEFAULT_LANGUAGE;
+    }
+
+    /**
+     * Best trigram profile, or null unless it clearly beats the runner-up
+     */
+    private String detectByTrigrams(String text) {
+        int[] scores = new int[profileLanguages.length];
+        char a = ' ';
+        char b = ' ';
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (!Character.isLetter(c)) {
+                c = ' ';
+            }
+            if (!(b == ' ' && c == ' ')) {
+                long trigram = pack(a, b, c);
+                for (int l = 0; l < profileLanguages.length; l++) {
+                    int found = Arrays.binarySearch(profileTrigrams[l], trigram);
+                    if (found >= 0) {
+                        scores[l] += profileWeights[l][found];
+                    }
+                }
+            }
+            a = b;
+            b = c;
+        }
+
+        int best = -1;
+        int runnerUp = 0;
+        for (int l = 0; l < scores.length; l++) {
+            if (best < 0 || scores[l] > scores[best]) {
+                if (best >= 0) {
+                    runnerUp = Math.max(runnerUp, scores[best]);
+                }
+                best = l;
+            } else {
+                runnerUp = Math.max(runnerUp, scores[l]);
+            }
+        }
+        if (best < 0 || scores[best] == 0 || scores[best] * 2 < runnerUp * 3) {
+            return null;
+        }
+        return profileLanguages[best];
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -0,0 +1,282 @@
+package com.elearning.service.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only blob store made of numbered segment files in one directory.
+ *
+ * Blobs are appended to the active segment; once it would grow past
+ * {@code maxSegmentBytes} a new segment is started and the old one is never written
+ * again. Each record is
+ * <pre>
+ * [magic "ASEG"][key length: u16][key UTF-8][data length: i32][data]
+ * </pre>
+ * and {@link #append} returns the location of the data itself, which the caller keeps
+ * in its own index. The header only makes a segment self-describing for inspection or
+ * index rebuilds. Reads slice a read-only memory mapping of the segment, so serving a
+ * blob copies nothing onto the heap and the OS page cache is shared across requests.
+ * A segment is mapped in extents: when a read goes past what is mapped (the active
+ * segment grew), only the bytes written since are mapped, never the whole file again.
+ *
+ * Deleting a blob is the caller's business (drop it from the index); its bytes stay
+ * until the segment is compacted: live blobs are copied to the active segment with
+ * {@link #write}, made durable with one {@link #sync} and the old segment file is
+ * removed with {@link #delete}. Readers holding a slice of a deleted segment keep
+ * working, the mapping stays valid until it is garbage collected.
+ *
+ * Only one process may write a directory: appends are serialized in memory, not on
+ * disk, so {@link #open} takes an exclusive lock on {@code segments.lock} and fails if
+ * another process (or another open log in this one) holds it. The lock is released by
+ * {@link #close} or when the process exits.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class SegmentLog implements Closeable {
+
+    private static final int MAGIC = 0x41534547; // "ASEG"
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{6})\\.dat");
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+    private static final String LOCK_FILE = "segments.lock";
+
+    /**
+     * Where a blob's data lives
+     */
+    public record Location(int segment, long offset, int length) {
+    }
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean fsync;
+    private final FileLock lock;
+
+    /**
+     * Mapped extents of each segment, by the file offset they start at
+     */
+    private final Map<Integer, ConcurrentSkipListMap<Long, MappedByteBuffer>> mappings = new ConcurrentHashMap<>();
+
+    private int activeSegment;
+    private FileChannel activeChannel;
+    private long activeSize;
+    private boolean dirty;
+
+    private SegmentLog(Path directory, long maxSegmentBytes, boolean fsync, FileLock lock) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.fsync = fsync;
+        this.lock = lock;
+    }
+
+    /**
+     * Open the log in {@code directory} (created if missing); appends continue in the highest numbered segment
+     *
+     * @throws IOException if another process already has the directory open
+     */
+    public static SegmentLog open(Path directory, long maxSegmentBytes, boolean fsync) throws IOException {
+        if (maxSegmentBytes < 1024) {
+            throw new IllegalArgumentException("maxSegmentBytes phải >= 1024");
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Segment log " + directory + " is already open in another process");
+        }
+        SegmentLog log = new SegmentLog(directory, maxSegmentBytes, fsync, lock);
+        int highest = 0;
+        for (int segment : log.segmentSizes().keySet()) {
+            highest = Math.max(highest, segment);
+        }
+        log.activate(Math.max(1, highest));
+        return log;
+    }
+
+    /**
+     * Append a blob and make it durable, starting a new segment first if the active one is full
+     */
+    public synchronized Location append(String key, byte[] data) throws IOException {
+        Location location = write(key, ByteBuffer.wrap(data));
+        sync();
+        return location;
+    }
+
+    /**
+     * Append a blob without forcing it to disk; call {@link #sync} once after the last one
+     *
+     * Reads see the blob right away. The buffer's position is left untouched, so a slice
+     * from {@link #read} can be copied without going through the heap.
+     */
+    public synchronized Location write(String key, ByteBuffer data) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Key quá dài: " + keyBytes.length + " bytes");
+        }
+        int length = data.remaining();
+        int headerSize = Integer.BYTES + Short.BYTES + keyBytes.length + Integer.BYTES;
+        if (activeSize > 0 && activeSize + headerSize + length > maxSegmentBytes) {
+            activate(activeSegment + 1);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putShort((short) keyBytes.length).put(keyBytes).putInt(length).flip();
+        long recordStart = activeSize;
+        ByteBuffer body = data.duplicate();
+        long position = recordStart;
+        while (header.hasRemaining()) {
+            position += activeChannel.write(header, position);
+        }
+        while (body.hasRemaining()) {
+            position += activeChannel.write(body, position);
+        }
+        activeSize = position;
+        dirty = true;
+        return new Location(activeSegment, recordStart + headerSize, length);
+    }
+
+    /**
+     * Force blobs written since the last sync to disk (nothing to do when opened without fsync)
+     */
+    public synchronized void sync() throws IOException {
+        if (fsync && dirty && activeChannel != null) {
+            activeChannel.force(false);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Read-only view of a blob's data, backed by the segment mapping
+     *
+     * @throws IOException if the segment is gone or shorter than the location
+     */
+    public ByteBuffer read(Location location) throws IOException {
+        long end = location.offset() + location.length();
+        ConcurrentSkipListMap<Long, MappedByteBuffer> extents = mappings.get(location.segment());
+        Map.Entry<Long, MappedByteBuffer> extent = extents != null ? extents.floorEntry(location.offset()) : null;
+        if (extent == null || extent.getKey() + extent.getValue().capacity() < end) {
+            extent = map(location.segment(), location.offset(), end);
+        }
+        return extent.getValue().slice((int) (location.offset() - extent.getKey()), location.length()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Whether the location lies inside an existing segment
+     */
+    public boolean contains(Location location) {
+        try {
+            Path segment = segmentPath(location.segment());
+            return Files.isRegularFile(segment) && Files.size(segment) >= location.offset() + location.length();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%06d.dat", segment));
+    }
+
+    public synchronized int activeSegment() {
+        return activeSegment;
+    }
+
+    /**
+     * Sync and close the active segment and release the directory lock; slices already read stay valid
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+            activeChannel.close();
+        } finally {
+            lock.release();
+            lock.channel().close();
+        }
+    }
+
+    /**
+     * Size in bytes of every segment file, by segment number
+     */
+    public Map<Integer, Long> segmentSizes() throws IOException {
+        Map<Integer, Long> sizes = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sizes.put(Integer.parseInt(matcher.group(1)), Files.size(file));
+                }
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Remove a sealed segment file; its blobs must already have been copied or dropped from the index
+     */
+    public synchronized void delete(int segment) throws IOException {
+        if (segment == activeSegment) {
+            throw new IllegalArgumentException("Không thể xóa segment đang ghi: " + segment);
+        }
+        mappings.remove(segment);
+        Files.deleteIfExists(segmentPath(segment));
+    }
+
+    /**
+     * Map the part of a segment holding [offset, end) that no extent covers yet, up to the current end of the file
+     */
+    private synchronized Map.Entry<Long, MappedByteBuffer> map(int segment, long offset, long end) throws IOException {
+        ConcurrentSkipListMap<Long, MappedByteBuffer> extents = mappings.computeIfAbsent(segment, s -> new ConcurrentSkipListMap<>());
+        Map.Entry<Long, MappedByteBuffer> extent = extents.floorEntry(offset);
+        if (extent != null && extent.getKey() + extent.getValue().capacity() >= end) {
+            return extent;
+        }
+        // Tiếp nối extent trước (segment đang ghi lớn dần); blob nằm vắt qua ranh giới thì map từ đầu blob
+        long start = extent == null ? 0 : Math.min(offset, extent.getKey() + extent.getValue().capacity());
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < end) {
+                throw new IOException("Segment " + segment + " has " + size + " bytes, need " + end);
+            }
+            if (size - start > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + segment + " is larger than 2 GB");
+            }
+            extent = Map.entry(start, channel.map(FileChannel.MapMode.READ_ONLY, start, size - start));
+        }
+        extents.put(extent.getKey(), extent.getValue());
+        return extent;
+    }
+
+    private void activate(int segment) throws IOException {
+        if (activeChannel != null) {
+            // Segment cũ không bao giờ được ghi tiếp: những gì write() chưa sync phải xuống đĩa trước khi đóng
+            sync();
+            activeChannel.close();
+        }
+        activeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        activeSize = activeChannel.size();
+        activeSegment = segment;
+    }
+}
@@ -0,0 +1,88 @@
+package com.elearning.service.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in flight,
+ * other callers with the same key wait for its result instead of repeating it.
+ *
+ * Nothing is cached: the key is released as soon as the call finishes, so the
+ * next caller starts a fresh call. Failures are shared with the waiters of that
+ * flight only. The leader runs the call on its own thread.
+ *
+ * @param <V> result type
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Run {@code call} for {@code key}, or join the call already running for it
+     *
+     * @throws Exception whatever the call threw (for waiters too)
+     */
+    public V execute(String key, Callable<V> call) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            shared.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            V result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Calls actually executed
+     */
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Callers served by another caller's in-flight call
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    private V await(CompletableFuture<V> running) throws Exception {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Coalesced call was cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+}
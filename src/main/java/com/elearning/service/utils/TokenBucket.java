@@ -0,0 +1,75 @@
+package com.elearning.service.utils;
+
+/**
+ * Token-bucket rate limiter for calls to an external provider.
+ *
+ * Tokens refill continuously at {@code permitsPerSecond} up to {@code burst}.
+ * A caller reserves one token and is told how long to wait for it; reservations
+ * may take the bucket below zero, so concurrent callers queue up fairly behind
+ * each other instead of all waking at the same instant. Waiting happens outside
+ * the lock.
+ *
+ * @author Smart Flashcard Team
+ * @version 1.0.0
+ */
+public final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond phải > 0 và burst phải >= 1");
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Wait for one token
+     *
+     * @param maxWaitMillis give up (without consuming a token) if the wait would be longer than this
+     * @return false if the wait would exceed {@code maxWaitMillis}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean acquire(long maxWaitMillis) throws InterruptedException {
+        long waitNanos = reserve(maxWaitMillis * 1_000_000L);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+        return true;
+    }
+
+    /**
+     * Tokens currently available (negative while callers are queued)
+     */
+    public synchronized double available() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    /**
+     * @return nanoseconds to wait for the reserved token, or -1 if it would exceed the limit
+     */
+    private synchronized long reserve(long maxWaitNanos) {
+        refill(System.nanoTime());
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
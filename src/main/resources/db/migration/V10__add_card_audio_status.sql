@@ -0,0 +1,7 @@
+-- Audio is generated in the background after a card is saved:
+-- audio_status PENDING -> READY (audio_url filled) or FAILED after the last retry
+
+ALTER TABLE cards ADD COLUMN audio_status VARCHAR(16) NULL AFTER audio_url;
+ALTER TABLE cards ADD COLUMN audio_attempts INT NULL AFTER audio_status;
+UPDATE cards SET audio_status = CASE WHEN audio_url IS NULL THEN 'FAILED' ELSE 'READY' END;
+CREATE INDEX idx_cards_audio_status ON cards (audio_status);
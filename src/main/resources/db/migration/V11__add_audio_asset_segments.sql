@@ -0,0 +1,6 @@
+-- Audio assets stored in packed segment files: (segment_id, segment_offset, size_bytes)
+-- locates the clip; NULL segment_id means a standalone file in the audio directory
+
+ALTER TABLE audio_assets ADD COLUMN segment_id INT NULL AFTER size_bytes;
+ALTER TABLE audio_assets ADD COLUMN segment_offset BIGINT NULL AFTER segment_id;
+CREATE INDEX idx_audio_assets_segment ON audio_assets (segment_id);
@@ -0,0 +1,5 @@
+-- Add deleted_at tombstone column to decks table
+-- Decks are hidden as soon as deleted_at is set; cards and related rows are purged by a background job
+
+ALTER TABLE decks ADD COLUMN deleted_at DATETIME(6) NULL AFTER updated_at;
+CREATE INDEX idx_decks_deleted_at ON decks (deleted_at);
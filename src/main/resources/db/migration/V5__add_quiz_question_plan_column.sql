@@ -0,0 +1,4 @@
+-- Add question_plan column to quiz_sessions table
+-- Stores the whole question plan (options + correct index per question) generated once at quiz start
+
+ALTER TABLE quiz_sessions ADD COLUMN question_plan MEDIUMBLOB AFTER card_ids;
@@ -0,0 +1,6 @@
+-- Replace per-answer JSON lists with a compact bitset of correct answers
+-- card_ids / correct_card_ids / wrong_card_ids are kept only for sessions created before this change
+
+ALTER TABLE quiz_sessions ADD COLUMN correct_mask BLOB AFTER question_plan;
+ALTER TABLE quiz_sessions DROP COLUMN current_options;
+ALTER TABLE quiz_sessions DROP COLUMN current_correct_answer_index;
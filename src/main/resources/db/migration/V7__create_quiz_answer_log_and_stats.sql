@@ -0,0 +1,40 @@
+-- Append-only quiz answer log and incrementally maintained error-rate aggregates
+
+CREATE TABLE quiz_answer_log (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    session_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    deck_id BIGINT NOT NULL,
+    card_id BIGINT NOT NULL,
+    question_number INT NOT NULL,
+    selected_index TINYINT NOT NULL,
+    is_correct BIT(1) NOT NULL,
+    response_time_ms INT NULL,
+    answered_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_quiz_answer_log_card ON quiz_answer_log (card_id, answered_at);
+CREATE INDEX idx_quiz_answer_log_user_deck ON quiz_answer_log (user_id, deck_id, answered_at);
+CREATE INDEX idx_quiz_answer_log_session ON quiz_answer_log (session_id);
+
+CREATE TABLE quiz_card_stats (
+    card_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    deck_id BIGINT NOT NULL,
+    attempt_count INT NOT NULL,
+    error_count INT NOT NULL,
+    recent_error_rate DOUBLE NOT NULL,
+    last_answered_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (card_id)
+);
+CREATE INDEX idx_quiz_card_stats_deck_rate ON quiz_card_stats (deck_id, recent_error_rate);
+CREATE INDEX idx_quiz_card_stats_user ON quiz_card_stats (user_id);
+
+CREATE TABLE quiz_deck_stats (
+    deck_id BIGINT NOT NULL,
+    attempt_count INT NOT NULL,
+    error_count INT NOT NULL,
+    recent_error_rate DOUBLE NOT NULL,
+    last_answered_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (deck_id)
+);
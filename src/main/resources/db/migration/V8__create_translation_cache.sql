@@ -0,0 +1,15 @@
+-- Persistent tier of the translation cache, keyed by a hash of
+-- (normalized text, source language, target language, context)
+
+CREATE TABLE translation_cache (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    cache_key VARCHAR(64) NOT NULL,
+    source_language VARCHAR(10) NOT NULL,
+    target_language VARCHAR(10) NOT NULL,
+    source_text TEXT NOT NULL,
+    translated_text TEXT NOT NULL,
+    provider VARCHAR(20) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_translation_cache_key UNIQUE (cache_key)
+);
@@ -0,0 +1,18 @@
+-- Content-addressed audio files, keyed by a hash of
+-- (normalized text, language, voice, provider); ref_count = cards using the file
+
+CREATE TABLE audio_assets (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content_hash VARCHAR(64) NOT NULL,
+    file_name VARCHAR(120) NOT NULL,
+    provider VARCHAR(30) NOT NULL,
+    language VARCHAR(10) NOT NULL,
+    voice VARCHAR(30) NOT NULL,
+    source_text TEXT NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_audio_assets_hash UNIQUE (content_hash),
+    CONSTRAINT uk_audio_assets_file UNIQUE (file_name)
+);
@@ -0,0 +1,92 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchTranslationParserTest {
+
+    private static final List<String> WORDS = List.of("apple", "book", "cat");
+
+    @Test
+    void readsIndexedEntriesWithEchoedWords() {
+        String answer = "[{\"i\":2,\"w\":\"cat\",\"t\":\"con mèo\"},"
+                + "{\"i\":0,\"w\":\"Apple\",\"t\":\"quả táo\"},"
+                + "{\"i\":1,\"w\":\" book \",\"t\":\" quyển sách \"}]";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsExactly("quả táo", "quyển sách", "con mèo");
+    }
+
+    @Test
+    void rejectsEntriesWhoseWordDoesNotMatchTheIndex() {
+        // Shifted by one: "book" filed under 0, "cat" under 1
+        String answer = "[{\"i\":0,\"w\":\"book\",\"t\":\"quyển sách\"},"
+                + "{\"i\":1,\"w\":\"cat\",\"t\":\"con mèo\"},"
+                + "{\"i\":2,\"w\":\"cat\",\"t\":\"con mèo\"}]";
+
+        String[] translations = BatchTranslationParser.parse(answer, WORDS);
+
+        assertThat(translations).containsExactly(null, null, "con mèo");
+        assertThat(BatchTranslationParser.countMissing(translations)).isEqualTo(2);
+    }
+
+    @Test
+    void mismatchedAnswerDoesNotFallBackToLineParsing() {
+        String answer = "[{\"i\":0,\"w\":\"pear\",\"t\":\"quả lê\"}]\napple|wrong";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsOnlyNulls();
+    }
+
+    @Test
+    void entriesWithoutAnEchoedWordAreTakenByIndex() {
+        String answer = "[{\"i\":1,\"t\":\"quyển sách\"},{\"index\":\"0\",\"translation\":\"quả táo\"}]";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsExactly("quả táo", "quyển sách", null);
+    }
+
+    @Test
+    void truncatedArrayKeepsEntriesReadBeforeTheCut() {
+        String answer = "```json\n[{\"i\":0,\"w\":\"apple\",\"t\":\"quả táo\"},{\"i\":1,\"w\":\"book\",\"t\":\"quyển";
+
+        String[] translations = BatchTranslationParser.parse(answer, WORDS);
+
+        assertThat(translations).containsExactly("quả táo", null, null);
+        assertThat(BatchTranslationParser.countMissing(translations)).isEqualTo(2);
+    }
+
+    @Test
+    void toleratesLenientJsonAndSurroundingProse() {
+        String answer = "Here you go:\n[{i: 0, w: 'apple', t: 'quả táo'}, {i: 2, w: 'cat', t: 'con mèo'},]\nDone.";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsExactly("quả táo", null, "con mèo");
+    }
+
+    @Test
+    void ignoresOutOfRangeIndexesAndDuplicates() {
+        String answer = "[{\"i\":7,\"t\":\"x\"},{\"i\":-1,\"t\":\"y\"},"
+                + "{\"i\":0,\"t\":\"quả táo\"},{\"i\":0,\"t\":\"táo tây\"}]";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsExactly("quả táo", null, null);
+    }
+
+    @Test
+    void plainStringArrayIsPositional() {
+        assertThat(BatchTranslationParser.parse("[\"quả táo\", \"quyển sách\"]", WORDS))
+                .containsExactly("quả táo", "quyển sách", null);
+    }
+
+    @Test
+    void fallsBackToLinesWhenThereIsNoArray() {
+        String answer = "- Apple|quả táo\n|orphan\n2.|con mèo\nno separator";
+
+        assertThat(BatchTranslationParser.parse(answer, WORDS)).containsExactly("quả táo", null, "con mèo");
+    }
+
+    @Test
+    void emptyAnswerLeavesEverySlotMissing() {
+        assertThat(BatchTranslationParser.parse("  ", WORDS)).containsOnlyNulls().hasSize(3);
+        assertThat(BatchTranslationParser.parse(null, WORDS)).containsOnlyNulls().hasSize(3);
+    }
+}
@@ -0,0 +1,64 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void neverForgetsAnAddedKey() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("google_neural_" + i + ".mp3");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("google_neural_" + i + ".mp3")).isTrue();
+        }
+        assertThat(filter.entries()).isEqualTo(10_000);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("card-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Mục tiêu 1%: cho phép sai lệch thống kê nhưng không quá gấp đôi
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+
+    @Test
+    void sizeFollowsTheFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(1_000_000, 0.01);
+
+        // Khoảng 9,6 bit mỗi phần tử và 7 hàm băm ở 1%
+        assertThat(filter.sizeInBytes()).isBetween(1_150_000L, 1_250_000L);
+        assertThat(filter.hashCount()).isEqualTo(7);
+        assertThat(BloomFilter.create(1_000_000, 0.001).sizeInBytes()).isGreaterThan(filter.sizeInBytes());
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        assertThat(filter.mightContain("anything")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    @Test
+    void rejectsAnInvalidFalsePositiveRate() {
+        assertThatThrownBy(() -> BloomFilter.create(100, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DistractorIndexTest {
+
+    @Test
+    void prefersSimilarAnswersInTheSameScript() {
+        DistractorIndex index = new DistractorIndex();
+        index.put(1, "running");
+        index.put(2, "runner");
+        index.put(3, "run");
+        index.put(4, "chạy bộ");
+        index.put(5, "走る");
+
+        List<Long> distractors = index.findDistractors(99, "running fast", 2);
+
+        assertThat(distractors).hasSize(2).containsAnyOf(1L, 2L).doesNotContain(5L);
+    }
+
+    @Test
+    void neverReturnsTheCardItselfOrDuplicateAnswers() {
+        DistractorIndex index = new DistractorIndex();
+        index.put(1, "apple");
+        index.put(2, "Apple ");
+        index.put(3, "apple");
+        index.put(4, "pear");
+        index.put(5, "plum");
+
+        for (int i = 0; i < 50; i++) {
+            List<Long> distractors = index.findDistractors(1, "apple", 3);
+            assertThat(distractors).doesNotContain(1L, 2L, 3L).containsExactlyInAnyOrder(4L, 5L);
+        }
+    }
+
+    @Test
+    void removedCardsAreNotSuggested() {
+        DistractorIndex index = new DistractorIndex();
+        index.put(1, "cat");
+        index.put(2, "cats");
+        index.put(3, "dog");
+        index.remove(2);
+        index.remove(42);
+
+        assertThat(index.size()).isEqualTo(2);
+        for (int i = 0; i < 20; i++) {
+            assertThat(index.findDistractors(1, "cat", 3)).containsExactly(3L);
+        }
+    }
+
+    @Test
+    void putReplacesAnExistingAnswer() {
+        DistractorIndex index = new DistractorIndex();
+        index.put(1, "one");
+        index.put(2, "two");
+        index.put(2, "one");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.findDistractors(3, "one", 2)).isEmpty();
+    }
+
+    @Test
+    void compactionAfterManyRemovalsKeepsLiveEntries() {
+        DistractorIndex index = new DistractorIndex();
+        for (long id = 1; id <= 300; id++) {
+            index.put(id, "word " + id);
+        }
+        for (long id = 1; id <= 250; id++) {
+            index.remove(id);
+        }
+
+        assertThat(index.size()).isEqualTo(50);
+        List<Long> distractors = index.findDistractors(0, "word 275", 10);
+        assertThat(distractors).hasSize(10).allMatch(id -> id > 250);
+        assertThat(new HashSet<>(distractors)).hasSize(10);
+    }
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        assertThat(new DistractorIndex().findDistractors(1, "anything", 3)).isEmpty();
+    }
+}
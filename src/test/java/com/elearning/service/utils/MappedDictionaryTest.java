@@ -0,0 +1,95 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedDictionaryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void looksUpEveryWrittenEntryAndMissesOthers() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("apple", "quả táo");
+        entries.put("banana", "quả chuối");
+        entries.put("cherry", "quả anh đào");
+        entries.put("xin chào", "hello");
+        entries.put("日本", "Nhật Bản");
+        Path file = dir.resolve("en-vi.dict");
+
+        assertThat(MappedDictionary.write(file, entries)).isEqualTo(5);
+        MappedDictionary dictionary = MappedDictionary.open(file);
+
+        assertThat(dictionary.size()).isEqualTo(5);
+        entries.forEach((word, translation) -> assertThat(dictionary.lookup(word)).isEqualTo(translation));
+        assertThat(dictionary.lookup("apples")).isNull();
+        assertThat(dictionary.lookup("aardvark")).isNull();
+        assertThat(dictionary.lookup("zebra")).isNull();
+        assertThat(dictionary.lookup(null)).isNull();
+    }
+
+    @Test
+    void lookupsAreNormalizedLikeTheKeys() throws IOException {
+        Path file = dir.resolve("norm.dict");
+        MappedDictionary.write(file, Map.of("  Good   Morning ", "chào buổi sáng"));
+        MappedDictionary dictionary = MappedDictionary.open(file);
+
+        assertThat(dictionary.lookup("good morning")).isEqualTo("chào buổi sáng");
+        assertThat(dictionary.lookup("GOOD\tMORNING\n")).isEqualTo("chào buổi sáng");
+        // NFD input matches the NFC key
+        assertThat(MappedDictionary.normalize("Cafe\u0301")).isEqualTo("caf\u00e9");
+    }
+
+    @Test
+    void skipsBlankEntriesAndKeepsTheLastDuplicate() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("word", "first");
+        entries.put("WORD", "second");
+        entries.put(" ", "blank key");
+        entries.put("empty", "  ");
+        Path file = dir.resolve("dup.dict");
+
+        assertThat(MappedDictionary.write(file, entries)).isEqualTo(1);
+        assertThat(MappedDictionary.open(file).lookup("word")).isEqualTo("second");
+    }
+
+    @Test
+    void emptyDictionaryFindsNothing() throws IOException {
+        Path file = dir.resolve("empty.dict");
+        MappedDictionary.write(file, Map.of());
+
+        MappedDictionary dictionary = MappedDictionary.open(file);
+
+        assertThat(dictionary.size()).isZero();
+        assertThat(dictionary.lookup("anything")).isNull();
+    }
+
+    @Test
+    void rejectsFilesThatAreNotDictionaries() throws IOException {
+        Path file = dir.resolve("junk.dict");
+        Files.writeString(file, "not a dictionary");
+
+        assertThatThrownBy(() -> MappedDictionary.open(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void readsTsvSkippingCommentsAndBlankLines() throws IOException {
+        String tsv = "# en-vi\n\napple\tquả táo\nno tab here\nbook\tquyển sách\n";
+
+        Map<String, String> entries = MappedDictionary.readTsv(new BufferedReader(new StringReader(tsv)));
+
+        assertThat(entries).containsExactlyInAnyOrderEntriesOf(Map.of("apple", "quả táo", "book", "quyển sách"));
+    }
+}
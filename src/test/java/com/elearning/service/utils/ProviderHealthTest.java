@@ -0,0 +1,102 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderHealthTest {
+
+    private static final long OPEN_MILLIS = 30_000;
+
+    private final ProviderHealth health = new ProviderHealth(10, 4, 0.5, 1_000, OPEN_MILLIS);
+
+    @Test
+    void circuitGoesClosedOpenHalfOpenClosed() {
+        long now = 1_000;
+        for (int i = 0; i < 4; i++) {
+            assertThat(health.tryAcquire(now)).isTrue();
+            health.record(false, 50, now);
+        }
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.OPEN);
+        assertThat(health.tryAcquire(now + 1)).isFalse();
+        assertThat(health.isCallPermitted(now + OPEN_MILLIS - 1)).isFalse();
+
+        long later = now + OPEN_MILLIS;
+        assertThat(health.tryAcquire(later)).isTrue();
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.HALF_OPEN);
+        // Only one probe at a time
+        assertThat(health.tryAcquire(later)).isFalse();
+
+        health.record(true, 50, later);
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.CLOSED);
+        assertThat(health.tryAcquire(later)).isTrue();
+        assertThat(health.snapshot()).containsEntry("windowCalls", 0);
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() {
+        openCircuit(0);
+
+        assertThat(health.tryAcquire(OPEN_MILLIS)).isTrue();
+        health.record(false, 50, OPEN_MILLIS);
+
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.OPEN);
+        assertThat(health.tryAcquire(OPEN_MILLIS + 1)).isFalse();
+        assertThat(health.tryAcquire(2 * OPEN_MILLIS)).isTrue();
+    }
+
+    @Test
+    void availabilityCheckMovesAnExpiredCircuitToHalfOpenWithoutTakingTheProbe() {
+        openCircuit(0);
+        assertThat(health.isCallPermitted(1)).isFalse();
+
+        assertThat(health.isCallPermitted(OPEN_MILLIS)).isTrue();
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.HALF_OPEN);
+        assertThat(health.isCallPermitted(OPEN_MILLIS)).isTrue();
+
+        assertThat(health.tryAcquire(OPEN_MILLIS)).isTrue();
+        assertThat(health.isCallPermitted(OPEN_MILLIS)).isFalse();
+    }
+
+    @Test
+    void staysClosedBelowMinimumCallsOrThreshold() {
+        for (int i = 0; i < 3; i++) {
+            health.record(false, 50, 0);
+        }
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.CLOSED);
+
+        ProviderHealth mostlyHealthy = new ProviderHealth(10, 4, 0.5, 1_000, OPEN_MILLIS);
+        for (int i = 0; i < 3; i++) {
+            mostlyHealthy.record(true, 50, 0);
+        }
+        mostlyHealthy.record(false, 50, 0);
+        assertThat(mostlyHealthy.state()).isEqualTo(ProviderHealth.State.CLOSED);
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            health.record(true, 5_000, 0);
+        }
+
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.OPEN);
+    }
+
+    @Test
+    void latencyPercentileCoversTheWindow() {
+        assertThat(health.latencyPercentile(90)).isZero();
+        for (long latency = 10; latency <= 100; latency += 10) {
+            health.record(true, latency, 0);
+        }
+
+        assertThat(health.latencyPercentile(50)).isEqualTo(50);
+        assertThat(health.latencyPercentile(90)).isEqualTo(90);
+    }
+
+    private void openCircuit(long now) {
+        for (int i = 0; i < 4; i++) {
+            health.record(false, 50, now);
+        }
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.OPEN);
+    }
+}
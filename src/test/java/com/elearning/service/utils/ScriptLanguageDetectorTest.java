@@ -0,0 +1,70 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScriptLanguageDetectorTest {
+
+    private final ScriptLanguageDetector detector = new ScriptLanguageDetector("ja", true, 20);
+
+    @Test
+    void nonLatinScriptsDecideImmediately() {
+        assertThat(detector.detect("ありがとう")).isEqualTo("ja");
+        assertThat(detector.detect("食べる")).isEqualTo("ja");
+        assertThat(detector.detect("안녕하세요")).isEqualTo("ko");
+        assertThat(detector.detect("สวัสดี")).isEqualTo("th");
+        assertThat(detector.detect("привет")).isEqualTo("ru");
+        assertThat(detector.detect("مرحبا")).isEqualTo("ar");
+    }
+
+    @Test
+    void hanOnlyTextUsesTheConfiguredLanguage() {
+        assertThat(detector.detect("学生")).isEqualTo("ja");
+        assertThat(new ScriptLanguageDetector("zh", false, 20).detect("学生")).isEqualTo("zh");
+    }
+
+    @Test
+    void distinctiveLatinLettersPickTheLanguage() {
+        assertThat(detector.detect("đường")).isEqualTo("vi");
+        assertThat(detector.detect("Straße")).isEqualTo("de");
+        assertThat(detector.detect("mañana")).isEqualTo("es");
+        assertThat(detector.detect("¿qué?")).isEqualTo("es");
+        assertThat(detector.detect("limões")).isEqualTo("pt");
+        assertThat(detector.detect("garçon")).isEqualTo("fr");
+    }
+
+    @Test
+    void sharedAccentsOnShortWordsFallBackToVietnamese() {
+        assertThat(detector.detect("cá")).isEqualTo("vi");
+        assertThat(detector.detect("mèo")).isEqualTo("vi");
+    }
+
+    @Test
+    void plainShortLatinWordsStayOnTheDefault() {
+        assertThat(detector.detect("house")).isEqualTo("en");
+        assertThat(detector.detect("")).isEqualTo("en");
+        assertThat(detector.detect(null)).isEqualTo("en");
+        assertThat(detector.detect("12345 !?")).isEqualTo("en");
+    }
+
+    @Test
+    void longerLatinTextIsScoredByTrigrams() {
+        assertThat(detector.detect("the cat is sitting on the mat and thinking of the weather"))
+                .isEqualTo("en");
+        assertThat(detector.detect("die Kinder spielen in dem Garten und sie lachen schon lange"))
+                .isEqualTo("de");
+        assertThat(detector.detect("il gatto della nonna dorme sotto il tavolo della cucina"))
+                .isEqualTo("it");
+        assertThat(detector.detect("saya mengatakan bahwa mereka akan datang dengan teman yang baik"))
+                .isEqualTo("id");
+    }
+
+    @Test
+    void trigramScoringCanBeDisabled() {
+        ScriptLanguageDetector scriptOnly = new ScriptLanguageDetector("ja", false, 20);
+
+        assertThat(scriptOnly.detect("die Kinder spielen in dem Garten und sie lachen schon lange"))
+                .isEqualTo("en");
+    }
+}
@@ -0,0 +1,126 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackAppendedBlobs() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, true)) {
+            SegmentLog.Location first = log.append("a", bytes("first clip"));
+            SegmentLog.Location second = log.append("b", bytes("second"));
+
+            assertThat(first.segment()).isEqualTo(1);
+            assertThat(text(log.read(first))).isEqualTo("first clip");
+            assertThat(text(log.read(second))).isEqualTo("second");
+            assertThat(log.read(first).isReadOnly()).isTrue();
+        }
+    }
+
+    @Test
+    void readsBlobsAppendedAfterTheSegmentWasMapped() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, false)) {
+            List<SegmentLog.Location> locations = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                locations.add(log.append("k" + i, bytes("clip " + i)));
+                // Đọc xen kẽ: segment đang ghi phải được map tiếp phần mới
+                assertThat(text(log.read(locations.get(i)))).isEqualTo("clip " + i);
+            }
+            for (int i = 0; i < 50; i++) {
+                assertThat(text(log.read(locations.get(i)))).isEqualTo("clip " + i);
+            }
+        }
+    }
+
+    @Test
+    void startsANewSegmentWhenTheActiveOneIsFull() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1024, true)) {
+            SegmentLog.Location first = log.append("a", new byte[700]);
+            SegmentLog.Location second = log.append("b", new byte[700]);
+
+            assertThat(first.segment()).isEqualTo(1);
+            assertThat(second.segment()).isEqualTo(2);
+            assertThat(log.activeSegment()).isEqualTo(2);
+            assertThat(log.segmentSizes()).containsOnlyKeys(1, 2);
+        }
+    }
+
+    @Test
+    void reopenContinuesInTheHighestSegment() throws IOException {
+        SegmentLog.Location first;
+        try (SegmentLog log = SegmentLog.open(directory, 1024, true)) {
+            first = log.append("a", new byte[700]);
+            log.append("b", new byte[700]);
+        }
+        try (SegmentLog log = SegmentLog.open(directory, 1024, true)) {
+            assertThat(log.activeSegment()).isEqualTo(2);
+            assertThat(log.read(first).remaining()).isEqualTo(700);
+            assertThat(log.contains(first)).isTrue();
+        }
+    }
+
+    @Test
+    void compactionCopiesLiveBlobsAndDeletesTheOldSegment() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1024, true)) {
+            SegmentLog.Location live = log.append("live", bytes("keep me"));
+            log.append("dead", new byte[600]);
+            log.append("next", new byte[600]);
+            assertThat(log.activeSegment()).isEqualTo(2);
+            ByteBuffer heldByReader = log.read(live);
+
+            ByteBuffer source = log.read(live);
+            SegmentLog.Location moved = log.write("live", source);
+            log.sync();
+            log.delete(live.segment());
+
+            assertThat(source.remaining()).isEqualTo(live.length());
+            assertThat(moved.segment()).isEqualTo(2);
+            assertThat(text(log.read(moved))).isEqualTo("keep me");
+            assertThat(log.contains(live)).isFalse();
+            assertThat(Files.exists(log.segmentPath(1))).isFalse();
+            assertThatThrownBy(() -> log.read(live)).isInstanceOf(IOException.class);
+            assertThat(text(heldByReader)).isEqualTo("keep me");
+        }
+    }
+
+    @Test
+    void activeSegmentCannotBeDeleted() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, true)) {
+            log.append("a", bytes("x"));
+            assertThatThrownBy(() -> log.delete(log.activeSegment())).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void directoryCanOnlyBeOpenedOnce() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, true)) {
+            assertThatThrownBy(() -> SegmentLog.open(directory, 1 << 20, true)).isInstanceOf(IOException.class);
+        }
+        SegmentLog.open(directory, 1 << 20, true).close();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
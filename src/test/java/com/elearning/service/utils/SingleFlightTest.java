@@ -0,0 +1,127 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void concurrentCallersWithTheSameKeyShareOneCall() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> flight.execute("apple", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "quả táo";
+            })));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(pool.submit(() -> flight.execute("apple", () -> {
+                    calls.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            waitFor(() -> flight.sharedCount() == CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("quả táo");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(flight.executedCount()).isEqualTo(1);
+        assertThat(flight.sharedCount()).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = pool.submit(() -> flight.execute("slow", () -> {
+                release.await();
+                return "slow";
+            }));
+
+            assertThat(flight.execute("fast", () -> "fast")).isEqualTo("fast");
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(flight.sharedCount()).isZero();
+    }
+
+    @Test
+    void keyIsReleasedOnceTheCallFinishes() throws Exception {
+        SingleFlight<Integer> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(flight.execute("k", calls::incrementAndGet)).isEqualTo(1);
+        assertThat(flight.execute("k", calls::incrementAndGet)).isEqualTo(2);
+        assertThat(flight.executedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void failureIsSharedWithWaitersAndNotRemembered() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.execute("k", () -> {
+                started.countDown();
+                release.await();
+                throw new IOException("provider down");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> waiter = pool.submit(() -> flight.execute("k", () -> "unused"));
+            waitFor(() -> flight.sharedCount() == 1);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(flight.execute("k", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
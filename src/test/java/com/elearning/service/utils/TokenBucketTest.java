@@ -0,0 +1,67 @@
+package com.elearning.service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    @Test
+    void burstIsAvailableImmediatelyThenCallersMustWait() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertThat(bucket.acquire(0)).isTrue();
+        assertThat(bucket.acquire(0)).isTrue();
+        assertThat(bucket.acquire(0)).isTrue();
+        assertThat(bucket.acquire(0)).isFalse();
+    }
+
+    @Test
+    void refusedAcquireDoesNotConsumeAToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.acquire(0);
+        double before = bucket.available();
+
+        assertThat(bucket.acquire(10)).isFalse();
+        assertThat(bucket.available()).isBetween(before, before + 0.1);
+    }
+
+    @Test
+    void tokensRefillOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(50, 1);
+        assertThat(bucket.acquire(0)).isTrue();
+        assertThat(bucket.acquire(0)).isFalse();
+
+        Thread.sleep(60);
+
+        assertThat(bucket.acquire(0)).isTrue();
+    }
+
+    @Test
+    void acquireWaitsForTheNextToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        bucket.acquire(0);
+
+        long start = System.nanoTime();
+        assertThat(bucket.acquire(1000)).isTrue();
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(waitedMillis).isBetween(30L, 500L);
+    }
+
+    @Test
+    void refillIsCappedAtBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 2);
+
+        Thread.sleep(20);
+
+        assertThat(bucket.available()).isEqualTo(2.0);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}